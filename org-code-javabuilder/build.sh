@@ -9,5 +9,11 @@ rm -f font_config.zip
 # zip font config into font_config.zip
 zip -r font_config.zip fontconfig.properties
 
-# Build a zip package that can be uploaded to AWS Lambda by CloudFormation.
-./gradlew buildZip
+# Build a zip package that can be uploaded to AWS Lambda by CloudFormation. When LAMBDA_JAVA_HOME
+# points at the JDK of the Lambda's Java 11 runtime, the package includes a class data sharing
+# archive built with it, and the app template boots from that archive (see template.yml.erb).
+if [ -n "$LAMBDA_JAVA_HOME" ]; then
+  ./gradlew buildZip -PcdsJavaHome="$LAMBDA_JAVA_HOME"
+else
+  ./gradlew buildZip
+fi
@@ -0,0 +1,19 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class Main {
+  public static void main(String[] args) {
+    List<String> words = new ArrayList<>();
+    words.add("class");
+    words.add("data");
+    words.add("sharing");
+    Map<String, Integer> lengths = new HashMap<>();
+    for (String word : words) {
+      lengths.put(word, word.length());
+    }
+    System.out.println("Words: " + words + ", lengths: " + lengths);
+    System.out.println(String.format("%.2f", Math.sqrt(2)));
+  }
+}
@@ -0,0 +1,10 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+public class MainTest {
+  @Test
+  public void addsNumbers() {
+    assertEquals(4, 2 + 2);
+  }
+}
@@ -0,0 +1,14 @@
+import org.code.neighborhood.Painter;
+
+public class Main {
+  public static void main(String[] args) {
+    Painter painter = new Painter(0, 0, "east", 5);
+    painter.paint("red");
+    painter.move();
+    painter.turnLeft();
+    if (painter.canMove()) {
+      painter.move();
+    }
+    painter.takePaint();
+  }
+}
@@ -0,0 +1,17 @@
+import org.code.theater.Scene;
+import org.code.theater.Theater;
+
+public class Main {
+  public static void main(String[] args) {
+    Scene scene = new Scene();
+    scene.clear("white");
+    scene.setFillColor("blue");
+    scene.drawRectangle(50, 50, 100, 100);
+    scene.drawEllipse(200, 200, 80, 40);
+    scene.drawText("Hello", 100, 300);
+    scene.playNote(60, 0.2);
+    scene.pause(0.2);
+    scene.clear("black");
+    Theater.playScenes(scene);
+  }
+}
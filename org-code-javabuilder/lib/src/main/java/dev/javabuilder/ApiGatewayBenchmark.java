@@ -0,0 +1,94 @@
+package dev.javabuilder;
+
+import com.amazonaws.client.builder.AwsClientBuilder;
+import com.amazonaws.services.apigatewaymanagementapi.AmazonApiGatewayManagementApi;
+import com.amazonaws.services.apigatewaymanagementapi.AmazonApiGatewayManagementApiClientBuilder;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.AtomicLong;
+import org.code.javabuilder.AWSOutputAdapter;
+import org.code.javabuilder.ApiGatewayClientFactory;
+import org.code.javabuilder.SystemOutMessage;
+
+/**
+ * Measures how fast messages can be posted to a local fake of the API Gateway @connections
+ * endpoint, with the SDK's default client and with the client from {@link
+ * ApiGatewayClientFactory}. The fake answers every request immediately, or fails one in every
+ * failEvery requests with a 500 to exercise retries.
+ *
+ * <p>Usage: ApiGatewayBenchmark [message count] [failEvery, 0 for never]
+ */
+public class ApiGatewayBenchmark {
+  private static final String CONNECTION_ID = "benchmark";
+
+  public static void main(String[] args) throws IOException {
+    final int messageCount = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+    final int failEvery = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+    // The fake endpoint does not check signatures, but the SDK needs credentials to sign with.
+    if (System.getProperty("aws.accessKeyId") == null) {
+      System.setProperty("aws.accessKeyId", "benchmark");
+      System.setProperty("aws.secretKey", "benchmark");
+    }
+
+    final AtomicLong requests = new AtomicLong();
+    final HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext(
+        "/",
+        exchange -> {
+          try (InputStream body = exchange.getRequestBody()) {
+            body.readAllBytes();
+          }
+          final boolean fail = failEvery > 0 && requests.incrementAndGet() % failEvery == 0;
+          exchange.sendResponseHeaders(fail ? 500 : 200, -1);
+          exchange.close();
+        });
+    server.start();
+    final String endpoint = "http://localhost:" + server.getAddress().getPort();
+
+    try {
+      final AmazonApiGatewayManagementApi defaultClient =
+          AmazonApiGatewayManagementApiClientBuilder.standard()
+              .withEndpointConfiguration(
+                  new AwsClientBuilder.EndpointConfiguration(endpoint, "us-east-1"))
+              .build();
+      final ApiGatewayClientFactory factory = new ApiGatewayClientFactory(endpoint);
+      final AmazonApiGatewayManagementApi tunedClient = factory.create();
+
+      // Warm up both clients before measuring
+      post(defaultClient, messageCount / 10);
+      post(tunedClient, messageCount / 10);
+
+      factory.startSession();
+      System.out.printf("Default client: %.0f messages/s%n", post(defaultClient, messageCount));
+      System.out.printf("Tuned client: %.0f messages/s%n", post(tunedClient, messageCount));
+      factory.publishSessionStats(
+          new LocalMetricClient() {
+            @Override
+            public void publishApiGatewayRequests(
+                long requestCount, long reusedConnectionCount, long retryCount) {
+              System.out.printf(
+                  "Tuned client: %d requests, %d on reused connections, %d retries%n",
+                  requestCount, reusedConnectionCount, retryCount);
+            }
+          });
+    } finally {
+      server.stop(0);
+    }
+  }
+
+  /** @return messages posted per second */
+  private static double post(AmazonApiGatewayManagementApi client, int messageCount) {
+    final AWSOutputAdapter outputAdapter = new AWSOutputAdapter(CONNECTION_ID, client);
+    final long start = System.nanoTime();
+    for (int i = 0; i < messageCount; i++) {
+      try {
+        outputAdapter.sendMessage(new SystemOutMessage("Line " + i + "\n"));
+      } catch (RuntimeException e) {
+        // A failure that outlasted the retries; keep going so the run finishes.
+      }
+    }
+    return messageCount / ((System.nanoTime() - start) / 1e9);
+  }
+}
@@ -0,0 +1,139 @@
+package dev.javabuilder;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.code.javabuilder.*;
+import org.code.protocol.*;
+
+/**
+ * Runs one representative project for each mini-app through the same code path a Lambda
+ * invocation uses, so that a JVM started with -XX:DumpLoadedClassList records the classes a real
+ * session loads. The lib Gradle tasks use the recorded list to build the class data sharing (CDS)
+ * archive the Lambda boots with, and run this again with and without the archive to benchmark cold
+ * boot.
+ *
+ * <p>Usage: ClassDataSharingTrainer [project directory...]. Each directory holds the .java files
+ * (and optional grid.txt) of one project, which is run once and then tested once.
+ */
+public class ClassDataSharingTrainer {
+  public static void main(String[] args) throws Exception {
+    // Set up the container the same way LambdaRequestHandler's constructor does.
+    CachedResources.create();
+    CachedCompiler.getInstance().warmUp();
+    ApiClassLoader.getInstance();
+    new JavabuilderSecurityPolicy();
+    new SessionPrimer().prime();
+    final long coldBootMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+
+    for (String projectDirectory : args) {
+      for (ExecutionType executionType : List.of(ExecutionType.RUN, ExecutionType.TEST)) {
+        runProject(Path.of(projectDirectory), executionType);
+      }
+    }
+    final long totalMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+
+    System.out.printf(
+        "Cold boot: %d ms, training sessions: %d ms%n",
+        coldBootMillis, totalMillis - coldBootMillis);
+  }
+
+  private static void runProject(Path projectDirectory, ExecutionType executionType)
+      throws JavabuilderException, InternalFacingException, IOException {
+    JavabuilderContext.getInstance().destroyAndReset();
+    final PerformanceTracker performanceTracker = new PerformanceTracker();
+    JavabuilderContext.getInstance().register(PerformanceTracker.class, performanceTracker);
+    JavabuilderContext.getInstance().register(MetricClient.class, new LocalMetricClient());
+
+    final TrainingOutputAdapter outputAdapter = new TrainingOutputAdapter();
+    final CodeExecutionManager codeExecutionManager =
+        new CodeExecutionManager(
+            new TrainingProjectFileLoader(projectDirectory),
+            () -> null,
+            outputAdapter,
+            executionType,
+            List.of(),
+            new LocalTempDirectoryManager(),
+            new TrainingContentManager(),
+            new LocalSystemExitHelper());
+    try {
+      codeExecutionManager.execute();
+    } finally {
+      codeExecutionManager.shutDown();
+    }
+    System.out.printf(
+        "Trained on %s (%s): %d messages%n",
+        projectDirectory.getFileName(), executionType, outputAdapter.messageCount);
+  }
+
+  /** Loads the .java and text files of a project from a local directory. */
+  private static class TrainingProjectFileLoader implements ProjectFileLoader {
+    private final Path projectDirectory;
+
+    private TrainingProjectFileLoader(Path projectDirectory) {
+      this.projectDirectory = projectDirectory;
+    }
+
+    @Override
+    public UserProjectFiles loadFiles() throws InternalServerException, UserInitiatedException {
+      final UserProjectFiles projectFiles = new UserProjectFiles();
+      try (Stream<Path> files = Files.list(this.projectDirectory)) {
+        for (Path file : files.sorted().collect(Collectors.toList())) {
+          final String fileName = file.getFileName().toString();
+          if (fileName.endsWith(".java")) {
+            projectFiles.addJavaFile(new JavaProjectFile(fileName, Files.readString(file)));
+          } else {
+            projectFiles.addTextFile(new TextProjectFile(fileName, Files.readString(file)));
+          }
+        }
+      } catch (IOException e) {
+        throw new InternalServerException(InternalExceptionKey.INTERNAL_EXCEPTION, e);
+      }
+      return projectFiles;
+    }
+
+    @Override
+    public UserProjectFiles getValidation() {
+      return new UserProjectFiles();
+    }
+  }
+
+  /** Counts the messages a training session sends, rather than sending them anywhere. */
+  private static class TrainingOutputAdapter implements OutputAdapter {
+    private int messageCount;
+
+    @Override
+    public void sendMessage(ClientMessage message) {
+      this.messageCount++;
+    }
+  }
+
+  /** Discards any files a training session writes, such as theater's image and audio output. */
+  private static class TrainingContentManager implements ContentManager {
+    @Override
+    public String getAssetUrl(String filename) {
+      return null;
+    }
+
+    @Override
+    public String generateAssetUploadUrl(String filename) {
+      return new File(filename).toURI().toString();
+    }
+
+    @Override
+    public String writeToOutputFile(String filename, byte[] inputBytes, String contentType) {
+      return new File(filename).toURI().toString();
+    }
+
+    @Override
+    public void verifyAssetFilename(String filename) throws FileNotFoundException {
+      throw new FileNotFoundException(filename);
+    }
+  }
+}
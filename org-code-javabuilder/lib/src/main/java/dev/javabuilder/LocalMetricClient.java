@@ -21,4 +21,26 @@ public class LocalMetricClient extends JavabuilderSharedObject implements Metric
 
   @Override
   public void publishCleanupTime(long cleanupTime) {}
+
+  @Override
+  public void publishUserVisibleCleanupTime(long userVisibleCleanupTime) {}
+
+  @Override
+  public void publishCompileCacheHit() {}
+
+  @Override
+  public void publishCompileCacheMiss() {}
+
+  @Override
+  public void publishCompilePhaseTime(String phase, long phaseTime) {}
+
+  @Override
+  public void publishCompileLimitExceeded() {}
+
+  @Override
+  public void publishApiGatewayRequests(
+      long requestCount, long reusedConnectionCount, long retryCount) {}
+
+  @Override
+  public void publishPhaseTime(String phase, String statistic, double phaseTime) {}
 }
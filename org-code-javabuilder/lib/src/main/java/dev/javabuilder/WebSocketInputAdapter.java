@@ -1,32 +1,63 @@
 package dev.javabuilder;
 
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.code.protocol.InputAdapter;
 import org.code.protocol.InternalExceptionKey;
 import org.code.protocol.InternalServerRuntimeException;
 
-/** Intended for local testing with dashboard only. Accepts input from a WebSocket session. */
+/**
+ * Intended for local testing with dashboard only. Accepts input from a WebSocket session.
+ *
+ * <p>Messages are appended on the WebSocket container's thread and read on the thread running the
+ * user's program, so a waiting read wakes as soon as a message arrives.
+ */
 public class WebSocketInputAdapter implements InputAdapter {
-  private final Queue<String> messages;
+  // Queued by close() after any remaining messages. Compared by identity, so it cannot be confused
+  // with a message that happens to have the same contents.
+  private static final String CLOSED = new String("");
+
+  private final BlockingQueue<String> messages;
+  private final AtomicBoolean isClosed;
 
   public WebSocketInputAdapter() {
-    this.messages = new LinkedList<>();
+    this.messages = new LinkedBlockingQueue<>();
+    this.isClosed = new AtomicBoolean(false);
   }
 
+  /**
+   * Waits for the next message from the client.
+   *
+   * @throws InternalServerRuntimeException if the WebSocket has closed, or the waiting thread is
+   *     interrupted.
+   */
   @Override
   public String getNextMessage() {
-    while (messages.peek() == null) {
-      try {
-        Thread.sleep(1000);
-      } catch (InterruptedException e) {
-        throw new InternalServerRuntimeException(InternalExceptionKey.CONNECTION_TERMINATED, e);
-      }
+    final String message;
+    try {
+      message = messages.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InternalServerRuntimeException(InternalExceptionKey.CONNECTION_TERMINATED, e);
+    }
+    if (message == CLOSED) {
+      // Leave the marker in place so that any later read fails the same way.
+      messages.add(CLOSED);
+      throw new InternalServerRuntimeException(InternalExceptionKey.CONNECTION_TERMINATED);
     }
-    return messages.remove();
+    return message;
   }
 
   public void appendMessage(String message) {
     messages.add(message);
   }
+
+  /** Wakes any read waiting for a message that will now never arrive. */
+  @Override
+  public void close() {
+    if (isClosed.compareAndSet(false, true)) {
+      messages.add(CLOSED);
+    }
+  }
 }
@@ -4,6 +4,7 @@ import java.io.IOException;
 import javax.websocket.RemoteEndpoint;
 import javax.websocket.Session;
 import org.code.protocol.ClientMessage;
+import org.code.protocol.ClientMessageSerializer;
 import org.code.protocol.InternalExceptionKey;
 import org.code.protocol.InternalServerRuntimeException;
 import org.code.protocol.OutputAdapter;
@@ -13,16 +14,22 @@ import org.code.protocol.OutputAdapter;
  */
 public class WebSocketOutputAdapter implements OutputAdapter {
   private final RemoteEndpoint.Basic endpoint;
+  private final ClientMessageSerializer serializer;
 
   public WebSocketOutputAdapter(Session session) {
     this.endpoint = session.getBasicRemote();
+    this.serializer = new ClientMessageSerializer();
   }
 
   @Override
   public void sendMessage(ClientMessage message) {
     if (message.shouldAlwaysSend()) {
       try {
-        endpoint.sendText(message.getFormattedMessage());
+        final String formattedMessage;
+        synchronized (this.serializer) {
+          formattedMessage = this.serializer.serializeToString(message);
+        }
+        endpoint.sendText(formattedMessage);
       } catch (IOException e) {
         e.printStackTrace();
       } catch (IllegalStateException e) {
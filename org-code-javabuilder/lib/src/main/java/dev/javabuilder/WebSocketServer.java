@@ -99,7 +99,10 @@ public class WebSocketServer {
         new Thread(
             () -> {
               try {
-                final LocalContentManager contentManager = new LocalContentManager();
+                final LocalContentManager contentManager;
+                try (PerformanceTracker.Phase loadPhase = performanceTracker.startPhase("load")) {
+                  contentManager = new LocalContentManager();
+                }
                 codeExecutionManager =
                     new CodeExecutionManager(
                         contentManager.getProjectFileLoader(),
@@ -117,6 +120,7 @@ public class WebSocketServer {
               }
               if (codeExecutionManager != null) {
                 codeExecutionManager.shutDown();
+                codeExecutionManager.cleanUpTempDirectory();
               }
               this.finishedExecution = true;
               // Clean up session
@@ -134,6 +138,10 @@ public class WebSocketServer {
   @OnClose
   public void myOnClose() {
     LoggerUtils.logInfo("WebSocket closed.");
+    // No more input can arrive, so wake the program if it is waiting for some.
+    if (inputAdapter != null) {
+      inputAdapter.close();
+    }
     PerformanceTracker performanceTracker =
         (PerformanceTracker) JavabuilderContext.getInstance().get(PerformanceTracker.class);
     performanceTracker.logPerformance();
@@ -141,6 +149,7 @@ public class WebSocketServer {
     if (!this.finishedExecution) {
       if (codeExecutionManager != null) {
         this.codeExecutionManager.shutDown();
+        this.codeExecutionManager.cleanUpTempDirectory();
       }
       this.logger.removeHandler(this.logHandler);
     }
@@ -3,66 +3,223 @@ package org.code.javabuilder;
 import static org.code.javabuilder.InternalFacingExceptionTypes.CONNECTION_TERMINATED;
 
 import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchResult;
 import com.amazonaws.services.sqs.model.Message;
 import com.amazonaws.services.sqs.model.QueueDoesNotExistException;
 import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
-import java.security.AccessController;
-import java.security.PrivilegedAction;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import org.code.protocol.InputAdapter;
+import org.code.protocol.LoggerUtils;
 
-/** Accesses Amazon SQS to get user input for the currently running program. */
+/**
+ * Accesses Amazon SQS to get user input for the currently running program.
+ *
+ * <p>Once the program first asks for input, a receiver thread long-polls the queue and keeps a
+ * small buffer of received input, so that input the user has already sent is ready when the
+ * program asks for more. Programs that never read input never poll the queue. Received messages
+ * are deleted from the queue in batches on a separate thread, so neither the program nor the next
+ * receive waits for the deletes.
+ */
 public class AWSInputAdapter implements InputAdapter {
+  // The maximum values SQS allows
+  private static final int WAIT_TIME_SECONDS = 20;
+  private static final int MAX_MESSAGES_PER_RECEIVE = 10;
+  // Room for two full receives, so the next receive can start while the program reads the last.
+  static final int PREFETCH_CAPACITY = 2 * MAX_MESSAGES_PER_RECEIVE;
+  private static final long ACKNOWLEDGE_TIMEOUT_MS = 2000;
+  // Queued after the last message once no more input will arrive. Compared by identity, so it
+  // cannot be confused with a message that happens to have the same body.
+  private static final String END_OF_INPUT = new String("");
+
   private final AmazonSQS sqsClient;
   private final String queueUrl;
   private final String queueName;
-  private final Queue<String> messages;
+  private final BlockingQueue<String> messages;
+  // One permit for each message the buffer has room for. The receiver takes a full receive's worth
+  // before each receive, and the program returns one for each message it reads.
+  private final Semaphore bufferSpace;
+  private final Thread receiverThread;
+  private final ExecutorService acknowledger;
+  // Thrown to the program once it has read every message received before the failure.
+  private final AtomicReference<RuntimeException> failure;
+  private final AtomicBoolean isStarted;
+  private final AtomicBoolean isClosed;
 
+  /**
+   * This should be created outside of the user's program, since the receiver thread is created
+   * here and inherits the permissions of the code that creates it, even though it is only started
+   * once the program reads input.
+   */
   public AWSInputAdapter(AmazonSQS sqsClient, String queueUrl, String queueName) {
     this.sqsClient = sqsClient;
     this.queueUrl = queueUrl;
-    this.messages = new LinkedList<>();
     this.queueName = queueName;
+    this.messages = new LinkedBlockingQueue<>();
+    this.bufferSpace = new Semaphore(PREFETCH_CAPACITY);
+    this.failure = new AtomicReference<>();
+    this.isStarted = new AtomicBoolean(false);
+    this.isClosed = new AtomicBoolean(false);
+    this.acknowledger =
+        Executors.newSingleThreadExecutor(
+            runnable -> {
+              final Thread thread = new Thread(runnable, "javabuilder-input-acknowledger");
+              thread.setDaemon(true);
+              return thread;
+            });
+    this.receiverThread = new Thread(this::receiveMessages, "javabuilder-input-receiver");
+    this.receiverThread.setDaemon(true);
   }
 
   /**
-   * Attempts to access the first element in the fifo queue. If none exist, queries available input
-   * from Amazon SQS and stores each input in the `messages` fifo queue. Messages are deleted after
-   * they are retrieved. This is a blocking call.
+   * Returns the next message received from Amazon SQS, waiting for one if none has been received
+   * yet. This is a blocking call.
    *
-   * @return the first message in the fifo queue.
+   * @return the next message in the fifo queue.
+   * @throws InternalFacingRuntimeException if the queue no longer exists, which means the user's
+   *     connection has been lost, or if this adapter has been closed.
    */
   public String getNextMessage() {
-    ReceiveMessageRequest request = new ReceiveMessageRequest();
-    request.setQueueUrl(queueUrl);
-    // Sets the request timeout to its maximum value of 20 seconds
-    request.setWaitTimeSeconds(20);
-    // Sets the the number of messages to retrieve to its maximum value of 10
-    request.setMaxNumberOfMessages(10);
-    while (messages.peek() == null) {
-      try {
-        // This runs with student code on the call stack (a student reading from System.in), and
-        // the AWS SDK reads its credentials from environment variables on each request.
-        // JavabuilderSecurityPolicy denies getenv to student code, so run privileged to stop the
-        // permission check at this trusted frame.
-        AccessController.doPrivileged(
-            (PrivilegedAction<Void>)
-                () -> {
-                  List<Message> received = sqsClient.receiveMessage(request).getMessages();
-                  for (Message message : received) {
-                    this.messages.add(message.getBody());
-                    sqsClient.deleteMessage(queueUrl, message.getReceiptHandle());
-                  }
-                  return null;
-                });
-      } catch (QueueDoesNotExistException e) {
-        // if we tried to send a message and got queue does not exist, we have lost our connection
-        throw new InternalFacingRuntimeException(CONNECTION_TERMINATED, e);
+    if (!this.isClosed.get() && this.isStarted.compareAndSet(false, true)) {
+      this.receiverThread.start();
+    }
+    final String message = this.takeUninterruptibly();
+    if (message == END_OF_INPUT) {
+      // Leave the marker in place so that any later read fails the same way.
+      this.messages.add(END_OF_INPUT);
+      throw this.failure.get();
+    }
+    this.bufferSpace.release();
+    return message;
+  }
+
+  /**
+   * Stops receiving input and waits briefly for the deletes of already received messages to
+   * finish. The receiver thread may still be waiting on a long poll; it exits once that returns.
+   */
+  @Override
+  public void close() {
+    if (!this.isClosed.compareAndSet(false, true)) {
+      return;
+    }
+    this.endInput(
+        new InternalFacingRuntimeException(
+            CONNECTION_TERMINATED, new IllegalStateException("Input adapter closed")));
+    this.receiverThread.interrupt();
+    this.acknowledger.shutdown();
+    try {
+      this.acknowledger.awaitTermination(ACKNOWLEDGE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Runs on the receiver thread. No student code is on this thread's stack, so the AWS SDK can read
+   * its credentials from the environment without running privileged.
+   */
+  private void receiveMessages() {
+    final ReceiveMessageRequest request = new ReceiveMessageRequest();
+    request.setQueueUrl(this.queueUrl);
+    request.setWaitTimeSeconds(WAIT_TIME_SECONDS);
+    request.setMaxNumberOfMessages(MAX_MESSAGES_PER_RECEIVE);
+    try {
+      while (!this.isClosed.get()) {
+        // Wait for room for a full receive, so that received messages never have to wait.
+        this.bufferSpace.acquire(MAX_MESSAGES_PER_RECEIVE);
+        if (this.isClosed.get()) {
+          return;
+        }
+        final List<Message> received = this.sqsClient.receiveMessage(request).getMessages();
+        this.bufferSpace.release(MAX_MESSAGES_PER_RECEIVE - received.size());
+        if (received.isEmpty()) {
+          continue;
+        }
+        for (Message message : received) {
+          this.messages.add(message.getBody());
+        }
+        this.acknowledge(received);
+      }
+    } catch (InterruptedException e) {
+      // Closed while waiting for room in the buffer
+    } catch (QueueDoesNotExistException e) {
+      // if we tried to receive a message and got queue does not exist, we have lost our connection
+      this.endInput(new InternalFacingRuntimeException(CONNECTION_TERMINATED, e));
+    } catch (RuntimeException e) {
+      this.endInput(e);
+    }
+  }
+
+  /** Deletes received messages from the queue on the acknowledger thread. */
+  private void acknowledge(List<Message> received) {
+    final List<DeleteMessageBatchRequestEntry> entries = new ArrayList<>(received.size());
+    for (int i = 0; i < received.size(); i++) {
+      entries.add(
+          new DeleteMessageBatchRequestEntry(
+              Integer.toString(i), received.get(i).getReceiptHandle()));
+    }
+    try {
+      this.acknowledger.execute(() -> this.deleteMessages(entries));
+    } catch (RejectedExecutionException e) {
+      // Closed while receiving; the queue is deleted with the session.
+    }
+  }
+
+  private void deleteMessages(List<DeleteMessageBatchRequestEntry> entries) {
+    try {
+      final DeleteMessageBatchResult result =
+          this.sqsClient.deleteMessageBatch(this.queueUrl, entries);
+      final List<BatchResultErrorEntry> failed = result.getFailed();
+      if (failed != null && !failed.isEmpty()) {
+        LoggerUtils.logWarning(
+            "InputDeleteFailed",
+            String.format(
+                "%d of %d messages not deleted from %s: %s",
+                failed.size(), entries.size(), this.queueName, failed.get(0).getMessage()));
       }
+    } catch (RuntimeException e) {
+      // The message has already been given to the program, so a failed delete only risks the
+      // message being received again. Log it rather than ending the user's input.
+      LoggerUtils.logTrackingExceptionAsWarning(e);
+    }
+  }
+
+  /** Records why no more input will arrive, the first time only, and wakes any waiting reader. */
+  private void endInput(RuntimeException cause) {
+    if (this.failure.compareAndSet(null, cause)) {
+      this.messages.add(END_OF_INPUT);
     }
+  }
 
-    return messages.remove();
+  /**
+   * Waits for input even if this thread is interrupted, as the previous blocking receive did. The
+   * interrupt is restored afterwards.
+   */
+  private String takeUninterruptibly() {
+    boolean interrupted = false;
+    try {
+      while (true) {
+        try {
+          return this.messages.take();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
   }
 }
@@ -1,71 +1,58 @@
 package org.code.javabuilder;
 
 import com.amazonaws.services.cloudwatch.AmazonCloudWatch;
-import com.amazonaws.services.cloudwatch.AmazonCloudWatchClientBuilder;
 import com.amazonaws.services.cloudwatch.model.*;
-import org.code.protocol.JavabuilderSharedObject;
-import org.code.protocol.MetricClient;
+import java.util.ArrayList;
+import java.util.List;
 
-// Metric Client which published metrics to AWS CloudWatch.
+// Metric Client which publishes metrics to AWS CloudWatch. Metrics are held until the client is
+// flushed, then sent with as few PutMetricData requests as possible, with each metric's values
+// combined into one statistic set.
 // Requires cloudwatch:PutMetricData permission on the Lambda.
-public class AWSMetricClient extends JavabuilderSharedObject implements MetricClient {
+public class AWSMetricClient extends BufferedMetricClient {
+  // The most metric data CloudWatch accepts in one PutMetricData request
+  static final int MAX_DATA_PER_REQUEST = 1000;
+
   private final AmazonCloudWatch cloudWatchClient;
   private final Dimension functionNameDimension;
 
-  private static final String NAMESPACE = "Javabuilder";
-
-  public AWSMetricClient(String functionName) {
-    this.cloudWatchClient = AmazonCloudWatchClientBuilder.defaultClient();
+  public AWSMetricClient(String functionName, AmazonCloudWatch cloudWatchClient) {
+    super(functionName);
+    this.cloudWatchClient = cloudWatchClient;
     // this will split out metrics by function name in CloudWatch
-    this.functionNameDimension = new Dimension().withName("functionName").withValue(functionName);
-  }
-
-  @Override
-  public void publishSevereError() {
-    this.publishCountMetric("SevereError", 1.0);
-  }
-
-  @Override
-  public void publishColdBootTime(long coldBootTime) {
-    this.publishMillisecondMetric("ColdBootTime", (double) coldBootTime);
-  }
-
-  @Override
-  public void publishInitializationTime(long initializationTime) {
-    this.publishMillisecondMetric("InitializationTime", (double) initializationTime);
-  }
-
-  @Override
-  public void publishTransitionTime(long transitionTime) {
-    this.publishMillisecondMetric("TransitionTime", (double) transitionTime);
+    this.functionNameDimension =
+        new Dimension().withName(FUNCTION_NAME_DIMENSION).withValue(functionName);
   }
 
   @Override
-  public void publishCleanupTime(long cleanupTime) {
-    this.publishMillisecondMetric("CleanupTime", (double) cleanupTime);
-  }
-
-  private void publishMillisecondMetric(String metricName, double milliseconds) {
-    MetricDatum metricDatum =
-        new MetricDatum()
-            .withMetricName(metricName)
-            .withUnit(StandardUnit.Milliseconds)
-            .withValue(milliseconds)
-            .withDimensions(this.functionNameDimension);
-    PutMetricDataRequest request =
-        new PutMetricDataRequest().withNamespace(NAMESPACE).withMetricData(metricDatum);
-    this.cloudWatchClient.putMetricData(request);
-  }
-
-  private void publishCountMetric(String metricName, double count) {
-    MetricDatum metricDatum =
-        new MetricDatum()
-            .withMetricName(metricName)
-            .withUnit(StandardUnit.Count)
-            .withValue(count)
-            .withDimensions(this.functionNameDimension);
-    PutMetricDataRequest request =
-        new PutMetricDataRequest().withNamespace(NAMESPACE).withMetricData(metricDatum);
-    this.cloudWatchClient.putMetricData(request);
+  protected void send(List<BufferedMetric> metrics) {
+    final List<MetricDatum> metricData = new ArrayList<>(metrics.size());
+    for (BufferedMetric metric : metrics) {
+      final MetricDatum metricDatum =
+          new MetricDatum()
+              .withMetricName(metric.getName())
+              .withUnit(metric.getUnit())
+              .withDimensions(this.functionNameDimension);
+      if (metric.getSampleCount() == 1) {
+        metricDatum.withValue(metric.getValue(0));
+      } else {
+        metricDatum.withStatisticValues(
+            new StatisticSet()
+                .withSampleCount((double) metric.getSampleCount())
+                .withSum(metric.getSum())
+                .withMinimum(metric.getMinimum())
+                .withMaximum(metric.getMaximum()));
+      }
+      metricData.add(metricDatum);
+    }
+
+    for (int start = 0; start < metricData.size(); start += MAX_DATA_PER_REQUEST) {
+      final int end = Math.min(start + MAX_DATA_PER_REQUEST, metricData.size());
+      PutMetricDataRequest request =
+          new PutMetricDataRequest()
+              .withNamespace(NAMESPACE)
+              .withMetricData(metricData.subList(start, end));
+      this.cloudWatchClient.putMetricData(request);
+    }
   }
 }
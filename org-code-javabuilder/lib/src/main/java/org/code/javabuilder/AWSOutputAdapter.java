@@ -10,14 +10,28 @@ import java.security.AccessController;
 import java.security.PrivilegedAction;
 import org.code.protocol.*;
 
-/** Sends messages to Amazon API Gateway from the user's program. */
+/**
+ * Sends messages to Amazon API Gateway from the user's program.
+ *
+ * <p>API Gateway limits a WebSocket frame to 32 KB, so console output that would encode to more
+ * than that is split into several SYSTEM_OUT messages, which the client appends to the terminal in
+ * order just as it would a single message.
+ */
 public class AWSOutputAdapter implements OutputAdapter {
+  // Room for the JSON around a chunk of console output within API Gateway's 32 KB frame limit.
+  private static final int MAX_CHUNK_VALUE_BYTES = 31 * 1024;
+  // A char takes at most 6 bytes once escaped as JSON, as a control char does, so a value this long
+  // always fits in one chunk.
+  static final int MAX_UNCHUNKED_VALUE_LENGTH = MAX_CHUNK_VALUE_BYTES / 6;
+
   private final String connectionId;
   private final AmazonApiGatewayManagementApi api;
+  private final ClientMessageSerializer serializer;
 
   public AWSOutputAdapter(String connectionId, AmazonApiGatewayManagementApi api) {
     this.connectionId = connectionId;
     this.api = api;
+    this.serializer = new ClientMessageSerializer();
   }
 
   /**
@@ -27,14 +41,40 @@ public class AWSOutputAdapter implements OutputAdapter {
    */
   @Override
   public void sendMessage(ClientMessage message) {
-    if (message.shouldAlwaysSend()) {
-      PostToConnectionRequest post = new PostToConnectionRequest();
-      post.setConnectionId(connectionId);
-      post.setData(ByteBuffer.wrap((message.getFormattedMessage()).getBytes()));
-      this.sendMessageHelper(post);
+    if (!message.shouldAlwaysSend()) {
+      return;
+    }
+    // The serializer reuses its buffer, so each message must be posted before the next one is
+    // serialized.
+    synchronized (this.serializer) {
+      final String value = message.getValue();
+      // Only a long value needs to be measured.
+      if (message.getType() != ClientMessageType.SYSTEM_OUT
+          || value == null
+          || value.length() <= MAX_UNCHUNKED_VALUE_LENGTH) {
+        this.post(message);
+        return;
+      }
+      int start = 0;
+      while (start < value.length()) {
+        final int end = ClientMessageSerializer.findChunkEnd(value, start, MAX_CHUNK_VALUE_BYTES);
+        this.post(
+            start == 0 && end == value.length()
+                ? message
+                : new SystemOutMessage(value.substring(start, end)));
+        start = end;
+      }
     }
   }
 
+  /** Must be called while holding the serializer's lock. */
+  private void post(ClientMessage message) {
+    PostToConnectionRequest post = new PostToConnectionRequest();
+    post.setConnectionId(connectionId);
+    post.setData(this.serializer.serialize(message));
+    this.sendMessageHelper(post);
+  }
+
   public void sendDebuggingMessage(ClientMessage message) {
     if (message.shouldAlwaysSend()) {
       String time = String.valueOf(java.time.Clock.systemUTC().instant());
@@ -9,6 +9,7 @@ import java.util.logging.Handler;
 import java.util.logging.Logger;
 import org.code.protocol.JavabuilderContext;
 import org.code.protocol.LoggerUtils;
+import org.code.protocol.MetricClient;
 
 public class AWSSystemExitHelper implements SystemExitHelper {
   private final String connectionId;
@@ -25,6 +26,12 @@ public class AWSSystemExitHelper implements SystemExitHelper {
         (PerformanceTracker) JavabuilderContext.getInstance().get(PerformanceTracker.class);
     performanceTracker.trackInstanceEnd();
     performanceTracker.logPerformance();
+    // Send held metrics now, since the session's shared objects will not be destroyed.
+    final MetricClient metricClient =
+        (MetricClient) JavabuilderContext.getInstance().get(MetricClient.class);
+    if (metricClient != null) {
+      metricClient.flush();
+    }
     this.cleanUpResources();
     System.exit(status);
   }
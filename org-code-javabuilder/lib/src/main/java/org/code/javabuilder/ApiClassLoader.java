@@ -0,0 +1,32 @@
+package org.code.javabuilder;
+
+import java.net.URLClassLoader;
+import org.code.javabuilder.util.JarUtils;
+
+/**
+ * Loads the user-facing api jars once for the entire container. Every run's {@link
+ * UserClassLoader} delegates to this loader for approved api classes, so classes like the theater
+ * and media packages are read, defined and verified once per container rather than on every run.
+ * Only the student's own classes (and the few api classes that keep per-run state, see {@link
+ * JarUtils#getPerRunJarURLs()}) are defined by each run's loader.
+ *
+ * <p>This loader is never closed, since it is reused by every run on this container.
+ */
+public class ApiClassLoader extends URLClassLoader {
+  private static ApiClassLoader apiClassLoaderInstance;
+
+  static {
+    ClassLoader.registerAsParallelCapable();
+  }
+
+  private ApiClassLoader() {
+    super(JarUtils.getSharedJarURLs(), JavaRunner.class.getClassLoader());
+  }
+
+  public static synchronized ApiClassLoader getInstance() {
+    if (ApiClassLoader.apiClassLoaderInstance == null) {
+      ApiClassLoader.apiClassLoaderInstance = new ApiClassLoader();
+    }
+    return ApiClassLoader.apiClassLoaderInstance;
+  }
+}
@@ -0,0 +1,142 @@
+package org.code.javabuilder;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.client.builder.AwsClientBuilder;
+import com.amazonaws.metrics.RequestMetricCollector;
+import com.amazonaws.retry.PredefinedRetryPolicies;
+import com.amazonaws.retry.RetryPolicy;
+import com.amazonaws.services.apigatewaymanagementapi.AmazonApiGatewayManagementApi;
+import com.amazonaws.services.apigatewaymanagementapi.AmazonApiGatewayManagementApiClientBuilder;
+import com.amazonaws.util.AWSRequestMetrics;
+import com.amazonaws.util.TimingInfo;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.code.protocol.MetricClient;
+
+/**
+ * Builds the API Gateway management client that sends output to the user, configured for many
+ * small, latency-sensitive posts rather than the SDK's general-purpose defaults:
+ *
+ * <ul>
+ *   <li>A small connection pool with TCP keep-alive, so the output sender thread keeps reusing one
+ *       warm connection instead of opening a new TLS connection after each idle period.
+ *   <li>Short connect and socket timeouts, so a stalled connection fails fast and is retried.
+ *   <li>At most {@link #MAX_RETRIES_PER_REQUEST} retries per request, with full jitter on a short
+ *       backoff, and at most {@link #MAX_RETRIES_PER_SESSION} retries per session. A degraded
+ *       endpoint then costs a session a bounded amount of time rather than the default backoff on
+ *       every message.
+ * </ul>
+ *
+ * <p>The factory counts requests, reused connections and retries across every client it builds,
+ * and publishes them once per session through {@link #publishSessionStats(MetricClient)}.
+ */
+public class ApiGatewayClientFactory {
+  private static final String REGION = "us-east-1";
+  // One output sender thread per session, plus the occasional status, connection check or delete
+  // from the request and timeout threads.
+  private static final int MAX_CONNECTIONS = 4;
+  private static final int CONNECTION_TIMEOUT_MS = 1000;
+  private static final int SOCKET_TIMEOUT_MS = 5000;
+  // Bounds a request including its retries.
+  private static final int CLIENT_EXECUTION_TIMEOUT_MS = 10_000;
+  private static final long CONNECTION_MAX_IDLE_MS = 60_000;
+  static final int MAX_RETRIES_PER_REQUEST = 2;
+  static final int MAX_RETRIES_PER_SESSION = 20;
+  private static final long BASE_RETRY_DELAY_MS = 25;
+  private static final long MAX_RETRY_DELAY_MS = 400;
+
+  private final String endpoint;
+  private final LongAdder requestCount;
+  private final LongAdder reusedConnectionCount;
+  private final LongAdder retryCount;
+  private final AtomicInteger sessionRetriesRemaining;
+
+  public ApiGatewayClientFactory(String endpoint) {
+    this.endpoint = endpoint;
+    this.requestCount = new LongAdder();
+    this.reusedConnectionCount = new LongAdder();
+    this.retryCount = new LongAdder();
+    this.sessionRetriesRemaining = new AtomicInteger(MAX_RETRIES_PER_SESSION);
+  }
+
+  public AmazonApiGatewayManagementApi create() {
+    final ClientConfiguration clientConfiguration =
+        new ClientConfiguration()
+            .withMaxConnections(MAX_CONNECTIONS)
+            .withTcpKeepAlive(true)
+            .withConnectionMaxIdleMillis(CONNECTION_MAX_IDLE_MS)
+            .withConnectionTimeout(CONNECTION_TIMEOUT_MS)
+            .withSocketTimeout(SOCKET_TIMEOUT_MS)
+            .withClientExecutionTimeout(CLIENT_EXECUTION_TIMEOUT_MS)
+            .withRetryPolicy(
+                new RetryPolicy(
+                    this::shouldRetry,
+                    ApiGatewayClientFactory::getRetryDelay,
+                    MAX_RETRIES_PER_REQUEST,
+                    false));
+    return AmazonApiGatewayManagementApiClientBuilder.standard()
+        .withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration(endpoint, REGION))
+        .withClientConfiguration(clientConfiguration)
+        .withMetricsCollector(new ConnectionMetricCollector())
+        .build();
+  }
+
+  /** Clears the counts and refills the retry budget. Call at the start of each session. */
+  public void startSession() {
+    this.requestCount.reset();
+    this.reusedConnectionCount.reset();
+    this.retryCount.reset();
+    this.sessionRetriesRemaining.set(MAX_RETRIES_PER_SESSION);
+  }
+
+  /** Publishes the counts collected since {@link #startSession()}. */
+  public void publishSessionStats(MetricClient metricClient) {
+    metricClient.publishApiGatewayRequests(
+        this.requestCount.sum(), this.reusedConnectionCount.sum(), this.retryCount.sum());
+  }
+
+  // Visible for testing
+  boolean shouldRetry(
+      AmazonWebServiceRequest request, AmazonClientException exception, int retriesAttempted) {
+    // The default condition retries throttling, 5xx responses and I/O errors, but not client
+    // errors such as a GoneException.
+    if (!PredefinedRetryPolicies.DEFAULT_RETRY_CONDITION.shouldRetry(
+        request, exception, retriesAttempted)) {
+      return false;
+    }
+    if (this.sessionRetriesRemaining.getAndDecrement() <= 0) {
+      return false;
+    }
+    this.retryCount.increment();
+    return true;
+  }
+
+  /** Full jitter: a random delay up to an exponentially growing cap. */
+  private static long getRetryDelay(
+      AmazonWebServiceRequest request, AmazonClientException exception, int retriesAttempted) {
+    final long cap = Math.min(MAX_RETRY_DELAY_MS, BASE_RETRY_DELAY_MS << retriesAttempted);
+    return ThreadLocalRandom.current().nextLong(cap + 1);
+  }
+
+  /**
+   * Counts each request, and whether the connection pool had an idle connection to reuse when the
+   * request was sent. The SDK only records pool statistics when a collector is set.
+   */
+  private class ConnectionMetricCollector extends RequestMetricCollector {
+    @Override
+    public void collectMetrics(Request<?> request, Response<?> response) {
+      requestCount.increment();
+      final TimingInfo timingInfo = request.getAWSRequestMetrics().getTimingInfo();
+      final Number available =
+          timingInfo.getCounter(AWSRequestMetrics.Field.HttpClientPoolAvailableCount.name());
+      if (available != null && available.intValue() > 0) {
+        reusedConnectionCount.increment();
+      }
+    }
+  }
+}
@@ -0,0 +1,273 @@
+package org.code.javabuilder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.code.protocol.ClientMessage;
+import org.code.protocol.ClientMessageType;
+import org.code.protocol.OutputAdapter;
+
+/**
+ * Sends messages from the user's program on a dedicated thread, so the program does not wait for a
+ * network round trip on every println or neighborhood/theater call. Messages are sent one at a time
+ * in the order they were given.
+ *
+ * <p>The queue of unsent messages is bounded. Once it is full, sendMessage blocks until the sender
+ * thread makes room, so a program that prints faster than we can send does not use up the
+ * container's memory.
+ *
+ * <p>Consecutive console output is coalesced: while one message is being sent, or for a short
+ * window after a console message is taken from the queue, further console messages are appended
+ * to it and sent as a single {@link SystemOutMessage}. The client appends each SYSTEM_OUT value to
+ * the terminal as it arrives, so this looks the same to the user as sending each one separately. A
+ * coalesced message is kept well under API Gateway's frame size limit, and {@link #flush()} sends
+ * whatever is being coalesced without waiting out the window.
+ *
+ * <p>If sending a message fails (for example, because the user closed their connection), the
+ * exception is thrown from the next call to sendMessage, flush or close, whichever comes first, so
+ * a failure on the program's last messages still reaches the caller that ends the session. The
+ * connection cannot be used after a failure, so messages still queued behind it are dropped rather
+ * than sent.
+ */
+public class AsyncOutputAdapter implements OutputAdapter {
+  private static final int DEFAULT_CAPACITY = 1000;
+  private static final long DEFAULT_COALESCE_WINDOW_MILLIS = 5;
+  // API Gateway limits WebSocket frames to 32 KB. Coalesced output is kept short enough to fit in
+  // one frame however its chars are escaped.
+  private static final int MAX_COALESCED_LENGTH = AWSOutputAdapter.MAX_UNCHUNKED_VALUE_LENGTH;
+  // Queued by close() to stop the sender thread once everything before it has been sent.
+  private static final ClientMessage CLOSE = new ControlMessage();
+  // Queued by flush() to end the coalescing window early.
+  private static final ClientMessage FLUSH = new ControlMessage();
+
+  private final OutputAdapter delegate;
+  private final BlockingQueue<ClientMessage> queue;
+  private final long coalesceWindowNanos;
+  private final Thread senderThread;
+  // The failure not yet thrown to a caller.
+  private final AtomicReference<Throwable> sendFailure;
+  // Held while queueing a message or closing, so nothing can be queued after the close message.
+  private final Object queueLock;
+  // Guards the message counts, which flush() compares to know when the queue has drained.
+  private final Object progressLock;
+  private long queuedCount;
+  private long handledCount;
+  private volatile boolean isClosed;
+  // Set by the sender thread once a message fails to send.
+  private volatile boolean hasSendFailed;
+
+  public AsyncOutputAdapter(OutputAdapter delegate) {
+    this(delegate, DEFAULT_CAPACITY, DEFAULT_COALESCE_WINDOW_MILLIS);
+  }
+
+  /**
+   * Starts the sender thread. This should be created outside of the user's program, since the
+   * thread inherits the permissions of the code that creates it.
+   *
+   * @param delegate the adapter that sends each message
+   * @param capacity the number of unsent messages to hold before sendMessage blocks
+   * @param coalesceWindowMillis how long to wait for more console output to add to a message
+   */
+  public AsyncOutputAdapter(OutputAdapter delegate, int capacity, long coalesceWindowMillis) {
+    this.delegate = delegate;
+    this.queue = new ArrayBlockingQueue<>(capacity);
+    this.coalesceWindowNanos = TimeUnit.MILLISECONDS.toNanos(coalesceWindowMillis);
+    this.sendFailure = new AtomicReference<>();
+    this.queueLock = new Object();
+    this.progressLock = new Object();
+    this.senderThread = new Thread(this::sendQueuedMessages, "javabuilder-output-sender");
+    this.senderThread.setDaemon(true);
+    this.senderThread.start();
+  }
+
+  /**
+   * Queues a message to be sent, blocking while the queue is full. Once the adapter is closed,
+   * messages are sent synchronously instead.
+   *
+   * @throws RuntimeException if a previously queued message could not be sent
+   */
+  @Override
+  public void sendMessage(ClientMessage message) {
+    this.throwIfSendFailed();
+    synchronized (this.queueLock) {
+      if (!this.isClosed) {
+        this.queue(message);
+        return;
+      }
+    }
+    this.delegate.sendMessage(message);
+  }
+
+  /**
+   * Blocks until every message queued so far has been sent, failed to send or been dropped after an
+   * earlier failure. Returns early if this thread is interrupted.
+   *
+   * @throws RuntimeException if a queued message could not be sent
+   */
+  @Override
+  public void flush() {
+    synchronized (this.queueLock) {
+      if (!this.isClosed) {
+        this.queue(FLUSH);
+      }
+    }
+    synchronized (this.progressLock) {
+      final long target = this.queuedCount;
+      while (this.handledCount < target) {
+        try {
+          this.progressLock.wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+    }
+    this.throwIfSendFailed();
+  }
+
+  /**
+   * Sends every queued message and stops the sender thread. Safe to call more than once.
+   *
+   * @throws RuntimeException if a queued message could not be sent
+   */
+  @Override
+  public void close() {
+    synchronized (this.queueLock) {
+      if (this.isClosed) {
+        this.throwIfSendFailed();
+        return;
+      }
+      this.isClosed = true;
+      this.putUninterruptibly(CLOSE);
+    }
+    this.flush();
+  }
+
+  /** Must be called while holding queueLock, so queuedCount matches the order of the queue. */
+  private void queue(ClientMessage message) {
+    synchronized (this.progressLock) {
+      this.queuedCount++;
+    }
+    this.putUninterruptibly(message);
+  }
+
+  /**
+   * Waits for room in the queue even if this thread is interrupted, since dropping the user's
+   * output would be worse than delaying the interrupt. The interrupt is restored afterwards.
+   */
+  private void putUninterruptibly(ClientMessage message) {
+    boolean interrupted = false;
+    while (true) {
+      try {
+        this.queue.put(message);
+        break;
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void throwIfSendFailed() {
+    final Throwable failure = this.sendFailure.getAndSet(null);
+    if (failure instanceof RuntimeException) {
+      throw (RuntimeException) failure;
+    }
+    if (failure instanceof Error) {
+      throw (Error) failure;
+    }
+  }
+
+  /** Runs on the sender thread until the close message is taken from the queue. */
+  private void sendQueuedMessages() {
+    ClientMessage next = null;
+    while (true) {
+      final ClientMessage message = next != null ? next : this.takeUninterruptibly();
+      next = null;
+      if (message == CLOSE) {
+        return;
+      }
+      if (message == FLUSH) {
+        this.markHandled(1);
+      } else if (message.getType() == ClientMessageType.SYSTEM_OUT) {
+        // Append console output queued within the window. The first message that cannot be
+        // appended ends the window and is handled next.
+        final StringBuilder value = new StringBuilder(message.getValue());
+        int count = 1;
+        final long deadline = System.nanoTime() + this.coalesceWindowNanos;
+        while (true) {
+          final ClientMessage candidate = this.pollUntil(deadline);
+          if (candidate == null) {
+            break;
+          }
+          if (candidate.getType() != ClientMessageType.SYSTEM_OUT
+              || value.length() + candidate.getValue().length() > MAX_COALESCED_LENGTH) {
+            next = candidate;
+            break;
+          }
+          value.append(candidate.getValue());
+          count++;
+        }
+        this.send(count == 1 ? message : new SystemOutMessage(value.toString()), count);
+      } else {
+        this.send(message, 1);
+      }
+    }
+  }
+
+  /**
+   * Sends one message standing in for count queued messages, and records any failure. Once a
+   * message has failed to send, the rest are dropped.
+   */
+  private void send(ClientMessage message, int count) {
+    if (this.hasSendFailed) {
+      this.markHandled(count);
+      return;
+    }
+    try {
+      this.delegate.sendMessage(message);
+    } catch (RuntimeException | Error e) {
+      // Keep the failure until a caller sees it.
+      this.hasSendFailed = true;
+      this.sendFailure.set(e);
+    } finally {
+      this.markHandled(count);
+    }
+  }
+
+  private void markHandled(int count) {
+    synchronized (this.progressLock) {
+      this.handledCount += count;
+      this.progressLock.notifyAll();
+    }
+  }
+
+  private ClientMessage takeUninterruptibly() {
+    while (true) {
+      try {
+        return this.queue.take();
+      } catch (InterruptedException e) {
+        // Nothing interrupts this thread; keep waiting for the close message.
+      }
+    }
+  }
+
+  /** @return the next queued message, or null if there is none by the deadline */
+  private ClientMessage pollUntil(long deadline) {
+    try {
+      return this.queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      return null;
+    }
+  }
+
+  /** Marks the queue for the sender thread. Never sent. */
+  private static class ControlMessage extends ClientMessage {
+    private ControlMessage() {
+      super(ClientMessageType.STATUS, "");
+    }
+  }
+}
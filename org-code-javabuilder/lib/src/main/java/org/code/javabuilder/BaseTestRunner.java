@@ -57,9 +57,12 @@ public class BaseTestRunner implements CodeRunner {
     try {
       // Search all project files for tests
       final List<ClassSelector> classSelectors = new ArrayList<>();
-      for (JavaProjectFile file : this.files) {
-        classSelectors.add(
-            DiscoverySelectors.selectClass(urlClassLoader.loadClass(file.getClassName())));
+      try (PerformanceTracker.Phase classLoadPhase =
+          PerformanceTracker.startSessionPhase("classload")) {
+        for (JavaProjectFile file : this.files) {
+          classSelectors.add(
+              DiscoverySelectors.selectClass(urlClassLoader.loadClass(file.getClassName())));
+        }
       }
       final LauncherDiscoveryRequest request =
           LauncherDiscoveryRequestBuilder.request().selectors(classSelectors).build();
@@ -0,0 +1,62 @@
+package org.code.javabuilder;
+
+import com.amazonaws.services.cloudwatch.model.StandardUnit;
+import java.util.Arrays;
+
+/** The values recorded for one metric since a {@link BufferedMetricClient} was last flushed. */
+class BufferedMetric {
+  private final String name;
+  private final StandardUnit unit;
+  private double[] values;
+  private int sampleCount;
+  private double sum;
+  private double minimum;
+  private double maximum;
+
+  BufferedMetric(String name, StandardUnit unit) {
+    this.name = name;
+    this.unit = unit;
+    this.values = new double[4];
+    this.minimum = Double.POSITIVE_INFINITY;
+    this.maximum = Double.NEGATIVE_INFINITY;
+  }
+
+  void add(double value) {
+    if (this.sampleCount == this.values.length) {
+      this.values = Arrays.copyOf(this.values, this.values.length * 2);
+    }
+    this.values[this.sampleCount++] = value;
+    this.sum += value;
+    this.minimum = Math.min(this.minimum, value);
+    this.maximum = Math.max(this.maximum, value);
+  }
+
+  String getName() {
+    return this.name;
+  }
+
+  StandardUnit getUnit() {
+    return this.unit;
+  }
+
+  int getSampleCount() {
+    return this.sampleCount;
+  }
+
+  double getSum() {
+    return this.sum;
+  }
+
+  double getMinimum() {
+    return this.minimum;
+  }
+
+  double getMaximum() {
+    return this.maximum;
+  }
+
+  /** @return the value recorded at the given index, in the order values were added */
+  double getValue(int index) {
+    return this.values[index];
+  }
+}
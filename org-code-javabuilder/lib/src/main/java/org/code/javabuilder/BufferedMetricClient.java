@@ -0,0 +1,143 @@
+package org.code.javabuilder;
+
+import com.amazonaws.services.cloudwatch.model.StandardUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.code.protocol.JavabuilderSharedObject;
+import org.code.protocol.LoggerUtils;
+import org.code.protocol.MetricClient;
+
+/**
+ * Metric Client which holds metrics in memory instead of sending each one as it is published, so
+ * that publishing a metric never waits on the network. Values are grouped by metric and sent
+ * together when the client is flushed, which happens when the session's shared objects are
+ * destroyed. Subclasses decide how the grouped values are sent.
+ *
+ * <p>Every metric is published with the same dimensions, so grouping by metric name is the same as
+ * grouping by metric and dimension.
+ */
+public abstract class BufferedMetricClient extends JavabuilderSharedObject implements MetricClient {
+  protected static final String NAMESPACE = "Javabuilder";
+  protected static final String FUNCTION_NAME_DIMENSION = "functionName";
+
+  protected final String functionName;
+  // Guarded by this
+  private Map<String, BufferedMetric> metrics;
+
+  protected BufferedMetricClient(String functionName) {
+    this.functionName = functionName;
+    this.metrics = new LinkedHashMap<>();
+  }
+
+  @Override
+  public void publishSevereError() {
+    this.record("SevereError", StandardUnit.Count, 1.0);
+  }
+
+  @Override
+  public void publishColdBootTime(long coldBootTime) {
+    this.record("ColdBootTime", StandardUnit.Milliseconds, coldBootTime);
+  }
+
+  @Override
+  public void publishInitializationTime(long initializationTime) {
+    this.record("InitializationTime", StandardUnit.Milliseconds, initializationTime);
+  }
+
+  @Override
+  public void publishTransitionTime(long transitionTime) {
+    this.record("TransitionTime", StandardUnit.Milliseconds, transitionTime);
+  }
+
+  @Override
+  public void publishCleanupTime(long cleanupTime) {
+    this.record("CleanupTime", StandardUnit.Milliseconds, cleanupTime);
+  }
+
+  @Override
+  public void publishUserVisibleCleanupTime(long userVisibleCleanupTime) {
+    this.record("UserVisibleCleanupTime", StandardUnit.Milliseconds, userVisibleCleanupTime);
+  }
+
+  @Override
+  public void publishCompileCacheHit() {
+    this.record("CompileCacheHit", StandardUnit.Count, 1.0);
+  }
+
+  @Override
+  public void publishCompileCacheMiss() {
+    this.record("CompileCacheMiss", StandardUnit.Count, 1.0);
+  }
+
+  @Override
+  public void publishCompilePhaseTime(String phase, long phaseTime) {
+    // For example, "CompileAnalyzeTime" for the "analyze" phase
+    this.record(
+        "Compile" + phase.substring(0, 1).toUpperCase() + phase.substring(1) + "Time",
+        StandardUnit.Milliseconds,
+        phaseTime);
+  }
+
+  @Override
+  public void publishCompileLimitExceeded() {
+    this.record("CompileLimitExceeded", StandardUnit.Count, 1.0);
+  }
+
+  @Override
+  public void publishApiGatewayRequests(
+      long requestCount, long reusedConnectionCount, long retryCount) {
+    this.record("ApiGatewayRequests", StandardUnit.Count, requestCount);
+    this.record("ApiGatewayReusedConnections", StandardUnit.Count, reusedConnectionCount);
+    this.record("ApiGatewayRetries", StandardUnit.Count, retryCount);
+  }
+
+  @Override
+  public void publishPhaseTime(String phase, String statistic, double phaseTime) {
+    // For example, "PhaseExecuteClassloadP95" for the p95 of the "execute.classload" phase
+    final StringBuilder metricName = new StringBuilder("Phase");
+    for (String part : phase.split("\\.")) {
+      metricName.append(capitalize(part));
+    }
+    metricName.append(capitalize(statistic));
+    this.record(metricName.toString(), StandardUnit.Milliseconds, phaseTime);
+  }
+
+  /**
+   * Sends every metric recorded since the last flush. A failure to send is logged rather than
+   * thrown, since metrics are never worth failing a session over.
+   */
+  @Override
+  public void flush() {
+    final List<BufferedMetric> toSend;
+    synchronized (this) {
+      if (this.metrics.isEmpty()) {
+        return;
+      }
+      toSend = new ArrayList<>(this.metrics.values());
+      this.metrics = new LinkedHashMap<>();
+    }
+    try {
+      this.send(toSend);
+    } catch (RuntimeException e) {
+      LoggerUtils.logTrackingExceptionAsWarning(e);
+    }
+  }
+
+  @Override
+  public void destroy() {
+    this.flush();
+  }
+
+  /** Sends metrics recorded since the last flush. There is at least one metric. */
+  protected abstract void send(List<BufferedMetric> metrics);
+
+  private static String capitalize(String word) {
+    return word.isEmpty() ? word : word.substring(0, 1).toUpperCase() + word.substring(1);
+  }
+
+  private synchronized void record(String metricName, StandardUnit unit, double value) {
+    this.metrics.computeIfAbsent(metricName, name -> new BufferedMetric(name, unit)).add(value);
+  }
+}
@@ -0,0 +1,141 @@
+package org.code.javabuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import org.code.javabuilder.util.JarUtils;
+import org.code.protocol.InternalExceptionKey;
+
+/**
+ * The Java compiler and file manager we want to use across multiple invocations of Javabuilder.
+ * The file manager is configured once with the user-facing api jars as its classpath, so javac
+ * opens and indexes those jars (and the JDK modules) once per container rather than on every
+ * compile. Each compilation wraps the shared file manager in its own {@link InMemoryFileManager},
+ * so only the sources and class output differ between runs.
+ */
+public class CachedCompiler {
+  private static final String WARM_UP_CLASS_NAME = "JavabuilderWarmUp";
+  private static final String WARM_UP_SOURCE =
+      "import org.code.lang.System;\n"
+          + "import java.util.ArrayList;\n"
+          + "public class JavabuilderWarmUp {\n"
+          + "  public static void main(String[] args) {\n"
+          + "    ArrayList<String> words = new ArrayList<>();\n"
+          + "    words.add(\"warm\");\n"
+          + "    System.out.println(words.get(0) + words.size());\n"
+          + "  }\n"
+          + "}\n";
+
+  private static CachedCompiler cachedCompilerInstance;
+  private final JavaCompiler compiler;
+  private final StandardJavaFileManager fileManager;
+  // File managers for compilations that run in parallel, since a file manager is not thread-safe.
+  private final Queue<StandardJavaFileManager> idleFileManagers;
+  private ForkJoinPool compilePool;
+
+  private CachedCompiler() throws InternalServerException {
+    this.compiler = ToolProvider.getSystemJavaCompiler();
+    this.fileManager = this.createFileManager();
+    this.idleFileManagers = new ConcurrentLinkedQueue<>();
+  }
+
+  public static synchronized CachedCompiler getInstance() throws InternalServerException {
+    if (CachedCompiler.cachedCompilerInstance == null) {
+      CachedCompiler.cachedCompilerInstance = new CachedCompiler();
+    }
+    return CachedCompiler.cachedCompilerInstance;
+  }
+
+  public JavaCompiler getCompiler() {
+    return this.compiler;
+  }
+
+  /**
+   * @return the shared file manager. This must never be closed, since it is reused by every
+   *     compilation on this container.
+   */
+  public StandardJavaFileManager getFileManager() {
+    return this.fileManager;
+  }
+
+  /**
+   * Borrows a file manager configured like the shared one, for a compilation that runs at the same
+   * time as others. Each is created on first use and then kept for the life of the container.
+   * Return it with {@link #releaseFileManager} when the compilation is done.
+   */
+  public StandardJavaFileManager acquireFileManager() throws InternalServerException {
+    final StandardJavaFileManager idleFileManager = this.idleFileManagers.poll();
+    return idleFileManager != null ? idleFileManager : this.createFileManager();
+  }
+
+  public void releaseFileManager(StandardJavaFileManager fileManager) {
+    this.idleFileManagers.offer(fileManager);
+  }
+
+  /**
+   * @return a pool for compiling in parallel, with one thread per available processor. The pool's
+   *     threads are created like any other thread, so they get the permissions of the code that
+   *     starts them. ForkJoinPool's default threads are given almost no permissions, and javac
+   *     cannot read the JDK or the api jars on them once the SecurityManager is installed.
+   */
+  public synchronized ForkJoinPool getCompilePool() {
+    if (this.compilePool == null) {
+      this.compilePool =
+          new ForkJoinPool(
+              Runtime.getRuntime().availableProcessors(), CompileThread::new, null, false);
+    }
+    return this.compilePool;
+  }
+
+  /**
+   * Compiles a small program against the api jars and discards the result. This loads javac's
+   * classes, indexes the classpath and gives the JIT a head start, so the first student on a
+   * container does not pay for it.
+   */
+  public void warmUp() {
+    final InMemoryFileManager warmUpFileManager = new InMemoryFileManager(this.fileManager);
+    this.compiler
+        .getTask(
+            null,
+            warmUpFileManager,
+            new DiagnosticCollector<JavaFileObject>(),
+            null,
+            null,
+            List.of(new JavaSourceFromString(WARM_UP_CLASS_NAME, WARM_UP_SOURCE)))
+        .call();
+  }
+
+  private StandardJavaFileManager createFileManager() throws InternalServerException {
+    final StandardJavaFileManager standardFileManager =
+        this.compiler.getStandardFileManager(null, null, null);
+    // Include the user-facing api jars in the student code classpath so the student code can use
+    // them.
+    final List<File> classpath = new ArrayList<>();
+    for (String jarPath : JarUtils.getAllJarPaths().split(File.pathSeparator)) {
+      classpath.add(new File(jarPath));
+    }
+    try {
+      standardFileManager.setLocation(StandardLocation.CLASS_PATH, classpath);
+    } catch (IOException e) {
+      throw new InternalServerException(InternalExceptionKey.INTERNAL_COMPILER_EXCEPTION, e);
+    }
+    return standardFileManager;
+  }
+
+  private static class CompileThread extends ForkJoinWorkerThread {
+    private CompileThread(ForkJoinPool pool) {
+      super(pool);
+    }
+  }
+}
@@ -1,12 +1,10 @@
 package org.code.javabuilder;
 
-import java.io.File;
 import java.io.IOException;
-import java.net.MalformedURLException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import org.code.protocol.GlobalProtocol;
 import org.code.protocol.InternalExceptionKey;
 import org.code.protocol.JavabuilderException;
@@ -15,20 +13,27 @@ import org.code.protocol.OutputAdapter;
 /** The orchestrator for code compilation and execution. */
 public class CodeBuilder {
   private final OutputAdapter outputAdapter;
-  private final File tempFolder;
   private final UserProjectFiles userProjectFiles;
   private final UserProjectFiles validationFiles;
+  private final CompiledClassCache compiledClassCache;
+  // Compiled class bytes from the most recent build, keyed by binary class name.
+  private Map<String, byte[]> compiledClasses;
 
   public CodeBuilder(
+      GlobalProtocol protocol, UserProjectFiles userProjectFiles, UserProjectFiles validationFiles)
+      throws InternalServerException {
+    this(protocol, userProjectFiles, validationFiles, CompiledClassCache.getInstance());
+  }
+
+  CodeBuilder(
       GlobalProtocol protocol,
       UserProjectFiles userProjectFiles,
       UserProjectFiles validationFiles,
-      File tempFolder)
-      throws InternalServerException {
+      CompiledClassCache compiledClassCache) {
     this.outputAdapter = protocol.getOutputAdapter();
     this.userProjectFiles = userProjectFiles;
     this.validationFiles = validationFiles;
-    this.tempFolder = tempFolder;
+    this.compiledClassCache = compiledClassCache;
   }
 
   /**
@@ -38,11 +43,13 @@ public class CodeBuilder {
    *     unable to compile due to internal errors.
    */
   public void buildAllUserCode() throws InternalServerException, UserInitiatedException {
-    this.compileCode(this.userProjectFiles.getJavaFiles());
+    this.compileCode(this.userProjectFiles.getJavaFiles(), false);
   }
 
   /**
-   * Saves non-source code assets to storage and compiles a subset of the user's code.
+   * Saves non-source code assets to storage and compiles a subset of the user's code. This is
+   * used to check code as the student edits it, so only the files that changed since the last
+   * check (and the files that depend on them) are recompiled.
    *
    * @param compileList a list of file names to compile
    * @throws InternalServerException if there is an internal error compiling or saving
@@ -57,7 +64,7 @@ public class CodeBuilder {
     final List<JavaProjectFile> javaProjectFiles =
         this.userProjectFiles.getMatchingJavaFiles(compileList);
 
-    this.compileCode(javaProjectFiles);
+    this.compileCode(javaProjectFiles, true);
   }
 
   /**
@@ -68,21 +75,36 @@ public class CodeBuilder {
    *     compile due to internal errors.
    */
   public void buildUserAndValidationFiles() throws InternalServerException, UserInitiatedException {
-    List<JavaProjectFile> allFiles = new ArrayList<>(this.validationFiles.getJavaFiles());
-    allFiles.addAll(this.userProjectFiles.getJavaFiles());
-    this.compileCode(allFiles);
+    this.compileCode(
+        this.userProjectFiles.getJavaFiles(), this.validationFiles.getJavaFiles(), false);
   }
 
-  private void compileCode(List<JavaProjectFile> javaProjectFiles)
+  private void compileCode(List<JavaProjectFile> javaProjectFiles, boolean incremental)
       throws InternalServerException, UserInitiatedException {
-    if (javaProjectFiles.isEmpty()) {
+    this.compileCode(javaProjectFiles, List.of(), incremental);
+  }
+
+  private void compileCode(
+      List<JavaProjectFile> javaProjectFiles,
+      List<JavaProjectFile> validationProjectFiles,
+      boolean incremental)
+      throws InternalServerException, UserInitiatedException {
+    if (javaProjectFiles.isEmpty() && validationProjectFiles.isEmpty()) {
       throw new UserInitiatedException(UserInitiatedExceptionKey.NO_FILES_TO_COMPILE);
     }
 
     this.saveProjectAssets();
+    // The compiler reuses cached classes when these exact files (including any validation files)
+    // have already been compiled on this container, and compiles a level's validation files once
+    // for every student on the level when it can.
     UserCodeCompiler codeCompiler =
-        new UserCodeCompiler(javaProjectFiles, this.tempFolder, this.outputAdapter);
-    codeCompiler.compileProgram();
+        new UserCodeCompiler(
+            javaProjectFiles,
+            validationProjectFiles,
+            this.outputAdapter,
+            this.compiledClassCache,
+            incremental);
+    this.compiledClasses = codeCompiler.compileProgram();
   }
 
   /** Runs the main method of the student's code */
@@ -96,16 +118,12 @@ public class CodeBuilder {
   }
 
   /** Creates a runner for executing code */
-  private JavaRunner createJavaRunner() throws InternalServerException {
-    try {
-      return new JavaRunner(
-          this.tempFolder.toURI().toURL(),
-          this.userProjectFiles.getJavaFiles(),
-          this.validationFiles.getJavaFiles(),
-          this.outputAdapter);
-    } catch (MalformedURLException e) {
-      throw new InternalServerException(InternalExceptionKey.INTERNAL_RUNTIME_EXCEPTION, e);
-    }
+  private JavaRunner createJavaRunner() {
+    return new JavaRunner(
+        this.compiledClasses,
+        this.userProjectFiles.getJavaFiles(),
+        this.validationFiles.getJavaFiles(),
+        this.outputAdapter);
   }
 
   /** Save any non-source code files to storage */
@@ -1,6 +1,5 @@
 package org.code.javabuilder;
 
-import java.io.File;
 import java.util.List;
 import org.code.protocol.*;
 
@@ -10,17 +9,12 @@ import org.code.protocol.*;
  */
 public class CodeBuilderRunnable {
   private final ProjectFileLoader fileLoader;
-  private final File tempFolder;
   private final ExecutionType executionType;
   private final List<String> compileList;
 
   public CodeBuilderRunnable(
-      ProjectFileLoader fileLoader,
-      File tempFolder,
-      ExecutionType executionType,
-      List<String> compileList) {
+      ProjectFileLoader fileLoader, ExecutionType executionType, List<String> compileList) {
     this.fileLoader = fileLoader;
-    this.tempFolder = tempFolder;
     this.executionType = executionType;
     this.compileList = compileList;
   }
@@ -36,8 +30,7 @@ public class CodeBuilderRunnable {
         new CodeBuilder(
             JavabuilderContext.getInstance().getGlobalProtocol(),
             userProjectFiles,
-            validationFiles,
-            this.tempFolder);
+            validationFiles);
     switch (this.executionType) {
       case COMPILE_ONLY:
         codeBuilder.buildUserCode(this.compileList);
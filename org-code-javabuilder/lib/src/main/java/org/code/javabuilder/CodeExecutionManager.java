@@ -2,11 +2,9 @@ package org.code.javabuilder;
 
 import static org.code.javabuilder.LambdaErrorCodes.TEMP_DIRECTORY_CLEANUP_ERROR_CODE;
 
-import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintStream;
-import java.nio.file.Files;
 import java.util.List;
 import org.code.javabuilder.util.LambdaUtils;
 import org.code.protocol.*;
@@ -27,7 +25,6 @@ public class CodeExecutionManager {
   private final SystemExitHelper systemExitHelper;
   private final CodeBuilderRunnableFactory codeBuilderRunnableFactory;
 
-  private File tempFolder;
   private InputRedirectionStream overrideInputStream;
   private OutputPrintStream overrideOutputStream;
   private InputStream systemInputStream;
@@ -36,11 +33,8 @@ public class CodeExecutionManager {
 
   static class CodeBuilderRunnableFactory {
     public CodeBuilderRunnable createCodeBuilderRunnable(
-        ProjectFileLoader fileLoader,
-        File tempFolder,
-        ExecutionType executionType,
-        List<String> compileList) {
-      return new CodeBuilderRunnable(fileLoader, tempFolder, executionType, compileList);
+        ProjectFileLoader fileLoader, ExecutionType executionType, List<String> compileList) {
+      return new CodeBuilderRunnable(fileLoader, executionType, compileList);
     }
   }
 
@@ -99,7 +93,7 @@ public class CodeExecutionManager {
     this.onPreExecute();
     final CodeBuilderRunnable runnable =
         this.codeBuilderRunnableFactory.createCodeBuilderRunnable(
-            this.fileLoader, this.tempFolder, this.executionType, this.compileList);
+            this.fileLoader, this.executionType, this.compileList);
     runnable.run();
   }
 
@@ -115,54 +109,65 @@ public class CodeExecutionManager {
   }
 
   /**
-   * Pre-execution steps: 1) Create GlobalProtocol, 2) create temporary folder, 3) Replace
-   * System.in/out with custom in/out
+   * Pre-execution steps: 1) Create GlobalProtocol, 2) Replace System.in/out with custom in/out.
+   * Compiled classes are kept in memory, so no temporary folder is needed for compiler output.
    */
-  private void onPreExecute() throws InternalServerException {
+  private void onPreExecute() {
+    // Console, neighborhood and theater output all count against one budget for the session.
+    final OutputBudget outputBudget = new OutputBudget();
     // Create the Global Protocol instance
     GlobalProtocol protocolInstance =
         new GlobalProtocol(
-            this.outputAdapter, new InputHandler(this.inputAdapter), this.contentManager);
+            outputBudget.limit(this.outputAdapter),
+            new InputHandler(this.inputAdapter, this.outputAdapter),
+            this.contentManager);
     JavabuilderContext.getInstance().register(GlobalProtocol.class, protocolInstance);
 
-    // Create temp folder
-    try {
-      this.tempFolder = Files.createTempDirectory("tmpdir").toFile();
-    } catch (IOException e) {
-      throw new InternalServerException(InternalExceptionKey.INTERNAL_EXCEPTION, e);
-    }
-
     // Save System in/out and replace with custom in/out
     this.systemInputStream = System.in;
     this.systemOutputStream = System.out;
     this.overrideInputStream = new InputRedirectionStream(protocolInstance.getInputHandler());
-    this.overrideOutputStream = new OutputPrintStream(this.outputAdapter);
+    this.overrideOutputStream = new OutputPrintStream(this.outputAdapter, outputBudget);
     System.setOut(this.overrideOutputStream);
     System.setIn(this.overrideInputStream);
     this.isInitialized = true;
   }
 
   /**
-   * Post-execution steps: 1) Notify listeners, 2) clean up global resources, 3) clear temporary
-   * folder, 4) close custom in/out streams, 5) Replace System.in/out with original in/out
+   * Clears any files the program wrote to the temp directory. This is separate from {@link
+   * #shutDown()} so that callers can release the user's connection before doing it, and can be
+   * called whether or not the environment was initialized.
+   */
+  public void cleanUpTempDirectory() {
+    try {
+      this.tempDirectoryManager.cleanUpTempDirectory(null);
+    } catch (IOException e) {
+      // If there was an issue clearing the temp directory, this may be because too many files are
+      // open. Force the JVM to quit in order to release the resources for the next use of the
+      // container. Temporarily logging the exception for investigation purposes.
+      LoggerUtils.logTrackingExceptionAsWarning(e);
+      this.systemExitHelper.exit(TEMP_DIRECTORY_CLEANUP_ERROR_CODE);
+    }
+  }
+
+  /**
+   * Post-execution steps: 1) Notify listeners, 2) close the input adapter, 3) clean up global
+   * resources, 4) close custom in/out streams, 5) Replace System.in/out with original in/out. The
+   * temporary directory is cleared separately, see {@link #cleanUpTempDirectory()}.
    */
   private void onPostExecute() {
     // Notify user and listeners
     LambdaUtils.safelySendMessage(
         this.outputAdapter, new StatusMessage(StatusMessageKey.EXITED), false);
+    // Stop receiving input and finish acknowledging what was received.
+    this.inputAdapter.close();
     JavabuilderContext.getInstance().onExecutionEnded();
     try {
       // Close custom input/output streams
       this.overrideInputStream.close();
       this.overrideOutputStream.close();
-      // Clear temp folder
-      this.tempDirectoryManager.cleanUpTempDirectory(this.tempFolder);
     } catch (IOException e) {
-      // If there was an issue clearing the temp directory, this may be because too many files are
-      // open. Force the JVM to quit in order to release the resources for the next use of the
-      // container. Temporarily logging the exception for investigation purposes.
       LoggerUtils.logTrackingExceptionAsWarning(e);
-      this.systemExitHelper.exit(TEMP_DIRECTORY_CLEANUP_ERROR_CODE);
     } finally {
       // Replace System in/out with original System in/out
       System.setIn(this.systemInputStream);
@@ -0,0 +1,192 @@
+package org.code.javabuilder;
+
+import com.sun.source.util.TaskEvent;
+import com.sun.source.util.TaskListener;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures the javac tasks run for one compilation of a user's project, and stops them once they
+ * exceed a time or memory allocation budget. Some inputs (huge array literals, deeply nested
+ * generics) can keep javac busy for most of a Lambda's timeout, and we would rather tell the user
+ * their code is too large to compile.
+ *
+ * <p>javac can only be stopped between the events it reports to a {@link TaskListener}, such as
+ * the end of parsing a file or generating a class, so a single long-running step will finish
+ * before the compilation is stopped.
+ *
+ * <p>A compilation may run several tasks at once on different threads, so each task gets its own
+ * listener from {@link #createListener()} and the totals are kept thread-safe.
+ */
+public class CompilationMonitor {
+  // Optional environment variables to override the default budgets
+  private static final String TIME_LIMIT_ENV = "COMPILE_TIME_LIMIT_MILLIS";
+  private static final String ALLOCATION_LIMIT_ENV = "COMPILE_ALLOCATION_LIMIT_MB";
+  private static final long DEFAULT_TIME_LIMIT_MILLIS = 30_000;
+  private static final long DEFAULT_ALLOCATION_LIMIT_MB = 4096;
+  private static final TaskEvent.Kind[] REPORTED_PHASES = {
+    TaskEvent.Kind.PARSE, TaskEvent.Kind.ENTER, TaskEvent.Kind.ANALYZE, TaskEvent.Kind.GENERATE
+  };
+
+  private final long timeLimitNanos;
+  private final long allocationLimitBytes;
+  private final com.sun.management.ThreadMXBean threadMXBean;
+  private final Map<TaskEvent.Kind, LongAdder> phaseNanos;
+  private final LongAdder generatedClassCount;
+  private final LongAdder allocatedBytes;
+  private long startNanos;
+  private volatile boolean limitExceeded;
+
+  public CompilationMonitor(long timeLimitMillis, long allocationLimitBytes) {
+    this.timeLimitNanos = timeLimitMillis * 1_000_000;
+    this.allocationLimitBytes = allocationLimitBytes;
+    this.threadMXBean = getThreadMXBean();
+    this.phaseNanos = new EnumMap<>(TaskEvent.Kind.class);
+    for (TaskEvent.Kind phase : REPORTED_PHASES) {
+      this.phaseNanos.put(phase, new LongAdder());
+    }
+    this.generatedClassCount = new LongAdder();
+    this.allocatedBytes = new LongAdder();
+    this.start();
+  }
+
+  /** @return a monitor with the default budgets, or the budgets set in the environment */
+  public static CompilationMonitor fromEnvironment() {
+    return new CompilationMonitor(
+        getLongFromEnvironment(TIME_LIMIT_ENV, DEFAULT_TIME_LIMIT_MILLIS),
+        getLongFromEnvironment(ALLOCATION_LIMIT_ENV, DEFAULT_ALLOCATION_LIMIT_MB) * 1024 * 1024);
+  }
+
+  /** Restarts the time budget. */
+  public void start() {
+    this.startNanos = System.nanoTime();
+  }
+
+  /**
+   * Forgets the memory allocated so far, so that only the compilation whose result is used counts
+   * against the allocation budget. Call this before falling back to another compilation, once no
+   * earlier task is still running. The time budget keeps running, since it protects the session's
+   * timeout.
+   */
+  public void resetAllocatedBytes() {
+    this.allocatedBytes.reset();
+  }
+
+  /** @return a listener to attach to one javac task, which must run on a single thread */
+  public TaskListener createListener() {
+    return new TaskMonitor();
+  }
+
+  /** @return whether a task was stopped because the compilation went over budget */
+  public boolean isLimitExceeded() {
+    return this.limitExceeded;
+  }
+
+  /** @return the time spent in each phase, in milliseconds, summed over every task */
+  public Map<String, Long> getPhaseTimes() {
+    final Map<String, Long> phaseTimes = this.getPhaseNanos();
+    phaseTimes.replaceAll((phase, nanos) -> nanos / 1_000_000);
+    return phaseTimes;
+  }
+
+  /** @return the time spent in each phase, in nanoseconds, summed over every task */
+  public Map<String, Long> getPhaseNanos() {
+    final Map<String, Long> phaseNanos = new LinkedHashMap<>();
+    for (Map.Entry<TaskEvent.Kind, LongAdder> phase : this.phaseNanos.entrySet()) {
+      phaseNanos.put(phase.getKey().name().toLowerCase(), phase.getValue().sum());
+    }
+    return phaseNanos;
+  }
+
+  public long getGeneratedClassCount() {
+    return this.generatedClassCount.sum();
+  }
+
+  /** @return the bytes allocated by javac, or 0 if the JVM does not measure allocation */
+  public long getAllocatedBytes() {
+    return this.allocatedBytes.sum();
+  }
+
+  private void checkLimits() {
+    if (this.limitExceeded
+        || System.nanoTime() - this.startNanos > this.timeLimitNanos
+        || this.allocatedBytes.sum() > this.allocationLimitBytes) {
+      this.limitExceeded = true;
+      // javac passes this out of the task, which ends the compilation.
+      throw new LimitExceededException();
+    }
+  }
+
+  private static com.sun.management.ThreadMXBean getThreadMXBean() {
+    if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean) {
+      final com.sun.management.ThreadMXBean bean =
+          (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+      if (bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+        return bean;
+      }
+    }
+    return null;
+  }
+
+  private static long getLongFromEnvironment(String name, long defaultValue) {
+    final String value = System.getenv(name);
+    if (value == null) {
+      return defaultValue;
+    }
+    try {
+      return Long.parseLong(value);
+    } catch (NumberFormatException e) {
+      return defaultValue;
+    }
+  }
+
+  private class TaskMonitor implements TaskListener {
+    private final Map<TaskEvent.Kind, Long> phaseStarts;
+    private long lastAllocatedBytes;
+
+    private TaskMonitor() {
+      this.phaseStarts = new EnumMap<>(TaskEvent.Kind.class);
+      this.lastAllocatedBytes = -1;
+    }
+
+    @Override
+    public void started(TaskEvent event) {
+      this.updateAllocatedBytes();
+      checkLimits();
+      this.phaseStarts.put(event.getKind(), System.nanoTime());
+    }
+
+    @Override
+    public void finished(TaskEvent event) {
+      final Long phaseStart = this.phaseStarts.remove(event.getKind());
+      final LongAdder phaseTotal = phaseNanos.get(event.getKind());
+      if (phaseStart != null && phaseTotal != null) {
+        phaseTotal.add(System.nanoTime() - phaseStart);
+      }
+      if (event.getKind() == TaskEvent.Kind.GENERATE) {
+        generatedClassCount.increment();
+      }
+      this.updateAllocatedBytes();
+      checkLimits();
+    }
+
+    /** Adds what this task's thread has allocated since the last event. */
+    private void updateAllocatedBytes() {
+      if (threadMXBean == null) {
+        return;
+      }
+      final long threadAllocatedBytes =
+          threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+      if (this.lastAllocatedBytes >= 0) {
+        allocatedBytes.add(threadAllocatedBytes - this.lastAllocatedBytes);
+      }
+      this.lastAllocatedBytes = threadAllocatedBytes;
+    }
+  }
+
+  /** Thrown from a listener to stop javac. */
+  private static class LimitExceededException extends RuntimeException {}
+}
@@ -0,0 +1,57 @@
+package org.code.javabuilder;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The outcome of compiling a set of Java files: whether compilation succeeded, the user-facing
+ * compiler messages, and the compiled class bytes. Results are immutable so they can be shared
+ * between sessions by the {@link CompiledClassCache}.
+ */
+public class CompilationResult {
+  private final boolean success;
+  private final List<String> compilerMessages;
+  private final Map<String, byte[]> compiledClasses;
+  private final long sizeInBytes;
+
+  public CompilationResult(
+      boolean success, List<String> compilerMessages, Map<String, byte[]> compiledClasses) {
+    this.success = success;
+    this.compilerMessages = Collections.unmodifiableList(compilerMessages);
+    this.compiledClasses = Collections.unmodifiableMap(compiledClasses);
+    this.sizeInBytes = computeSizeInBytes(compilerMessages, compiledClasses);
+  }
+
+  public boolean isSuccess() {
+    return this.success;
+  }
+
+  /** @return the compiler messages to show the user, in the order they should be sent */
+  public List<String> getCompilerMessages() {
+    return this.compilerMessages;
+  }
+
+  /** @return the compiled class bytes, keyed by the binary name of each class */
+  public Map<String, byte[]> getCompiledClasses() {
+    return this.compiledClasses;
+  }
+
+  /** @return an approximation of the memory held by this result */
+  public long getSizeInBytes() {
+    return this.sizeInBytes;
+  }
+
+  private static long computeSizeInBytes(
+      List<String> compilerMessages, Map<String, byte[]> compiledClasses) {
+    long size = 0;
+    for (String message : compilerMessages) {
+      // Strings hold up to two bytes per character
+      size += 2L * message.length();
+    }
+    for (Map.Entry<String, byte[]> compiledClass : compiledClasses.entrySet()) {
+      size += 2L * compiledClass.getKey().length() + compiledClass.getValue().length;
+    }
+    return size;
+  }
+}
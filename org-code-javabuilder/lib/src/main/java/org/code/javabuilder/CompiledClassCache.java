@@ -0,0 +1,205 @@
+package org.code.javabuilder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.code.javabuilder.util.JarUtils;
+import org.code.protocol.InternalExceptionKey;
+
+/**
+ * A container-wide, least-recently-used cache of compilation results keyed by a hash of the
+ * compiled sources. Students often re-run identical code, and whole classrooms run the same starter
+ * code, so a hit lets us skip javac entirely. The cache is bounded by the approximate number of
+ * bytes it holds rather than by entry count.
+ */
+public class CompiledClassCache {
+  private static final long DEFAULT_MAX_SIZE_BYTES = 32L * 1024 * 1024;
+  private static final String FILE_KEY_PREFIX = "file";
+  private static final String VALIDATION_KEY_PREFIX = "validation";
+  private static CompiledClassCache cacheInstance;
+  private static String classpathFingerprint;
+
+  private final long maxSizeBytes;
+  // Access-ordered, so iteration starts at the least recently used entry.
+  private final LinkedHashMap<String, CompilationResult> entries;
+  private long sizeBytes;
+
+  CompiledClassCache(long maxSizeBytes) {
+    this.maxSizeBytes = maxSizeBytes;
+    this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    this.sizeBytes = 0;
+  }
+
+  public static synchronized CompiledClassCache getInstance() {
+    if (cacheInstance == null) {
+      cacheInstance = new CompiledClassCache(DEFAULT_MAX_SIZE_BYTES);
+    }
+    return cacheInstance;
+  }
+
+  /**
+   * @param javaFiles the files that will be compiled together
+   * @return a key that uniquely identifies the given files, in order, compiled against the current
+   *     user-facing api jars and JDK.
+   * @throws InternalServerException if the api jars cannot be located
+   */
+  public static String getKey(List<JavaProjectFile> javaFiles) throws InternalServerException {
+    return computeKey(javaFiles, getClasspathFingerprint());
+  }
+
+  static String computeKey(List<JavaProjectFile> javaFiles, String classpathFingerprint)
+      throws InternalServerException {
+    return computeKey(javaFiles, classpathFingerprint, null);
+  }
+
+  /**
+   * @param validationFiles a level's validation files
+   * @return a key that identifies the given validation files compiled on their own. Keying on
+   *     contents rather than level means an edited level never reuses stale validation.
+   * @throws InternalServerException if the api jars cannot be located
+   */
+  public static String getValidationKey(List<JavaProjectFile> validationFiles)
+      throws InternalServerException {
+    return computeValidationKey(validationFiles, getClasspathFingerprint());
+  }
+
+  static String computeValidationKey(
+      List<JavaProjectFile> validationFiles, String classpathFingerprint)
+      throws InternalServerException {
+    return computeKey(validationFiles, classpathFingerprint, VALIDATION_KEY_PREFIX);
+  }
+
+  private static String computeKey(
+      List<JavaProjectFile> javaFiles, String classpathFingerprint, String prefix)
+      throws InternalServerException {
+    final MessageDigest digest = createDigest(classpathFingerprint);
+    if (prefix != null) {
+      updateDigest(digest, prefix);
+    }
+    for (JavaProjectFile javaFile : javaFiles) {
+      updateDigest(digest, javaFile.getFileName());
+      updateDigest(digest, javaFile.getClassName());
+      updateDigest(digest, javaFile.getFileContents());
+    }
+    return Base64.getEncoder().encodeToString(digest.digest());
+  }
+
+  /**
+   * @param javaFile a single file compiled as part of javaFiles
+   * @param javaFiles all of the files compiled together
+   * @return a key that identifies the compiled output of javaFile alone. The key covers the names
+   *     of the other files, but not their contents, since the names determine which classes
+   *     javaFile can refer to.
+   * @throws InternalServerException if the api jars cannot be located
+   */
+  public static String getFileKey(JavaProjectFile javaFile, List<JavaProjectFile> javaFiles)
+      throws InternalServerException {
+    return computeFileKey(javaFile, javaFiles, getClasspathFingerprint());
+  }
+
+  static String computeFileKey(
+      JavaProjectFile javaFile, List<JavaProjectFile> javaFiles, String classpathFingerprint)
+      throws InternalServerException {
+    final MessageDigest digest = createDigest(classpathFingerprint);
+    // Distinguishes file keys from keys for a whole compilation
+    updateDigest(digest, FILE_KEY_PREFIX);
+    final List<String> fileNames = new ArrayList<>();
+    for (JavaProjectFile file : javaFiles) {
+      fileNames.add(file.getFileName());
+    }
+    Collections.sort(fileNames);
+    for (String fileName : fileNames) {
+      updateDigest(digest, fileName);
+    }
+    updateDigest(digest, javaFile.getFileName());
+    updateDigest(digest, javaFile.getClassName());
+    updateDigest(digest, javaFile.getFileContents());
+    return Base64.getEncoder().encodeToString(digest.digest());
+  }
+
+  /** @return the cached result for the given key, or null if there is none */
+  public synchronized CompilationResult get(String key) {
+    return this.entries.get(key);
+  }
+
+  /**
+   * Caches the given result, evicting the least recently used entries until the cache fits in its
+   * size limit. Results larger than the whole cache are not stored.
+   */
+  public synchronized void put(String key, CompilationResult result) {
+    if (result.getSizeInBytes() > this.maxSizeBytes) {
+      return;
+    }
+    final CompilationResult previous = this.entries.put(key, result);
+    if (previous != null) {
+      this.sizeBytes -= previous.getSizeInBytes();
+    }
+    this.sizeBytes += result.getSizeInBytes();
+
+    final Iterator<CompilationResult> leastRecentlyUsed = this.entries.values().iterator();
+    while (this.sizeBytes > this.maxSizeBytes && leastRecentlyUsed.hasNext()) {
+      this.sizeBytes -= leastRecentlyUsed.next().getSizeInBytes();
+      leastRecentlyUsed.remove();
+    }
+  }
+
+  synchronized long getSizeBytes() {
+    return this.sizeBytes;
+  }
+
+  /**
+   * Identifies the version of the user-facing api jars and JDK that code is compiled against, so a
+   * redeployed jar never reuses classes compiled against the old one.
+   */
+  private static synchronized String getClasspathFingerprint() throws InternalServerException {
+    if (classpathFingerprint == null) {
+      final StringBuilder fingerprint = new StringBuilder(System.getProperty("java.version"));
+      for (String jarPath : JarUtils.getAllJarPaths().split(File.pathSeparator)) {
+        final File jar = new File(jarPath);
+        fingerprint
+            .append(':')
+            .append(jar.getName())
+            .append(':')
+            .append(jar.length())
+            .append(':')
+            .append(jar.lastModified());
+      }
+      classpathFingerprint = fingerprint.toString();
+    }
+    return classpathFingerprint;
+  }
+
+  private static MessageDigest createDigest(String classpathFingerprint)
+      throws InternalServerException {
+    final MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new InternalServerException(InternalExceptionKey.INTERNAL_COMPILER_EXCEPTION, e);
+    }
+    updateDigest(digest, classpathFingerprint);
+    return digest;
+  }
+
+  private static void updateDigest(MessageDigest digest, String value) {
+    final byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+    // Prefix each value with its length so that different splits of the same characters (for
+    // example, moving text between two files) never produce the same key.
+    digest.update(
+        new byte[] {
+          (byte) (bytes.length >>> 24),
+          (byte) (bytes.length >>> 16),
+          (byte) (bytes.length >>> 8),
+          (byte) bytes.length
+        });
+    digest.update(bytes);
+  }
+}
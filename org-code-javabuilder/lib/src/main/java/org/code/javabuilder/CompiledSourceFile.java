@@ -0,0 +1,49 @@
+package org.code.javabuilder;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The classes compiled from a single source file as part of an incremental compilation, along with
+ * what is needed to decide whether they can be reused by a later compilation. Only files that
+ * compiled without any compiler messages are stored, so a reused file never hides a warning.
+ */
+public class CompiledSourceFile extends CompilationResult {
+  private final Map<String, String> dependencies;
+  private final Set<String> projectClassNames;
+
+  /**
+   * @param compiledClasses the classes compiled from this file, keyed by binary name
+   * @param dependencies the names of the other project files this file refers to, mapped to the
+   *     cache key of the version of each file it was compiled against
+   * @param projectClassNames the top-level classes declared by every file in the project when this
+   *     file was compiled
+   */
+  public CompiledSourceFile(
+      Map<String, byte[]> compiledClasses,
+      Map<String, String> dependencies,
+      Set<String> projectClassNames) {
+    super(true, List.of(), compiledClasses);
+    this.dependencies = Collections.unmodifiableMap(dependencies);
+    this.projectClassNames = Collections.unmodifiableSet(projectClassNames);
+  }
+
+  /**
+   * @return the names of the other project files this file refers to, mapped to the cache key of
+   *     the version of each file it was compiled against. This file can only be reused alongside
+   *     those same versions, since it may have inlined their constants.
+   */
+  public Map<String, String> getDependencies() {
+    return this.dependencies;
+  }
+
+  /**
+   * @return the top-level classes declared by every file in the project when this file was
+   *     compiled. If that set changes, a name in this file may now resolve to a different class.
+   */
+  public Set<String> getProjectClassNames() {
+    return this.projectClassNames;
+  }
+}
@@ -0,0 +1,37 @@
+package org.code.javabuilder;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A level's validation files compiled on their own, without any student code. Every student on a
+ * level shares the same validation, so this is compiled once per container and the classes are put
+ * on the classpath when compiling each student's code. If the validation could not be compiled on
+ * its own (usually because it refers to classes the student is expected to write), it must be
+ * compiled together with the student's code instead.
+ */
+public class CompiledValidation extends CompilationResult {
+  private final Set<String> referencedClassNames;
+
+  /**
+   * @param success whether the validation compiled without student code
+   * @param compiledClasses the compiled validation classes, keyed by binary name
+   * @param referencedClassNames the fully qualified names of the top-level classes the validation
+   *     declares or refers to
+   */
+  public CompiledValidation(
+      boolean success, Map<String, byte[]> compiledClasses, Set<String> referencedClassNames) {
+    super(success, List.of(), compiledClasses);
+    this.referencedClassNames = Collections.unmodifiableSet(referencedClassNames);
+  }
+
+  /**
+   * @return the fully qualified names of the top-level classes the validation declares or refers
+   *     to. A student class with the same simple name could change what the validation refers to.
+   */
+  public Set<String> getReferencedClassNames() {
+    return this.referencedClassNames;
+  }
+}
@@ -0,0 +1,80 @@
+package org.code.javabuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.code.protocol.LoggerUtils;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Metric Client which writes metrics to the log in CloudWatch embedded metric format, rather than
+ * calling the CloudWatch API. CloudWatch Logs extracts the metrics from the log line, so publishing
+ * metrics makes no network calls at all. {@link LambdaLogHandler} writes these lines at the top
+ * level of the log event, where CloudWatch looks for them.
+ */
+public class EmbeddedMetricClient extends BufferedMetricClient {
+  static final String METADATA_KEY = "_aws";
+  // Limits on a single embedded metric format log line
+  static final int MAX_METRICS_PER_LINE = 100;
+  static final int MAX_VALUES_PER_METRIC = 100;
+
+  public EmbeddedMetricClient(String functionName) {
+    super(functionName);
+  }
+
+  @Override
+  protected void send(List<BufferedMetric> metrics) {
+    // Metrics with more values than fit on one line continue on the lines that follow.
+    for (int offset = 0; ; offset += MAX_VALUES_PER_METRIC) {
+      final List<BufferedMetric> remaining = new ArrayList<>();
+      for (BufferedMetric metric : metrics) {
+        if (metric.getSampleCount() > offset) {
+          remaining.add(metric);
+        }
+      }
+      if (remaining.isEmpty()) {
+        return;
+      }
+      for (int start = 0; start < remaining.size(); start += MAX_METRICS_PER_LINE) {
+        final int end = Math.min(start + MAX_METRICS_PER_LINE, remaining.size());
+        LoggerUtils.logInfo(
+            this.createLogLine(remaining.subList(start, end), offset, System.currentTimeMillis())
+                .toString());
+      }
+    }
+  }
+
+  // Visible for testing
+  JSONObject createLogLine(List<BufferedMetric> metrics, int offset, long timestamp) {
+    final JSONObject line = new JSONObject();
+    final JSONArray metricDefinitions = new JSONArray();
+    for (BufferedMetric metric : metrics) {
+      final JSONObject definition = new JSONObject();
+      definition.put("Name", metric.getName());
+      definition.put("Unit", metric.getUnit().toString());
+      metricDefinitions.put(definition);
+
+      final int end = Math.min(offset + MAX_VALUES_PER_METRIC, metric.getSampleCount());
+      if (end - offset == 1) {
+        line.put(metric.getName(), metric.getValue(offset));
+      } else {
+        final JSONArray values = new JSONArray();
+        for (int i = offset; i < end; i++) {
+          values.put(metric.getValue(i));
+        }
+        line.put(metric.getName(), values);
+      }
+    }
+
+    final JSONObject directive = new JSONObject();
+    directive.put("Namespace", NAMESPACE);
+    directive.put("Dimensions", new JSONArray().put(new JSONArray().put(FUNCTION_NAME_DIMENSION)));
+    directive.put("Metrics", metricDefinitions);
+    final JSONObject metadata = new JSONObject();
+    metadata.put("Timestamp", timestamp);
+    metadata.put("CloudWatchMetrics", new JSONArray().put(directive));
+    line.put(METADATA_KEY, metadata);
+    line.put(FUNCTION_NAME_DIMENSION, this.functionName);
+    return line;
+  }
+}
@@ -0,0 +1,95 @@
+package org.code.javabuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+
+/**
+ * A file manager that keeps compiler output in memory rather than writing class files to disk.
+ * Classes compiled by an earlier compilation can be added to the classpath, which lets us compile
+ * only part of a project. All other requests (such as reading the classpath) are forwarded to the
+ * given file manager.
+ */
+public class InMemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+  private final Map<String, byte[]> compiledClasses;
+  private final Map<String, FileObject> compiledClassSources;
+  private final Map<String, byte[]> precompiledClasses;
+
+  public InMemoryFileManager(StandardJavaFileManager fileManager) {
+    this(fileManager, Map.of());
+  }
+
+  /**
+   * @param fileManager the file manager to forward all other requests to
+   * @param precompiledClasses class bytes keyed by binary name that will be on the classpath in
+   *     addition to the classpath of fileManager
+   */
+  public InMemoryFileManager(
+      StandardJavaFileManager fileManager, Map<String, byte[]> precompiledClasses) {
+    super(fileManager);
+    this.compiledClasses = new HashMap<>();
+    this.compiledClassSources = new HashMap<>();
+    this.precompiledClasses = precompiledClasses;
+  }
+
+  @Override
+  public JavaFileObject getJavaFileForOutput(
+      Location location, String className, JavaFileObject.Kind kind, FileObject sibling)
+      throws IOException {
+    if (location == StandardLocation.CLASS_OUTPUT && kind == JavaFileObject.Kind.CLASS) {
+      this.compiledClassSources.put(className, sibling);
+      return new InMemoryJavaClass(className, this.compiledClasses);
+    }
+    return super.getJavaFileForOutput(location, className, kind, sibling);
+  }
+
+  @Override
+  public Iterable<JavaFileObject> list(
+      Location location, String packageName, Set<JavaFileObject.Kind> kinds, boolean recurse)
+      throws IOException {
+    final Iterable<JavaFileObject> files = super.list(location, packageName, kinds, recurse);
+    if (location != StandardLocation.CLASS_PATH
+        || !kinds.contains(JavaFileObject.Kind.CLASS)
+        || this.precompiledClasses.isEmpty()) {
+      return files;
+    }
+
+    final List<JavaFileObject> allFiles = new ArrayList<>();
+    files.forEach(allFiles::add);
+    for (String className : this.precompiledClasses.keySet()) {
+      final int packageEnd = className.lastIndexOf('.');
+      final String classPackage = packageEnd < 0 ? "" : className.substring(0, packageEnd);
+      if (classPackage.equals(packageName)
+          || (recurse && (packageName.isEmpty() || classPackage.startsWith(packageName + ".")))) {
+        allFiles.add(new InMemoryJavaClass(className, this.precompiledClasses));
+      }
+    }
+    return allFiles;
+  }
+
+  @Override
+  public String inferBinaryName(Location location, JavaFileObject file) {
+    if (file instanceof InMemoryJavaClass) {
+      return ((InMemoryJavaClass) file).getClassName();
+    }
+    return super.inferBinaryName(location, file);
+  }
+
+  /** @return the compiled class bytes, keyed by the binary name of each class */
+  public Map<String, byte[]> getCompiledClasses() {
+    return this.compiledClasses;
+  }
+
+  /** @return the source file each compiled class came from, keyed by binary name */
+  public Map<String, FileObject> getCompiledClassSources() {
+    return this.compiledClassSources;
+  }
+}
@@ -0,0 +1,57 @@
+package org.code.javabuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.Map;
+import javax.tools.SimpleJavaFileObject;
+
+/**
+ * A file object used to capture a compiled class in memory. When the compiler finishes writing the
+ * class, its bytes are stored in the given map keyed by the binary name of the class. A class that
+ * is already in the map can also be read back by the compiler.
+ */
+public class InMemoryJavaClass extends SimpleJavaFileObject {
+  private final String className;
+  private final Map<String, byte[]> compiledClasses;
+
+  /**
+   * Constructs a new InMemoryJavaClass.
+   *
+   * @param className the binary name of the class represented by this file object
+   * @param compiledClasses the map the compiled class bytes will be stored in
+   */
+  InMemoryJavaClass(String className, Map<String, byte[]> compiledClasses) {
+    super(URI.create("bytes:///" + className.replace('.', '/') + Kind.CLASS.extension), Kind.CLASS);
+    this.className = className;
+    this.compiledClasses = compiledClasses;
+  }
+
+  /** @return the binary name of the class represented by this file object */
+  public String getClassName() {
+    return this.className;
+  }
+
+  @Override
+  public InputStream openInputStream() throws IOException {
+    final byte[] classBytes = this.compiledClasses.get(this.className);
+    if (classBytes == null) {
+      throw new FileNotFoundException(this.className);
+    }
+    return new ByteArrayInputStream(classBytes);
+  }
+
+  @Override
+  public OutputStream openOutputStream() {
+    return new ByteArrayOutputStream() {
+      @Override
+      public void close() {
+        compiledClasses.put(className, this.toByteArray());
+      }
+    };
+  }
+}
@@ -0,0 +1,35 @@
+package org.code.javabuilder;
+
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link UserClassLoader} that defines user-provided classes directly from compiled class bytes
+ * held in memory, rather than reading class files back from disk. Any other class is loaded as
+ * usual by {@link UserClassLoader}.
+ */
+public class InMemoryUserClassLoader extends UserClassLoader {
+  private final Map<String, byte[]> compiledClasses;
+
+  public InMemoryUserClassLoader(
+      URL[] urls,
+      ClassLoader parent,
+      Map<String, byte[]> compiledClasses,
+      List<String> userProvidedClasses,
+      RunPermissionLevel permissionLevel) {
+    super(urls, parent, userProvidedClasses, permissionLevel);
+    this.compiledClasses = compiledClasses;
+  }
+
+  @Override
+  protected Class<?> findClass(String name) throws ClassNotFoundException {
+    final byte[] classBytes = this.compiledClasses.get(name);
+    if (classBytes == null) {
+      return super.findClass(name);
+    }
+    // Classes defined here get this loader's default protection domain, so they are still
+    // confined by JavabuilderSecurityPolicy.
+    return this.defineClass(name, classBytes, 0, classBytes.length);
+  }
+}
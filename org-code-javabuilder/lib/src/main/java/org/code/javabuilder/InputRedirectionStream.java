@@ -3,8 +3,6 @@ package org.code.javabuilder;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
-import java.util.LinkedList;
-import java.util.Queue;
 import org.code.protocol.InputHandler;
 import org.code.protocol.InputMessageType;
 
@@ -13,44 +11,47 @@ import org.code.protocol.InputMessageType;
  * to use the InputAdapter rather than the server's console. See
  * https://docs.oracle.com/javase/8/docs/api/java/io/InputStream.html for full implementation
  * details & contract.
+ *
+ * <p>Bytes from the input adapter are held in a growable byte array. Unread bytes are always at
+ * [position, count), and the array is only refilled once they have all been read, so bulk reads are
+ * a single array copy. Mark and reset are supported the same way as in {@link
+ * java.io.BufferedInputStream}: bytes from the mark onwards are kept when the buffer is refilled,
+ * until more than the mark's read limit have been read past it.
  */
 public class InputRedirectionStream extends InputStream {
-  private final Queue<Byte> queue;
+  private static final int INITIAL_BUFFER_SIZE = 1024;
+  private static final byte[] LINE_SEPARATOR =
+      System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+
   private final InputHandler inputAdapter;
+  private byte[] buffer;
+  // Index of the next byte to read
+  private int position;
+  // Index after the last byte received
+  private int count;
+  // Index of the marked byte, or -1 if there is no mark
+  private int markPosition;
+  private int markLimit;
 
   public InputRedirectionStream(InputHandler inputHandler) {
     this.inputAdapter = inputHandler;
-    this.queue = new LinkedList<>();
+    this.buffer = new byte[INITIAL_BUFFER_SIZE];
+    this.markPosition = -1;
   }
 
   /**
-   * See: https://docs.oracle.com/javase/8/docs/api/java/io/InputStream.html#read-- Checks the queue
-   * for existing bytes. If the queue is empty, polls the inputAdapter for new data. This is a
-   * blocking call.
+   * See: https://docs.oracle.com/javase/8/docs/api/java/io/InputStream.html#read-- Checks the
+   * buffer for existing bytes. If the buffer is empty, polls the inputAdapter for new data. This is
+   * a blocking call.
    *
-   * @return the first byte in the queue
+   * @return the next byte, or -1 if there is no more input
    */
   @Override
   public int read() {
-    if (queue.peek() == null) {
-      // The Java Lab console is an <input> element that uses the enter key to trigger onSubmit.
-      // Rather than adding an arbitrary line separator from the client, we instead add the
-      // separator here so we can use a line separator that Scanner will recognize.
-      final String stringMessage = inputAdapter.getNextMessageForType(InputMessageType.SYSTEM_IN);
-      // a null message means we've lost connection to the input adapter and won't receive any more
-      // messages.
-      // Therefore we can safely return -1 (end of input).
-      if (stringMessage == null) {
-        return -1;
-      }
-      final String messageWithNewline = stringMessage + System.lineSeparator();
-      byte[] message = messageWithNewline.getBytes(StandardCharsets.UTF_8);
-      for (byte b : message) {
-        queue.add(b);
-      }
+    if (this.position == this.count && !this.fill()) {
+      return -1;
     }
-
-    return (int) queue.remove();
+    return this.buffer[this.position++] & 0xff;
   }
 
   /** See: https://docs.oracle.com/javase/8/docs/api/java/io/InputStream.html#read-byte:A- */
@@ -61,6 +62,7 @@ public class InputRedirectionStream extends InputStream {
 
   /**
    * See: https://docs.oracle.com/javase/8/docs/api/java/io/InputStream.html#read-byte:A-int-int-
+   * Blocks only if no bytes are buffered, and then reads at most the bytes of one input message.
    */
   @Override
   public int read(byte[] b, int off, int len) {
@@ -70,16 +72,16 @@ public class InputRedirectionStream extends InputStream {
     if (off < 0 || len < 0 || len > b.length - off) {
       throw new IndexOutOfBoundsException();
     }
-
-    int k = 0;
-    while (k < len) {
-      b[off + k] = (byte) this.read();
-      k++;
-      if (queue.peek() == null) {
-        break;
-      }
+    if (len == 0) {
+      return 0;
+    }
+    if (this.position == this.count && !this.fill()) {
+      return -1;
     }
 
+    final int k = Math.min(len, this.count - this.position);
+    System.arraycopy(this.buffer, this.position, b, off, k);
+    this.position += k;
     return k;
   }
 
@@ -97,16 +99,75 @@ public class InputRedirectionStream extends InputStream {
   /** See: https://docs.oracle.com/javase/8/docs/api/java/io/InputStream.html#available-- */
   @Override
   public int available() {
-    return queue.size();
+    return this.count - this.position;
+  }
+
+  /** See: https://docs.oracle.com/javase/8/docs/api/java/io/InputStream.html#markSupported-- */
+  @Override
+  public boolean markSupported() {
+    return true;
+  }
+
+  /** See: https://docs.oracle.com/javase/8/docs/api/java/io/InputStream.html#mark-int- */
+  @Override
+  public void mark(int readlimit) {
+    this.markPosition = this.position;
+    this.markLimit = readlimit;
   }
 
   /**
-   * See: https://docs.oracle.com/javase/8/docs/api/java/io/InputStream.html#markSupported--
+   * See: https://docs.oracle.com/javase/8/docs/api/java/io/InputStream.html#reset--
    *
-   * @return false always. We do not need to support the `reset` or `mark` methods at this time.
+   * @throws IOException if there is no mark, or the mark was dropped because more than its read
+   *     limit had been read when the buffer was refilled.
    */
   @Override
-  public boolean markSupported() {
-    return false;
+  public void reset() throws IOException {
+    if (this.markPosition < 0) {
+      throw new IOException("Resetting to invalid mark");
+    }
+    this.position = this.markPosition;
+  }
+
+  /**
+   * Reads the next input message into the buffer. Must only be called once every buffered byte has
+   * been read.
+   *
+   * @return false if there is no more input
+   */
+  private boolean fill() {
+    // The Java Lab console is an <input> element that uses the enter key to trigger onSubmit.
+    // Rather than adding an arbitrary line separator from the client, we instead add the
+    // separator here so we can use a line separator that Scanner will recognize.
+    final String stringMessage = inputAdapter.getNextMessageForType(InputMessageType.SYSTEM_IN);
+    // a null message means we've lost connection to the input adapter and won't receive any more
+    // messages.
+    // Therefore we can safely return -1 (end of input).
+    if (stringMessage == null) {
+      return false;
+    }
+    final byte[] message = stringMessage.getBytes(StandardCharsets.UTF_8);
+
+    // Keep the bytes from the mark onwards, unless the read limit has been passed.
+    int kept = 0;
+    if (this.markPosition >= 0 && this.count - this.markPosition <= this.markLimit) {
+      kept = this.count - this.markPosition;
+    }
+    final int needed = kept + message.length + LINE_SEPARATOR.length;
+    if (needed > this.buffer.length) {
+      final byte[] grown = new byte[Math.max(this.buffer.length * 2, needed)];
+      System.arraycopy(this.buffer, this.count - kept, grown, 0, kept);
+      this.buffer = grown;
+    } else if (kept > 0) {
+      System.arraycopy(this.buffer, this.count - kept, this.buffer, 0, kept);
+    }
+    this.markPosition = kept > 0 || this.markPosition == this.count ? 0 : -1;
+
+    System.arraycopy(message, 0, this.buffer, kept, message.length);
+    System.arraycopy(
+        LINE_SEPARATOR, 0, this.buffer, kept + message.length, LINE_SEPARATOR.length);
+    this.position = kept;
+    this.count = needed;
+    return true;
   }
 }
@@ -4,13 +4,14 @@ import java.io.IOException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 import org.code.javabuilder.util.JarUtils;
 import org.code.protocol.*;
 
 /** The class that executes the student's code */
 public class JavaRunner {
-  private final URL executableLocation;
+  private final Map<String, byte[]> compiledClasses;
   private final MainRunner mainRunner;
   private final UserTestRunner userTestRunner;
   private final ValidationRunner validationRunner;
@@ -19,12 +20,12 @@ public class JavaRunner {
   private final OutputAdapter outputAdapter;
 
   public JavaRunner(
-      URL executableLocation,
+      Map<String, byte[]> compiledClasses,
       List<JavaProjectFile> javaFiles,
       List<JavaProjectFile> validationFiles,
       OutputAdapter outputAdapter) {
     this(
-        executableLocation,
+        compiledClasses,
         new MainRunner(javaFiles, outputAdapter),
         new UserTestRunner(javaFiles, outputAdapter),
         new ValidationRunner(validationFiles, javaFiles, outputAdapter),
@@ -34,14 +35,14 @@ public class JavaRunner {
   }
 
   JavaRunner(
-      URL executableLocation,
+      Map<String, byte[]> compiledClasses,
       MainRunner mainRunner,
       UserTestRunner userTestRunner,
       ValidationRunner validationRunner,
       List<JavaProjectFile> javaFiles,
       List<JavaProjectFile> validationFiles,
       OutputAdapter outputAdapter) {
-    this.executableLocation = executableLocation;
+    this.compiledClasses = compiledClasses;
     this.mainRunner = mainRunner;
     this.userTestRunner = userTestRunner;
     this.validationRunner = validationRunner;
@@ -80,20 +81,25 @@ public class JavaRunner {
   private boolean run(
       CodeRunner runner, RunPermissionLevel permissionLevel, List<String> classNames)
       throws JavabuilderException, InternalFacingException {
-    // Include the user-facing api jars in the code we are loading so student code can access them.
-    URL[] classLoaderUrls = JarUtils.getAllJarURLs(this.executableLocation);
+    // Most user-facing api classes come from the container-wide ApiClassLoader. Only the api jars
+    // that keep per-run state are loaded again for this run.
+    URL[] classLoaderUrls = JarUtils.getPerRunJarURLs();
 
-    // Create a new UserClassLoader. This class loader handles blocking any disallowed
-    // packages/classes.
+    // Create a new UserClassLoader that defines the student's classes from the in-memory compiler
+    // output. This class loader handles blocking any disallowed packages/classes.
     UserClassLoader urlClassLoader =
-        new UserClassLoader(
-            classLoaderUrls, JavaRunner.class.getClassLoader(), classNames, permissionLevel);
+        new InMemoryUserClassLoader(
+            classLoaderUrls,
+            JavaRunner.class.getClassLoader(),
+            this.compiledClasses,
+            classNames,
+            permissionLevel);
 
     boolean runResult;
     PerformanceTracker performanceTracker =
         (PerformanceTracker) JavabuilderContext.getInstance().get(PerformanceTracker.class);
     performanceTracker.trackUserCodeStart();
-    try {
+    try (PerformanceTracker.Phase executePhase = performanceTracker.startPhase("execute")) {
       runResult = runner.run(urlClassLoader);
     } finally {
       performanceTracker.trackUserCodeEnd();
@@ -8,6 +8,8 @@ public class JavaSourceFromString extends SimpleJavaFileObject {
   /** The source code of this "file". */
   final String code;
 
+  private SourceLineIndex lineIndex;
+
   /**
    * Constructs a new JavaSourceFromString.
    *
@@ -23,4 +25,15 @@ public class JavaSourceFromString extends SimpleJavaFileObject {
   public CharSequence getCharContent(boolean ignoreEncodingErrors) {
     return code;
   }
+
+  /**
+   * @return an index of the lines in this source, built the first time it is needed. Most sources
+   *     compile without diagnostics and never need one.
+   */
+  synchronized SourceLineIndex getLineIndex() {
+    if (this.lineIndex == null) {
+      this.lineIndex = new SourceLineIndex(this.code);
+    }
+    return this.lineIndex;
+  }
 }
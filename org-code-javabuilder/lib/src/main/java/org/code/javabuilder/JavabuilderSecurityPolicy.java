@@ -27,7 +27,7 @@ import java.util.List;
  *   <li>denies all other filesystem access
  *   <li>denies reading environment variables. Trusted code that calls the AWS SDK while student code 
  *       is on the stack must wrap the SDK call in {@code AccessController.doPrivileged}
- *       (see AWSOutputAdapter, AWSInputAdapter, AWSContentManager),
+ *       (see AWSOutputAdapter, AWSContentManager),
  *   <li>denies replacing or removing the SecurityManager and this policy.
  * </ul>
  *
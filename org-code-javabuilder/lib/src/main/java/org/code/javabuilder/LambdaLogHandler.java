@@ -45,6 +45,13 @@ public class LambdaLogHandler extends Handler {
     // try to send message as json if possible.
     try {
       JSONObject jsonMessage = new JSONObject(message);
+      if (jsonMessage.has(EmbeddedMetricClient.METADATA_KEY)) {
+        // CloudWatch only extracts embedded metrics from the top level of the log event, so log
+        // these as they are, with the session metadata alongside the metrics.
+        jsonMessage.put(LoggerConstants.SESSION_METADATA, sessionMetadata);
+        this.logger.log(jsonMessage.toString());
+        return;
+      }
       logData.put(LoggerConstants.MESSAGE, jsonMessage);
     } catch (JSONException e) {
       logData.put(LoggerConstants.MESSAGE, message);
@@ -3,12 +3,12 @@ package org.code.javabuilder;
 import static org.code.javabuilder.InternalFacingExceptionTypes.INVALID_INPUT;
 import static org.code.protocol.LoggerNames.MAIN_LOGGER;
 
-import com.amazonaws.client.builder.AwsClientBuilder;
 import com.amazonaws.services.apigatewaymanagementapi.AmazonApiGatewayManagementApi;
-import com.amazonaws.services.apigatewaymanagementapi.AmazonApiGatewayManagementApiClientBuilder;
 import com.amazonaws.services.apigatewaymanagementapi.model.DeleteConnectionRequest;
 import com.amazonaws.services.apigatewaymanagementapi.model.GetConnectionRequest;
 import com.amazonaws.services.apigatewaymanagementapi.model.GoneException;
+import com.amazonaws.services.cloudwatch.AmazonCloudWatch;
+import com.amazonaws.services.cloudwatch.AmazonCloudWatchClientBuilder;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
 import com.amazonaws.services.lambda.runtime.Context;
@@ -26,6 +26,11 @@ import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Handler;
 import java.util.logging.Logger;
 import org.code.javabuilder.UnhealthyContainerChecker.ShutdownTrigger;
@@ -52,6 +57,9 @@ public class LambdaRequestHandler implements RequestHandler<Map<String, String>,
   private static final String API_ENDPOINT = System.getenv("API_ENDPOINT");
   private static final String UNHEALTHY_CONTAINERS_TABLE_NAME =
       System.getenv("UNHEALTHY_CONTAINERS_TABLE_NAME");
+  // "emf" writes metrics to the log in CloudWatch embedded metric format instead of calling the
+  // CloudWatch API.
+  private static final String METRICS_MODE = System.getenv("METRICS_MODE");
 
   // Creating these clients here rather than in the request handler method allows us to use
   // provisioned concurrency to decrease cold boot time by 3-10 seconds, depending on the lambda
@@ -59,6 +67,13 @@ public class LambdaRequestHandler implements RequestHandler<Map<String, String>,
   private static final AmazonS3 S3_CLIENT = AmazonS3ClientBuilder.standard().build();
   private static final AmazonDynamoDB DYNAMO_DB_CLIENT =
       AmazonDynamoDBClientBuilder.defaultClient();
+  private static final AmazonCloudWatch CLOUD_WATCH_CLIENT =
+      AmazonCloudWatchClientBuilder.defaultClient();
+  // Runs session setup and cleanup steps off the request thread, so they can overlap: the health
+  // check, clearing the temp directory and loading the project from S3 at the start of a session,
+  // and the health check at the end.
+  private static final ExecutorService BACKGROUND_EXECUTOR = ParallelInitializer.createExecutor(3);
+  private static final long UNHEALTHY_CHECK_TIMEOUT_MS = 2000;
 
   // Used to check whether this container has been marked unhealthy.
   private final UnhealthyContainerChecker unhealthyContainerChecker;
@@ -69,6 +84,7 @@ public class LambdaRequestHandler implements RequestHandler<Map<String, String>,
   // API Gateway Client. We create this in the constructor so we can recreate it if it goes away for
   // some reason.
   private AmazonApiGatewayManagementApi apiClient;
+  private final ApiGatewayClientFactory apiClientFactory;
 
   public LambdaRequestHandler() {
     // create CachedResources once for the entire container.
@@ -76,18 +92,37 @@ public class LambdaRequestHandler implements RequestHandler<Map<String, String>,
     // Documentation: https://docs.aws.amazon.com/lambda/latest/dg/java-handler.html
     CachedResources.create();
 
+    // Set up the Java compiler once for the entire container, and warm it up with a throwaway
+    // compile so the first student on this container does not pay javac's startup cost.
+    try {
+      CachedCompiler.getInstance().warmUp();
+    } catch (InternalServerException e) {
+      // Compiling will retry setting up the compiler and report any error to the user.
+      LoggerUtils.logTrackingExceptionAsWarning(e);
+    }
+
+    // Load the user-facing api jars once for the entire container, so each run only defines the
+    // student's own classes.
+    ApiClassLoader.getInstance();
+
     // Install the security policy once for the entire container. The policy scopes itself to code
     // loaded by a UserClassLoader, so a fresh UserClassLoader per run means confinement is applied
     // per run without any per-invocation setup.
     final JavabuilderSecurityPolicy securityPolicy = new JavabuilderSecurityPolicy();
     Policy.setPolicy(securityPolicy);
     System.setSecurityManager(new SecurityManager());
+
+    // manually set font configuration file since there is no font configuration on a lambda.
+    java.util.Properties props = System.getProperties();
+    // /opt is the folder all layer files go into.
+    props.put("sun.awt.fontconfig", "/opt/fontconfig.properties");
+
+    // Run a few sample sessions so the first student on this container gets warm classes and JIT
+    // code. This runs after the security policy is installed so its checks are warmed up too.
+    new SessionPrimer().prime();
     COLD_BOOT_END = Clock.systemUTC().instant();
-    this.apiClient =
-        AmazonApiGatewayManagementApiClientBuilder.standard()
-            .withEndpointConfiguration(
-                new AwsClientBuilder.EndpointConfiguration(API_ENDPOINT, "us-east-1"))
-            .build();
+    this.apiClientFactory = new ApiGatewayClientFactory(API_ENDPOINT);
+    this.apiClient = this.apiClientFactory.create();
     this.unhealthyContainerChecker =
         new UnhealthyContainerChecker(DYNAMO_DB_CLIENT, UNHEALTHY_CONTAINERS_TABLE_NAME);
   }
@@ -96,13 +131,14 @@ public class LambdaRequestHandler implements RequestHandler<Map<String, String>,
    * This is the implementation of the long-running-lambda where user code will be compiled and
    * executed. The handler performs the following actions for each invocation:
    *
-   * <p>1. Initialize the current session (set global properties, setup static objects, etc)
+   * <p>1. Start the setup steps that wait on the network or disk (container health check, clearing
+   * the temp directory, loading the project from S3), which run at the same time
    *
-   * <p>2.Create the OutputAdapter to communicate with the user
+   * <p>2. Initialize the current session (set global properties, setup static objects, etc)
    *
-   * <p>3. Clear the temp directory on the current container
+   * <p>3. Create the OutputAdapter to communicate with the user
    *
-   * <p>4. Setup the code execution environment, and execute code
+   * <p>4. Wait for the setup steps, then setup the code execution environment, and execute code
    *
    * <p>5. Handle any exceptions/errors if they are thrown
    *
@@ -119,7 +155,11 @@ public class LambdaRequestHandler implements RequestHandler<Map<String, String>,
   public String handleRequest(Map<String, String> lambdaInput, Context context) {
     this.isSessionInitialized = false;
     JavabuilderContext.getInstance().destroyAndReset();
-    this.trackStartupPerformance();
+    // Register the session's shared objects before starting any setup step. The steps run on other
+    // threads, so they are given what they need rather than looking it up while this thread
+    // registers more.
+    final PerformanceTracker performanceTracker = this.trackStartupPerformance();
+    final MetricClient metricClient = this.registerMetricClient(context);
 
     // TODO: Because we reference the logger object throughout the codebase via
     // Logger.getLogger(MAIN_LOGGER), we need to set it up in the same scope as code execution to
@@ -143,6 +183,21 @@ public class LambdaRequestHandler implements RequestHandler<Map<String, String>,
     // turn off the default console logger
     logger.setUseParentHandlers(false);
 
+    final TempDirectoryManager tempDirectoryManager = new AWSTempDirectoryManager();
+    final ParallelInitializer initializer = new ParallelInitializer(BACKGROUND_EXECUTOR);
+    // Check container health status and exit early if container has been marked unhealthy.
+    initializer.submit(
+        () -> this.shutdownContainerIfUnhealthy(ShutdownTrigger.START, metricClient));
+    initializer.submit(() -> this.clearTempDirectory(tempDirectoryManager));
+    final Future<AWSContentManager> contentManager =
+        initializer.submit(
+            () -> {
+              final long loadStartNanos = System.nanoTime();
+              final AWSContentManager manager = this.createContentManager(lambdaInput, context);
+              performanceTracker.trackPhase("load", loadStartNanos, System.nanoTime());
+              return manager;
+            });
+
     this.initialize(lambdaInput, connectionId, context);
 
     // Try to construct the output adapter as early as possible, so we can notify the user if
@@ -152,28 +207,39 @@ public class LambdaRequestHandler implements RequestHandler<Map<String, String>,
     try {
       outputAdapter = this.createOutputAdapter(lambdaInput);
     } catch (InternalFacingException e) {
+      initializer.cancel();
       LoggerUtils.logSevereException(e);
       return "error";
     }
 
     final ExceptionHandler exceptionHandler =
         new ExceptionHandler(outputAdapter, new AWSSystemExitHelper(connectionId, this.apiClient));
-    final TempDirectoryManager tempDirectoryManager = new AWSTempDirectoryManager();
 
     CodeExecutionManager codeExecutionManager = null;
     Thread timeoutNotifierThread = null;
 
     try {
-      this.clearTempDirectory(tempDirectoryManager);
+      // Wait for the rest of setup before compiling. If any step failed, its exception is thrown
+      // here and reported to the user.
+      initializer.await();
 
       codeExecutionManager =
           this.createExecutionManager(
-              lambdaInput, context, connectionId, outputAdapter, tempDirectoryManager);
+              lambdaInput,
+              connectionId,
+              outputAdapter,
+              tempDirectoryManager,
+              initializer.get(contentManager));
 
       // Create and start thread that that will notify us if we're nearing the timeout limit
       timeoutNotifierThread =
           this.createTimeoutThread(
-              context, outputAdapter, codeExecutionManager, connectionId, this.apiClient);
+              context,
+              outputAdapter,
+              exceptionHandler,
+              codeExecutionManager,
+              connectionId,
+              this.apiClient);
       timeoutNotifierThread.start();
 
       // Initialize and start code execution
@@ -185,7 +251,8 @@ public class LambdaRequestHandler implements RequestHandler<Map<String, String>,
       if (timeoutNotifierThread != null) {
         timeoutNotifierThread.interrupt();
       }
-      this.shutDown(codeExecutionManager, connectionId, this.apiClient);
+      this.shutDown(
+          codeExecutionManager, outputAdapter, exceptionHandler, connectionId, this.apiClient);
     }
 
     return "done";
@@ -196,30 +263,21 @@ public class LambdaRequestHandler implements RequestHandler<Map<String, String>,
    * creating global objects
    */
   private void initialize(Map<String, String> lambdaInput, String connectionId, Context context) {
-    // Check container health status and exit early if container has been marked unhealthy.
-    this.shutdownContainerIfUnhealthy(ShutdownTrigger.START);
-
     final boolean canAccessDashboardAssets =
         Boolean.parseBoolean(lambdaInput.get("canAccessDashboardAssets"));
 
     Properties.setConnectionId(connectionId);
 
-    AWSMetricClient metricClient = new AWSMetricClient(context.getFunctionName());
-    JavabuilderContext.getInstance().register(MetricClient.class, metricClient);
-
     // Dashboard assets are only accessible if the dashboard domain is not localhost
     Properties.setCanAccessDashboardAssets(canAccessDashboardAssets);
-    // manually set font configuration file since there is no font configuration on a lambda.
-    java.util.Properties props = System.getProperties();
-    // /opt is the folder all layer files go into.
-    props.put("sun.awt.fontconfig", "/opt/fontconfig.properties");
 
+    this.apiClientFactory.startSession();
     this.verifyApiClient(connectionId);
 
     this.isSessionInitialized = true;
   }
 
-  private void trackStartupPerformance() {
+  private PerformanceTracker trackStartupPerformance() {
     final Instant instanceStart = Clock.systemUTC().instant();
     PerformanceTracker performanceTracker = new PerformanceTracker();
     JavabuilderContext.getInstance().register(PerformanceTracker.class, performanceTracker);
@@ -229,6 +287,18 @@ public class LambdaRequestHandler implements RequestHandler<Map<String, String>,
     } else {
       performanceTracker.trackInstanceStart(instanceStart);
     }
+    return performanceTracker;
+  }
+
+  private MetricClient registerMetricClient(Context context) {
+    // Metrics are held until the session's shared objects are destroyed, after the user's
+    // connection has been released.
+    final BufferedMetricClient metricClient =
+        "emf".equals(METRICS_MODE)
+            ? new EmbeddedMetricClient(context.getFunctionName())
+            : new AWSMetricClient(context.getFunctionName(), CLOUD_WATCH_CLIENT);
+    JavabuilderContext.getInstance().register(MetricClient.class, metricClient);
+    return metricClient;
   }
 
   /**
@@ -242,17 +312,21 @@ public class LambdaRequestHandler implements RequestHandler<Map<String, String>,
     if (connectionId == null) {
       throw new InternalFacingException(INVALID_INPUT, new Exception("Missing connection ID"));
     }
-    final AWSOutputAdapter awsOutputAdapter = new AWSOutputAdapter(connectionId, this.apiClient);
-
+    final ExecutionType executionType;
     try {
-      final ExecutionType executionType = ExecutionType.valueOf(lambdaInput.get("executionType"));
-      if (executionType == ExecutionType.TEST) {
-        return new UserTestOutputAdapter(awsOutputAdapter);
-      }
-      return awsOutputAdapter;
+      executionType = ExecutionType.valueOf(lambdaInput.get("executionType"));
     } catch (IllegalArgumentException e) {
       throw new InternalFacingException(INVALID_INPUT, e);
     }
+
+    // Send on a separate thread so the user's program does not wait on API Gateway for each
+    // message.
+    final OutputAdapter asyncOutputAdapter =
+        new AsyncOutputAdapter(new AWSOutputAdapter(connectionId, this.apiClient));
+    if (executionType == ExecutionType.TEST) {
+      return new UserTestOutputAdapter(asyncOutputAdapter);
+    }
+    return asyncOutputAdapter;
   }
 
   /**
@@ -270,25 +344,30 @@ public class LambdaRequestHandler implements RequestHandler<Map<String, String>,
     }
   }
 
+  /** Loads the project's sources and assets list from S3. */
+  private AWSContentManager createContentManager(Map<String, String> lambdaInput, Context context)
+      throws InternalServerException {
+    final String javabuilderSessionId = lambdaInput.get("javabuilderSessionId");
+    return new AWSContentManager(
+        S3_CLIENT, CONTENT_BUCKET_NAME, javabuilderSessionId, CONTENT_BUCKET_URL, context);
+  }
+
   /** Creates the {@link CodeExecutionManager} for building and executing code. */
   private CodeExecutionManager createExecutionManager(
       Map<String, String> lambdaInput,
-      Context context,
       String connectionId,
       OutputAdapter outputAdapter,
-      TempDirectoryManager tempDirectoryManager)
-      throws InternalServerException {
+      TempDirectoryManager tempDirectoryManager,
+      AWSContentManager contentManager) {
     final String queueUrl = lambdaInput.get("queueUrl");
     final String queueName = lambdaInput.get("queueName");
     final ExecutionType executionType = ExecutionType.valueOf(lambdaInput.get("executionType"));
     final JSONObject options = new JSONObject(lambdaInput.get("options"));
-    final String javabuilderSessionId = lambdaInput.get("javabuilderSessionId");
     final List<String> compileList = JSONUtils.listFromJSONObjectMember(options, "compileList");
 
+    // Receives input in the background once the program first reads it; closed when the execution
+    // manager shuts down.
     final AWSInputAdapter inputAdapter = new AWSInputAdapter(SQS_CLIENT, queueUrl, queueName);
-    final AWSContentManager contentManager =
-        new AWSContentManager(
-            S3_CLIENT, CONTENT_BUCKET_NAME, javabuilderSessionId, CONTENT_BUCKET_URL, context);
 
     return new CodeExecutionManager(
         contentManager.getProjectFileLoader(),
@@ -304,9 +383,16 @@ public class LambdaRequestHandler implements RequestHandler<Map<String, String>,
   /**
    * Cleans up resources used by the current invocation, and prepares the container for the next
    * invocation.
+   *
+   * <p>The steps the user waits on come first: stopping the program, sending the rest of its output
+   * and deleting the connection. Housekeeping the user does not see (clearing the temp directory,
+   * publishing metrics and the end-of-session health checks) runs after the connection has been
+   * released, but still before this returns, so none of it carries over into the next invocation.
    */
   private void shutDown(
       CodeExecutionManager executionManager,
+      OutputAdapter outputAdapter,
+      ExceptionHandler exceptionHandler,
       String connectionId,
       AmazonApiGatewayManagementApi api) {
     // No need to shut down if the session is not initialized. This means that we've already shut
@@ -315,9 +401,15 @@ public class LambdaRequestHandler implements RequestHandler<Map<String, String>,
       return;
     }
 
+    PerformanceTracker performanceTracker =
+        (PerformanceTracker) JavabuilderContext.getInstance().get(PerformanceTracker.class);
+    final PerformanceTracker.Phase releasePhase = performanceTracker.startPhase("release");
     if (executionManager != null) {
       try {
         executionManager.shutDown();
+      } catch (FatalError e) {
+        // A fatal error means the container cannot serve another session, so it must still exit.
+        exceptionHandler.handle(e);
       } catch (Throwable e) {
         // Catch any exceptions thrown during shutdown; the program has already terminated,
         // so these don't need to be reported to the user.
@@ -327,30 +419,83 @@ public class LambdaRequestHandler implements RequestHandler<Map<String, String>,
       }
     }
 
-    PerformanceTracker performanceTracker =
-        (PerformanceTracker) JavabuilderContext.getInstance().get(PerformanceTracker.class);
+    // Send anything still queued before the connection is deleted. A failure to send the program's
+    // last messages is handled as it would have been while the program ran, so a fatal error still
+    // shuts down the container.
+    try (PerformanceTracker.Phase flushPhase = performanceTracker.startPhase("flush")) {
+      outputAdapter.close();
+    } catch (Throwable e) {
+      exceptionHandler.handle(e);
+    }
+    this.deleteConnection(connectionId, api);
+
+    releasePhase.close();
+    performanceTracker.trackConnectionReleased();
+    final PerformanceTracker.Phase cleanupPhase = performanceTracker.startPhase("cleanup");
+
+    // Check container health status while the temp directory is cleared. The check runs on another
+    // thread, so it is given the session's metric client rather than looking it up.
+    final MetricClient metricClient =
+        (MetricClient) JavabuilderContext.getInstance().get(MetricClient.class);
+    final Future<Boolean> unhealthyCheck =
+        BACKGROUND_EXECUTOR.submit(
+            () ->
+                this.unhealthyContainerChecker.shouldForceShutdownContainer(
+                    LAMBDA_ID, ShutdownTrigger.END, metricClient));
+    if (executionManager != null) {
+      executionManager.cleanUpTempDirectory();
+    }
+    File f = Paths.get(System.getProperty("java.io.tmpdir")).toFile();
+    final boolean isLowOnDiskSpace = (double) f.getUsableSpace() / f.getTotalSpace() < 0.5;
+    // Wait for the check before the session's shared objects are destroyed, so that a failed lookup
+    // is counted in this session's metrics.
+    final boolean isUnhealthy = this.getUnhealthyCheckResult(unhealthyCheck);
+
+    cleanupPhase.close();
     performanceTracker.trackInstanceEnd();
     performanceTracker.logPerformance();
+    this.apiClientFactory.publishSessionStats(metricClient);
     JavabuilderContext.getInstance().destroyAndReset();
 
-    this.cleanUpAWSResources(connectionId, api);
-
-    File f = Paths.get(System.getProperty("java.io.tmpdir")).toFile();
-    if ((double) f.getUsableSpace() / f.getTotalSpace() < 0.5) {
+    if (isLowOnDiskSpace) {
+      this.removeLogHandlers();
       // The current project holds a lock on too many resources. Force the JVM to quit in
       // order to release the resources for the next use of the container.
       System.exit(LambdaErrorCodes.LOW_DISK_SPACE_ERROR_CODE);
     }
 
-    // Check container health status and exit if the container has been marked unhealthy.
-    this.shutdownContainerIfUnhealthy(ShutdownTrigger.END);
+    // Exit if the container has been marked unhealthy.
+    this.removeLogHandlers();
+    if (isUnhealthy) {
+      System.exit(LambdaErrorCodes.UNHEALTHY_CONTAINER_ERROR_CODE);
+    }
 
     this.isSessionInitialized = false;
   }
 
+  /**
+   * Waits a bounded time for the end-of-session health check. A check that fails or takes too long
+   * counts as healthy, as a failed lookup does in {@link UnhealthyContainerChecker}. A check that
+   * takes too long is left to finish on its own; it only uses the metric client it was given, so it
+   * cannot reach into the next session.
+   */
+  private boolean getUnhealthyCheckResult(Future<Boolean> unhealthyCheck) {
+    try {
+      return unhealthyCheck.get(UNHEALTHY_CHECK_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException | ExecutionException e) {
+      unhealthyCheck.cancel(false);
+      LoggerUtils.logTrackingExceptionAsWarning(e);
+      return false;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
   private Thread createTimeoutThread(
       Context context,
       OutputAdapter outputAdapter,
+      ExceptionHandler exceptionHandler,
       CodeExecutionManager codeExecutionManager,
       String connectionId,
       AmazonApiGatewayManagementApi api) {
@@ -371,8 +516,10 @@ public class LambdaRequestHandler implements RequestHandler<Map<String, String>,
               if (context.getRemainingTimeInMillis() < TIMEOUT_CLEANUP_BUFFER_MS) {
                 LambdaUtils.safelySendMessage(
                     outputAdapter, new StatusMessage(StatusMessageKey.TIMEOUT), true);
-                // Shut down the environment
-                this.shutDown(codeExecutionManager, connectionId, api);
+                // Shut down the environment, which sends the timeout message before deleting the
+                // connection.
+                this.shutDown(
+                    codeExecutionManager, outputAdapter, exceptionHandler, connectionId, api);
                 break;
               }
             } catch (InterruptedException e) {
@@ -386,11 +533,11 @@ public class LambdaRequestHandler implements RequestHandler<Map<String, String>,
    * Note: This can sometimes be called twice when a user's project times out. Make sure anything
    * added here can be run more than once without negative effect.
    */
-  private void cleanUpAWSResources(String connectionId, AmazonApiGatewayManagementApi api) {
+  private void deleteConnection(String connectionId, AmazonApiGatewayManagementApi api) {
     final DeleteConnectionRequest deleteConnectionRequest =
         new DeleteConnectionRequest().withConnectionId(connectionId);
-    // Deleting the API Gateway connection should always be the last thing executed because the
-    // delete action cleans up the AWS resources associated with this lambda
+    // Deleting the API Gateway connection cleans up the AWS resources associated with this
+    // session, such as the input queue, so it must come after everything that uses them.
     try {
       api.deleteConnection(deleteConnectionRequest);
     } catch (GoneException e) {
@@ -401,7 +548,10 @@ public class LambdaRequestHandler implements RequestHandler<Map<String, String>,
       // some reason.
       LoggerUtils.logTrackingExceptionAsWarning(e);
     }
-    // clean up log handler to avoid duplicate logs in future runs.
+  }
+
+  /** Cleans up the log handler to avoid duplicate logs in future runs. */
+  private void removeLogHandlers() {
     Handler[] allHandlers = Logger.getLogger(MAIN_LOGGER).getHandlers();
     for (int i = 0; i < allHandlers.length; i++) {
       Logger.getLogger(MAIN_LOGGER).removeHandler(allHandlers[i]);
@@ -417,11 +567,7 @@ public class LambdaRequestHandler implements RequestHandler<Map<String, String>,
       // This can occur if the api client has been shut down, which we have seen happen on occasion.
       // Recreate the api client in this case. Log a warning so we can track when this happens.
       LoggerUtils.logWarning("API Gateway Client Gone", e.getMessage());
-      this.apiClient =
-          AmazonApiGatewayManagementApiClientBuilder.standard()
-              .withEndpointConfiguration(
-                  new AwsClientBuilder.EndpointConfiguration(API_ENDPOINT, "us-east-1"))
-              .build();
+      this.apiClient = this.apiClientFactory.create();
     }
   }
 
@@ -429,8 +575,9 @@ public class LambdaRequestHandler implements RequestHandler<Map<String, String>,
    * Checks if this container has been marked unhealthy and if so, forces a shutdown via
    * System.exit().
    */
-  private void shutdownContainerIfUnhealthy(ShutdownTrigger trigger) {
-    if (this.unhealthyContainerChecker.shouldForceShutdownContainer(LAMBDA_ID, trigger)) {
+  private void shutdownContainerIfUnhealthy(ShutdownTrigger trigger, MetricClient metricClient) {
+    if (this.unhealthyContainerChecker.shouldForceShutdownContainer(
+        LAMBDA_ID, trigger, metricClient)) {
       System.exit(LambdaErrorCodes.UNHEALTHY_CONTAINER_ERROR_CODE);
     }
   }
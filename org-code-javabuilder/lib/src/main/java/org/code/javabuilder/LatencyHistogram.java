@@ -0,0 +1,74 @@
+package org.code.javabuilder;
+
+/**
+ * Counts recorded values in log-linear buckets, in the style of an HDR histogram: every power of
+ * two is split into the same number of equal buckets, so any value is counted in a bucket no wider
+ * than about 3% of the value. This keeps percentiles accurate from microseconds to minutes in a
+ * fixed, small amount of memory, however many values are recorded.
+ */
+class LatencyHistogram {
+  // Each power of two above 2 * SUB_BUCKET_HALF is split into SUB_BUCKET_HALF buckets. Smaller
+  // values are counted exactly.
+  private static final int SUB_BUCKET_BITS = 6;
+  private static final int SUB_BUCKET_HALF = 1 << (SUB_BUCKET_BITS - 1);
+  private static final int BUCKET_COUNT = getIndex(Long.MAX_VALUE) + 1;
+
+  private final long[] counts;
+  private long totalCount;
+  private long maxValue;
+
+  LatencyHistogram() {
+    this.counts = new long[BUCKET_COUNT];
+  }
+
+  /** Records a value. Negative values are recorded as 0. */
+  void record(long value) {
+    final long recordedValue = Math.max(0, value);
+    this.counts[getIndex(recordedValue)]++;
+    this.totalCount++;
+    this.maxValue = Math.max(this.maxValue, recordedValue);
+  }
+
+  long getTotalCount() {
+    return this.totalCount;
+  }
+
+  long getMaxValue() {
+    return this.maxValue;
+  }
+
+  /**
+   * @param percentile between 0 and 100
+   * @return the largest value that could have been counted in the bucket holding the given
+   *     percentile, or 0 if nothing has been recorded
+   */
+  long getValueAtPercentile(double percentile) {
+    final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * this.totalCount));
+    long count = 0;
+    for (int i = 0; i < this.counts.length; i++) {
+      count += this.counts[i];
+      if (count >= rank) {
+        return Math.min(getHighestValue(i), this.maxValue);
+      }
+    }
+    return this.maxValue;
+  }
+
+  private static int getIndex(long value) {
+    if (value < 2 * SUB_BUCKET_HALF) {
+      return (int) value;
+    }
+    // Keep the SUB_BUCKET_BITS most significant bits of the value.
+    final int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+    return shift * SUB_BUCKET_HALF + (int) (value >>> shift);
+  }
+
+  private static long getHighestValue(int index) {
+    if (index < 2 * SUB_BUCKET_HALF) {
+      return index;
+    }
+    final int shift = index / SUB_BUCKET_HALF - 1;
+    final long subBucket = index - (long) shift * SUB_BUCKET_HALF;
+    return ((subBucket + 1) << shift) - 1;
+  }
+}
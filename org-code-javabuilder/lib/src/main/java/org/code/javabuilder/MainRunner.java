@@ -38,7 +38,11 @@ public class MainRunner implements CodeRunner {
 
     try {
       // load and run the main method of the class
-      Method mainMethod = ProjectLoadUtils.findMainMethod(urlClassLoader, this.javaFiles);
+      final Method mainMethod;
+      try (PerformanceTracker.Phase classLoadPhase =
+          PerformanceTracker.startSessionPhase("classload")) {
+        mainMethod = ProjectLoadUtils.findMainMethod(urlClassLoader, this.javaFiles);
+      }
       if (mainMethod == null) {
         throw new UserInitiatedException(UserInitiatedExceptionKey.NO_MAIN_METHOD);
       }
@@ -0,0 +1,117 @@
+package org.code.javabuilder;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import org.code.protocol.ClientMessage;
+import org.code.protocol.ClientMessageSerializer;
+import org.code.protocol.ClientMessageType;
+import org.code.protocol.OutputAdapter;
+import org.json.JSONObject;
+
+/**
+ * The total amount of output a program may send in one session. Console output is counted as it is
+ * written to {@link OutputRedirectionStream}, and neighborhood and theater messages are counted as
+ * they are sent through the adapter returned by {@link #limit(OutputAdapter)}. Both are counted on
+ * the program's own threads, so once the budget is spent the program is stopped with
+ * TOO_MUCH_OUTPUT before any more of its output is queued.
+ *
+ * <p>Status, exception and test messages do not count against the budget, so the user is still
+ * told why their program stopped.
+ */
+public class OutputBudget {
+  // Far more than any exercise prints, but small enough that a runaway loop cannot flood the
+  // client with output.
+  private static final long DEFAULT_MAX_OUTPUT_BYTES = 16 * 1024 * 1024;
+  private static final Set<ClientMessageType> LIMITED_MESSAGE_TYPES =
+      EnumSet.of(ClientMessageType.NEIGHBORHOOD, ClientMessageType.THEATER);
+
+  private final long maxOutputBytes;
+  private final AtomicLong spentBytes;
+
+  public OutputBudget() {
+    this(DEFAULT_MAX_OUTPUT_BYTES);
+  }
+
+  /** @param maxOutputBytes the total number of bytes of output allowed in the session */
+  public OutputBudget(long maxOutputBytes) {
+    this.maxOutputBytes = maxOutputBytes;
+    this.spentBytes = new AtomicLong();
+  }
+
+  /**
+   * Counts output against the budget.
+   *
+   * @param bytes the size of the output
+   * @throws UserInitiatedRuntimeException TOO_MUCH_OUTPUT if the output does not fit in what is
+   *     left of the budget, in which case it is not counted
+   */
+  public void spend(long bytes) {
+    long spent;
+    do {
+      spent = this.spentBytes.get();
+      if (spent + bytes > this.maxOutputBytes) {
+        throw new UserInitiatedRuntimeException(
+            UserInitiatedExceptionKey.TOO_MUCH_OUTPUT,
+            String.format(
+                "Your program sent too much output. We currently support up to %s bytes of output"
+                    + " per run.\n",
+                this.maxOutputBytes));
+      }
+    } while (!this.spentBytes.compareAndSet(spent, spent + bytes));
+  }
+
+  /**
+   * @return an adapter that counts each neighborhood and theater message against this budget by
+   *     {@link #estimateSize(ClientMessage)}, then passes it to the given adapter
+   */
+  public OutputAdapter limit(OutputAdapter outputAdapter) {
+    return new LimitedOutputAdapter(outputAdapter);
+  }
+
+  /**
+   * @return the number of bytes the message's type, value and detail take once encoded, leaving out
+   *     the JSON around them. Programs send tens of thousands of these messages, so this avoids
+   *     serializing each one here as well as in the output adapter.
+   */
+  static long estimateSize(ClientMessage message) {
+    long size = message.getType().name().length();
+    if (message.getValue() != null) {
+      size += ClientMessageSerializer.getEncodedLength(message.getValue());
+    }
+    final JSONObject detail = message.getDetail();
+    if (detail != null) {
+      for (String key : detail.keySet()) {
+        size += ClientMessageSerializer.getEncodedLength(key);
+        size += ClientMessageSerializer.getEncodedLength(String.valueOf(detail.opt(key)));
+      }
+    }
+    return size;
+  }
+
+  private class LimitedOutputAdapter implements OutputAdapter {
+    private final OutputAdapter delegate;
+
+    private LimitedOutputAdapter(OutputAdapter delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void sendMessage(ClientMessage message) {
+      if (LIMITED_MESSAGE_TYPES.contains(message.getType())) {
+        OutputBudget.this.spend(estimateSize(message));
+      }
+      this.delegate.sendMessage(message);
+    }
+
+    @Override
+    public void flush() {
+      this.delegate.flush();
+    }
+
+    @Override
+    public void close() {
+      this.delegate.close();
+    }
+  }
+}
@@ -1,6 +1,13 @@
 package org.code.javabuilder;
 
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
 import org.code.protocol.OutputAdapter;
 
 /**
@@ -8,15 +15,39 @@ import org.code.protocol.OutputAdapter;
  * the user program that is intended for the console. See
  * https://docs.oracle.com/javase/8/docs/api/java/io/OutputStream.html for full implementation
  * details and contract.
+ *
+ * <p>Bytes are buffered as written and decoded as UTF-8 when flushed. A multi-byte character split
+ * across two flushes is held back until the rest of it is written.
+ *
+ * <p>Every byte written is counted against the session's {@link OutputBudget}. Once the budget is
+ * spent, anything buffered is sent and every further write throws TOO_MUCH_OUTPUT.
  */
 public class OutputRedirectionStream extends OutputStream {
+  private static final int INITIAL_BUFFER_SIZE = 256;
+
   private final OutputAdapter outputAdapter;
-  private final StringBuilder buffer;
+  private final OutputBudget outputBudget;
+  private final CharsetDecoder decoder;
+  private byte[] buffer;
+  private int count;
+  private CharBuffer decodedChars;
 
   public OutputRedirectionStream(OutputAdapter outputAdapter) {
+    this(outputAdapter, new OutputBudget());
+  }
+
+  /** @param outputBudget the budget each written byte is counted against */
+  public OutputRedirectionStream(OutputAdapter outputAdapter, OutputBudget outputBudget) {
     super();
     this.outputAdapter = outputAdapter;
-    this.buffer = new StringBuilder();
+    this.outputBudget = outputBudget;
+    this.decoder =
+        StandardCharsets.UTF_8
+            .newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    this.buffer = new byte[INITIAL_BUFFER_SIZE];
+    this.decodedChars = CharBuffer.allocate(INITIAL_BUFFER_SIZE);
   }
 
   /**
@@ -27,7 +58,8 @@ public class OutputRedirectionStream extends OutputStream {
    */
   @Override
   public void write(int b) {
-    buffer.append((char) b);
+    this.reserve(1);
+    buffer[count++] = (byte) b;
   }
 
   /** See: https://docs.oracle.com/javase/8/docs/api/java/io/OutputStream.html#write-byte:A- */
@@ -41,15 +73,10 @@ public class OutputRedirectionStream extends OutputStream {
    */
   @Override
   public void write(byte[] b, int off, int len) {
-    if (b == null) {
-      throw new NullPointerException();
-    }
-    if (off < 0 || len < 0 || off + len > b.length) {
-      throw new IndexOutOfBoundsException();
-    }
-    for (int i = off; i < off + len; i++) {
-      buffer.append((char) b[i]);
-    }
+    Objects.checkFromIndexSize(off, len, b.length);
+    this.reserve(len);
+    System.arraycopy(b, off, buffer, count, len);
+    count += len;
   }
 
   /**
@@ -58,11 +85,54 @@ public class OutputRedirectionStream extends OutputStream {
    */
   @Override
   public void flush() {
-    if (buffer.length() == 0) {
+    this.decodeAndSend(false);
+  }
+
+  /** Sends anything left in the buffer, including an incomplete character as a replacement. */
+  @Override
+  public void close() {
+    this.decodeAndSend(true);
+  }
+
+  /** Counts len bytes against the output budget, and makes room for them in the buffer. */
+  private void reserve(int len) {
+    try {
+      outputBudget.spend(len);
+    } catch (UserInitiatedRuntimeException e) {
+      // Let the user see everything up to the limit before the error.
+      this.flush();
+      throw e;
+    }
+    if (count + len > buffer.length) {
+      buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, count + len));
+    }
+  }
+
+  private void decodeAndSend(boolean endOfInput) {
+    if (count == 0) {
       return;
     }
 
-    outputAdapter.sendMessage(new SystemOutMessage(buffer.toString()));
-    buffer.delete(0, buffer.length());
+    // UTF-8 never decodes to more chars than it has bytes.
+    if (decodedChars.capacity() < count) {
+      decodedChars = CharBuffer.allocate(Math.max(decodedChars.capacity() * 2, count));
+    }
+    final ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, count);
+    decodedChars.clear();
+    decoder.reset();
+    decoder.decode(bytes, decodedChars, endOfInput);
+    if (endOfInput) {
+      decoder.flush(decodedChars);
+    }
+
+    // Keep the start of a character whose remaining bytes have not been written yet.
+    final int remaining = bytes.remaining();
+    System.arraycopy(buffer, bytes.position(), buffer, 0, remaining);
+    count = remaining;
+
+    if (decodedChars.position() > 0) {
+      outputAdapter.sendMessage(
+          new SystemOutMessage(new String(decodedChars.array(), 0, decodedChars.position())));
+    }
   }
 }
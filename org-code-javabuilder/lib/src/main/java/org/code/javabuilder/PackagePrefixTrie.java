@@ -0,0 +1,44 @@
+package org.code.javabuilder;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A set of name prefixes, such as allowed package names, stored as a character trie so that
+ * checking whether a name starts with any of them takes one pass over the name rather than one
+ * {@link String#startsWith(String)} call per prefix.
+ */
+public class PackagePrefixTrie {
+  private final Node root;
+
+  public PackagePrefixTrie(String... prefixes) {
+    this.root = new Node();
+    for (String prefix : prefixes) {
+      Node node = this.root;
+      for (int i = 0; i < prefix.length(); i++) {
+        node = node.children.computeIfAbsent(prefix.charAt(i), character -> new Node());
+      }
+      node.isPrefixEnd = true;
+    }
+  }
+
+  /** @return true if the name starts with any of the prefixes */
+  public boolean matchesPrefixOf(String name) {
+    Node node = this.root;
+    for (int i = 0; i < name.length(); i++) {
+      if (node.isPrefixEnd) {
+        return true;
+      }
+      node = node.children.get(name.charAt(i));
+      if (node == null) {
+        return false;
+      }
+    }
+    return node.isPrefixEnd;
+  }
+
+  private static class Node {
+    private final Map<Character, Node> children = new HashMap<>();
+    private boolean isPrefixEnd;
+  }
+}
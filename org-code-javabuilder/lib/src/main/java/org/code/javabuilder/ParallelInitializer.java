@@ -0,0 +1,126 @@
+package org.code.javabuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import org.code.protocol.InternalExceptionKey;
+
+/**
+ * Runs independent steps of session setup, such as network round trips, at the same time rather
+ * than one after another. {@link #await()} waits until every step has finished, or until the first
+ * one fails; in that case the remaining steps are cancelled and the failure is thrown to the
+ * caller as though the step had run on the caller's thread.
+ */
+class ParallelInitializer {
+  private final ExecutorService executor;
+  private final List<Future<?>> steps;
+  // Each step adds itself here when it finishes, so await() sees failures in the order they happen.
+  private final BlockingQueue<Future<?>> finishedSteps;
+
+  ParallelInitializer(ExecutorService executor) {
+    this.executor = executor;
+    this.steps = new ArrayList<>();
+    this.finishedSteps = new LinkedBlockingQueue<>();
+  }
+
+  /**
+   * Creates an executor for running steps. It should be created outside of the user's program and
+   * shared between sessions, since its threads inherit the permissions of the code that creates
+   * them.
+   */
+  static ExecutorService createExecutor(int threadCount) {
+    return Executors.newFixedThreadPool(
+        threadCount,
+        runnable -> {
+          final Thread thread = new Thread(runnable, "javabuilder-initializer");
+          thread.setDaemon(true);
+          return thread;
+        });
+  }
+
+  /** Starts a step that produces a result, which can be read with {@link #get(Future)}. */
+  <T> Future<T> submit(Callable<T> step) {
+    final FutureTask<T> task =
+        new FutureTask<>(step) {
+          @Override
+          protected void done() {
+            finishedSteps.add(this);
+          }
+        };
+    this.steps.add(task);
+    this.executor.execute(task);
+    return task;
+  }
+
+  /** Starts a step that has no result. */
+  Future<?> submit(Runnable step) {
+    return this.submit(Executors.callable(step));
+  }
+
+  /**
+   * Waits for every step to finish.
+   *
+   * @throws InternalServerException if a step threw a checked exception other than an
+   *     InternalServerException, or this thread was interrupted. Runtime exceptions and errors from
+   *     a step are thrown unchanged.
+   */
+  void await() throws InternalServerException {
+    for (int i = 0; i < this.steps.size(); i++) {
+      final Future<?> step;
+      try {
+        step = this.finishedSteps.take();
+      } catch (InterruptedException e) {
+        this.cancel();
+        Thread.currentThread().interrupt();
+        throw new InternalServerException(InternalExceptionKey.INTERNAL_EXCEPTION, e);
+      }
+      this.get(step);
+    }
+  }
+
+  /**
+   * Waits for a step and returns its result, throwing its failure as {@link #await()} does.
+   *
+   * @throws InternalServerException see {@link #await()}
+   */
+  <T> T get(Future<T> step) throws InternalServerException {
+    try {
+      return step.get();
+    } catch (ExecutionException e) {
+      this.cancel();
+      final Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      if (cause instanceof InternalServerException) {
+        throw (InternalServerException) cause;
+      }
+      throw new InternalServerException(InternalExceptionKey.INTERNAL_EXCEPTION, cause);
+    } catch (InterruptedException e) {
+      this.cancel();
+      Thread.currentThread().interrupt();
+      throw new InternalServerException(InternalExceptionKey.INTERNAL_EXCEPTION, e);
+    }
+  }
+
+  /**
+   * Cancels every step, so that steps that have not started never run. Steps that are already
+   * running are not interrupted and finish on their own, since an interrupted SDK call or a
+   * half-cleared temp directory would only add noise to the error being reported.
+   */
+  void cancel() {
+    for (Future<?> step : this.steps) {
+      step.cancel(false);
+    }
+  }
+}
@@ -1,8 +1,13 @@
 package org.code.javabuilder;
 
 import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import org.code.protocol.*;
+import org.json.JSONArray;
 import org.json.JSONObject;
 
 /**
@@ -13,6 +18,12 @@ import org.json.JSONObject;
  * Throughout the execution of a student's project, events can be logged to the performance tracker.
  * Then, at the end of the project execution, PerformanceTracker.logPerformance can be invoked in
  * order to create a single record of the performance of the project execution.
+ *
+ * <p>Alongside those events, the tracker records a timeline of named phases with nanosecond
+ * timers. A phase started while another phase is open on the same thread is nested inside it, and
+ * is named after it: a "classload" phase started during "execute" is recorded as
+ * "execute.classload". The time spent in each phase is also collected across sessions by {@link
+ * PhaseTimeHistograms}, which publishes percentiles for each phase.
  */
 public class PerformanceTracker extends JavabuilderSharedObject {
   private static final String FIRST_INSTANCE = "firstInstance";
@@ -23,16 +34,78 @@ public class PerformanceTracker extends JavabuilderSharedObject {
   private static final String COMPILE_START = "compileStart";;
   private static final String INITIALIZATION_TIME = "initializationTime";
   private static final String COMPILE_END = "compileEnd";
+  private static final String COMPILE_PHASE_TIMES = "compilePhaseTimes";
+  private static final String COMPILED_CLASS_COUNT = "compiledClassCount";
+  private static final String COMPILE_ALLOCATED_BYTES = "compileAllocatedBytes";
   private static final String USER_CODE_START = "userCodeStart";
   private static final String TRANSITION_TIME = "transitionTime";
   private static final String USER_CODE_END = "userCodeEnd";
+  private static final String CONNECTION_RELEASED = "connectionReleased";
+  private static final String USER_VISIBLE_CLEANUP_TIME = "userVisibleCleanupTime";
   private static final String INSTANCE_END = "instanceEnd";
   private static final String CLEANUP_TIME = "cleanupTime";
+  private static final String PHASES = "phases";
+  private static final String PHASE_NAME = "name";
+  private static final String PHASE_START = "start";
+  private static final String PHASE_DURATION = "duration";
   private static final String TYPE = "performanceReport";
+  // Every session run by this JVM (a Lambda container, or the local server) adds to these.
+  private static final PhaseTimeHistograms CONTAINER_PHASE_TIMES =
+      new PhaseTimeHistograms(Duration.ofMinutes(1));
+  // Returned when there is no tracker for the session, such as in unit tests.
+  private static final Phase UNTRACKED_PHASE = new Phase(null, null, null, 0);
+
   private final JSONObject logs;
+  private final PhaseTimeHistograms phaseTimeHistograms;
+  // Guarded by itself. Phases are added from setup threads as well as the session's thread.
+  private final List<PhaseTime> phaseTimes;
+  private final ThreadLocal<Phase> currentPhase;
 
   public PerformanceTracker() {
+    this(CONTAINER_PHASE_TIMES);
+  }
+
+  // Visible for testing
+  PerformanceTracker(PhaseTimeHistograms phaseTimeHistograms) {
     this.logs = new JSONObject();
+    this.phaseTimeHistograms = phaseTimeHistograms;
+    this.phaseTimes = new ArrayList<>();
+    this.currentPhase = new ThreadLocal<>();
+  }
+
+  /**
+   * Starts a phase on the current session's tracker. Code that may run without a tracker, such as
+   * in unit tests, can use this instead of looking the tracker up.
+   */
+  public static Phase startSessionPhase(String name) {
+    if (!JavabuilderContext.getInstance().containsKey(PerformanceTracker.class)) {
+      return UNTRACKED_PHASE;
+    }
+    return ((PerformanceTracker) JavabuilderContext.getInstance().get(PerformanceTracker.class))
+        .startPhase(name);
+  }
+
+  /**
+   * Starts a phase, nested inside the phase open on this thread if there is one. The phase ends
+   * when it is closed, so it is best started in a try-with-resources statement.
+   */
+  public Phase startPhase(String name) {
+    final Phase parent = this.currentPhase.get();
+    final Phase phase = new Phase(this, this.getPhaseName(parent, name), parent, System.nanoTime());
+    this.currentPhase.set(phase);
+    return phase;
+  }
+
+  /**
+   * Records a phase that was timed elsewhere, such as on a thread that started before this tracker
+   * was created. It is nested inside the phase open on this thread if there is one.
+   *
+   * @param startNanos the {@link System#nanoTime()} when the phase started
+   * @param endNanos the {@link System#nanoTime()} when the phase ended
+   */
+  public void trackPhase(String name, long startNanos, long endNanos) {
+    this.addPhaseTime(
+        this.getPhaseName(this.currentPhase.get(), name), startNanos, endNanos - startNanos);
   }
 
   public void trackColdBoot(Instant coldBootStart, Instant coldBootEnd, Instant instanceStart) {
@@ -60,6 +133,21 @@ public class PerformanceTracker extends JavabuilderSharedObject {
     logs.put(COMPILE_END, Clock.systemUTC().instant().toEpochMilli());
   }
 
+  /**
+   * Records how long javac spent in each phase of compiling the user's code, and how much work it
+   * did. Only recorded when the code was actually compiled rather than reused from a cache.
+   *
+   * @param phaseTimes milliseconds spent in each phase (parse, enter, analyze, generate)
+   * @param classCount the number of classes generated
+   * @param allocatedBytes the bytes javac allocated
+   */
+  public void trackCompilePhases(
+      Map<String, Long> phaseTimes, long classCount, long allocatedBytes) {
+    logs.put(COMPILE_PHASE_TIMES, new JSONObject(phaseTimes));
+    logs.put(COMPILED_CLASS_COUNT, classCount);
+    logs.put(COMPILE_ALLOCATED_BYTES, allocatedBytes);
+  }
+
   public void trackUserCodeStart() {
     logs.put(USER_CODE_START, Clock.systemUTC().instant().toEpochMilli());
   }
@@ -68,6 +156,14 @@ public class PerformanceTracker extends JavabuilderSharedObject {
     logs.put(USER_CODE_END, Clock.systemUTC().instant().toEpochMilli());
   }
 
+  /**
+   * Marks the end of the cleanup the user waits on: the program has exited, its output has been
+   * sent and the connection has been deleted. Cleanup after this point is housekeeping.
+   */
+  public void trackConnectionReleased() {
+    logs.put(CONNECTION_RELEASED, Clock.systemUTC().instant().toEpochMilli());
+  }
+
   public void trackInstanceEnd() {
     logs.put(INSTANCE_END, Clock.systemUTC().instant().toEpochMilli());
   }
@@ -76,6 +172,8 @@ public class PerformanceTracker extends JavabuilderSharedObject {
     logs.put(LoggerConstants.TYPE, TYPE);
     MetricClient metricClient =
         (MetricClient) JavabuilderContext.getInstance().get(MetricClient.class);
+    this.trackPhaseTimes();
+    this.phaseTimeHistograms.publishIfDue(metricClient);
     if (!logs.isNull(COLD_BOOT_START) && !logs.isNull(COLD_BOOT_END)) {
       long coldBootTime = logs.getLong(COLD_BOOT_END) - logs.getLong(COLD_BOOT_START);
       logs.put(COLD_BOOT_TIME, coldBootTime);
@@ -88,6 +186,13 @@ public class PerformanceTracker extends JavabuilderSharedObject {
       metricClient.publishInitializationTime(initializationTime);
     }
 
+    if (!logs.isNull(COMPILE_PHASE_TIMES)) {
+      JSONObject phaseTimes = logs.getJSONObject(COMPILE_PHASE_TIMES);
+      for (String phase : phaseTimes.keySet()) {
+        metricClient.publishCompilePhaseTime(phase, phaseTimes.getLong(phase));
+      }
+    }
+
     if (!logs.isNull(COMPILE_END) && !logs.isNull(USER_CODE_START)) {
       long transitionTime = logs.getLong(USER_CODE_START) - logs.getLong(COMPILE_END);
       logs.put(TRANSITION_TIME, transitionTime);
@@ -100,6 +205,113 @@ public class PerformanceTracker extends JavabuilderSharedObject {
       metricClient.publishCleanupTime(cleanupTime);
     }
 
+    if (!logs.isNull(USER_CODE_END) && !logs.isNull(CONNECTION_RELEASED)) {
+      long userVisibleCleanupTime =
+          logs.getLong(CONNECTION_RELEASED) - logs.getLong(USER_CODE_END);
+      logs.put(USER_VISIBLE_CLEANUP_TIME, userVisibleCleanupTime);
+      metricClient.publishUserVisibleCleanupTime(userVisibleCleanupTime);
+    }
+
     LoggerUtils.logInfo(logs.toString());
   }
+
+  /**
+   * Adds the phases recorded so far to the log as a timeline, with times in milliseconds from the
+   * start of the earliest phase, and to the container's phase time histograms.
+   */
+  private void trackPhaseTimes() {
+    final List<PhaseTime> phases;
+    synchronized (this.phaseTimes) {
+      phases = new ArrayList<>(this.phaseTimes);
+      // Each phase is added to the histograms once, even if performance is logged again.
+      this.phaseTimes.clear();
+    }
+    if (phases.isEmpty()) {
+      return;
+    }
+    long originNanos = phases.get(0).startNanos;
+    for (PhaseTime phase : phases) {
+      originNanos = Math.min(originNanos, phase.startNanos);
+    }
+    final JSONArray timeline = new JSONArray();
+    for (PhaseTime phase : phases) {
+      final JSONObject phaseLog = new JSONObject();
+      phaseLog.put(PHASE_NAME, phase.name);
+      phaseLog.put(PHASE_START, toMillis(phase.startNanos - originNanos));
+      phaseLog.put(PHASE_DURATION, toMillis(phase.durationNanos));
+      timeline.put(phaseLog);
+      this.phaseTimeHistograms.record(phase.name, phase.durationNanos);
+    }
+    logs.put(PHASES, timeline);
+  }
+
+  private void endPhase(Phase phase) {
+    this.addPhaseTime(phase.name, phase.startNanos, System.nanoTime() - phase.startNanos);
+    if (this.currentPhase.get() == phase) {
+      this.currentPhase.set(phase.parent);
+    }
+  }
+
+  private void addPhaseTime(String name, long startNanos, long durationNanos) {
+    synchronized (this.phaseTimes) {
+      this.phaseTimes.add(new PhaseTime(name, startNanos, durationNanos));
+    }
+  }
+
+  private String getPhaseName(Phase parent, String name) {
+    return parent == null ? name : parent.name + "." + name;
+  }
+
+  /** @return the given nanoseconds in milliseconds, to the nearest microsecond */
+  private static double toMillis(long nanos) {
+    return Math.round(nanos / 1_000.0) / 1_000.0;
+  }
+
+  /** A phase of the session that has been started and not yet closed. */
+  public static class Phase implements AutoCloseable {
+    private final PerformanceTracker tracker;
+    private final String name;
+    private final Phase parent;
+    private final long startNanos;
+    private boolean isClosed;
+
+    private Phase(PerformanceTracker tracker, String name, Phase parent, long startNanos) {
+      this.tracker = tracker;
+      this.name = name;
+      this.parent = parent;
+      this.startNanos = startNanos;
+    }
+
+    /**
+     * Records a part of this phase that was timed elsewhere, and only its total time is known,
+     * such as a compiler pass that runs once per file. It is recorded as starting with this phase.
+     */
+    public void trackSubPhase(String name, long durationNanos) {
+      if (this.tracker != null) {
+        this.tracker.addPhaseTime(this.name + "." + name, this.startNanos, durationNanos);
+      }
+    }
+
+    /** Ends the phase. Phases should be closed in the reverse of the order they were started. */
+    @Override
+    public void close() {
+      if (this.tracker == null || this.isClosed) {
+        return;
+      }
+      this.isClosed = true;
+      this.tracker.endPhase(this);
+    }
+  }
+
+  private static class PhaseTime {
+    private final String name;
+    private final long startNanos;
+    private final long durationNanos;
+
+    private PhaseTime(String name, long startNanos, long durationNanos) {
+      this.name = name;
+      this.startNanos = startNanos;
+      this.durationNanos = durationNanos;
+    }
+  }
 }
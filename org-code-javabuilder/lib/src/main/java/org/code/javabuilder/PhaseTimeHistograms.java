@@ -0,0 +1,63 @@
+package org.code.javabuilder;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.code.protocol.MetricClient;
+
+/**
+ * Collects the time spent in each phase of a session, as recorded by {@link PerformanceTracker},
+ * across every session run by this container. The percentiles of each phase are published through
+ * the {@link MetricClient} at most once per publish interval, and the histograms start over after
+ * each publish.
+ */
+class PhaseTimeHistograms {
+  static final String P50 = "p50";
+  static final String P95 = "p95";
+  static final String P99 = "p99";
+  static final String MAX = "max";
+
+  private final long publishIntervalNanos;
+  // Guarded by this
+  private final Map<String, LatencyHistogram> histograms;
+  private long nextPublishNanos;
+
+  PhaseTimeHistograms(Duration publishInterval) {
+    this.publishIntervalNanos = publishInterval.toNanos();
+    this.histograms = new LinkedHashMap<>();
+    // Publish after the first session, in case the container is not used again.
+    this.nextPublishNanos = System.nanoTime();
+  }
+
+  synchronized void record(String phase, long durationNanos) {
+    this.histograms
+        .computeIfAbsent(phase, name -> new LatencyHistogram())
+        .record(durationNanos / 1_000);
+  }
+
+  /** Publishes every phase's percentiles, in milliseconds, if the publish interval has passed. */
+  void publishIfDue(MetricClient metricClient) {
+    this.publishIfDue(metricClient, System.nanoTime());
+  }
+
+  // Visible for testing
+  synchronized void publishIfDue(MetricClient metricClient, long nowNanos) {
+    if (this.histograms.isEmpty() || nowNanos - this.nextPublishNanos < 0) {
+      return;
+    }
+    for (Map.Entry<String, LatencyHistogram> entry : this.histograms.entrySet()) {
+      final String phase = entry.getKey();
+      final LatencyHistogram histogram = entry.getValue();
+      metricClient.publishPhaseTime(phase, P50, toMillis(histogram.getValueAtPercentile(50)));
+      metricClient.publishPhaseTime(phase, P95, toMillis(histogram.getValueAtPercentile(95)));
+      metricClient.publishPhaseTime(phase, P99, toMillis(histogram.getValueAtPercentile(99)));
+      metricClient.publishPhaseTime(phase, MAX, toMillis(histogram.getMaxValue()));
+    }
+    this.histograms.clear();
+    this.nextPublishNanos = nowNanos + this.publishIntervalNanos;
+  }
+
+  private static double toMillis(long micros) {
+    return micros / 1_000.0;
+  }
+}
@@ -0,0 +1,195 @@
+package org.code.javabuilder;
+
+import java.io.FileNotFoundException;
+import java.util.List;
+import org.code.protocol.*;
+
+/**
+ * Runs a few built-in sample sessions against local stand-in adapters, so the first student on a
+ * container does not pay for class loading, interpreting and JIT compiling the compile-and-run
+ * path. The samples cover compiling and running a console program, running a JUnit test through
+ * {@link BaseTestRunner}, rendering a theater scene through ConcertCreator, and serializing the
+ * {@link ClientMessage}s each of those sends.
+ *
+ * <p>This can run during container init, or before a checkpoint is taken on runtimes that snapshot
+ * an initialized container. Nothing is sent anywhere, and the {@link JavabuilderContext} is reset
+ * afterwards so no per-session state is left behind.
+ */
+public class SessionPrimer {
+  private static final String CONSOLE_MAIN_SOURCE =
+      "import java.util.ArrayList;\n"
+          + "import java.util.List;\n"
+          + "public class PrimerMain {\n"
+          + "  public static void main(String[] args) {\n"
+          + "    List<Integer> squares = new ArrayList<>();\n"
+          + "    for (int i = 0; i < 100; i++) {\n"
+          + "      squares.add(i * i);\n"
+          + "    }\n"
+          + "    System.out.println(\"Squares: \" + squares.size() + \" \" + squares.get(9));\n"
+          + "  }\n"
+          + "}\n";
+  private static final String CONSOLE_TEST_SOURCE =
+      "import static org.junit.jupiter.api.Assertions.assertEquals;\n"
+          + "import org.junit.jupiter.api.Test;\n"
+          + "public class PrimerMainTest {\n"
+          + "  @Test\n"
+          + "  public void addsNumbers() {\n"
+          + "    assertEquals(4, 2 + 2);\n"
+          + "  }\n"
+          + "}\n";
+  private static final String THEATER_MAIN_SOURCE =
+      "import org.code.theater.Scene;\n"
+          + "import org.code.theater.Theater;\n"
+          + "public class PrimerTheater {\n"
+          + "  public static void main(String[] args) {\n"
+          + "    Scene scene = new Scene();\n"
+          + "    scene.clear(\"white\");\n"
+          + "    scene.setFillColor(\"blue\");\n"
+          + "    scene.drawRectangle(50, 50, 100, 100);\n"
+          + "    scene.drawText(\"Hello\", 100, 300);\n"
+          + "    scene.playNote(60, 0.1);\n"
+          + "    Theater.playScenes(scene);\n"
+          + "  }\n"
+          + "}\n";
+
+  /**
+   * Runs every sample. A sample that fails is logged and skipped, since priming is only an
+   * optimization and must never stop the container from serving students.
+   */
+  public void prime() {
+    this.primeSession(ExecutionType.RUN, "PrimerMain.java", CONSOLE_MAIN_SOURCE);
+    this.primeSession(
+        ExecutionType.TEST,
+        "PrimerMain.java",
+        CONSOLE_MAIN_SOURCE,
+        "PrimerMainTest.java",
+        CONSOLE_TEST_SOURCE);
+    this.primeSession(ExecutionType.RUN, "PrimerTheater.java", THEATER_MAIN_SOURCE);
+    JavabuilderContext.getInstance().destroyAndReset();
+  }
+
+  /** @param files alternating file names and sources */
+  private void primeSession(ExecutionType executionType, String... files) {
+    JavabuilderContext.getInstance().destroyAndReset();
+    JavabuilderContext.getInstance().register(PerformanceTracker.class, new PerformanceTracker());
+    JavabuilderContext.getInstance().register(MetricClient.class, new PrimerMetricClient());
+
+    CodeExecutionManager codeExecutionManager = null;
+    try {
+      final UserProjectFiles projectFiles = new UserProjectFiles();
+      for (int i = 0; i < files.length; i += 2) {
+        projectFiles.addJavaFile(new JavaProjectFile(files[i], files[i + 1]));
+      }
+      codeExecutionManager =
+          new CodeExecutionManager(
+              new PrimerProjectFileLoader(projectFiles),
+              () -> null,
+              new PrimerOutputAdapter(),
+              executionType,
+              List.of(),
+              tempFolder -> {},
+              new PrimerContentManager(),
+              status -> {});
+      codeExecutionManager.execute();
+    } catch (Throwable e) {
+      LoggerUtils.logTrackingExceptionAsWarning(e);
+    } finally {
+      if (codeExecutionManager != null) {
+        codeExecutionManager.shutDown();
+      }
+    }
+  }
+
+  private static class PrimerProjectFileLoader implements ProjectFileLoader {
+    private final UserProjectFiles projectFiles;
+
+    private PrimerProjectFileLoader(UserProjectFiles projectFiles) {
+      this.projectFiles = projectFiles;
+    }
+
+    @Override
+    public UserProjectFiles loadFiles() {
+      return this.projectFiles;
+    }
+
+    @Override
+    public UserProjectFiles getValidation() {
+      return new UserProjectFiles();
+    }
+  }
+
+  /** Serializes every message the way AWSOutputAdapter does, then drops it. */
+  private static class PrimerOutputAdapter implements OutputAdapter {
+    private final ClientMessageSerializer serializer = new ClientMessageSerializer();
+
+    @Override
+    public synchronized void sendMessage(ClientMessage message) {
+      if (message.shouldAlwaysSend()) {
+        this.serializer.serialize(message);
+      }
+    }
+  }
+
+  /** Accepts any file a sample writes, such as theater's image and audio output, and drops it. */
+  private static class PrimerContentManager implements ContentManager {
+    @Override
+    public String getAssetUrl(String filename) {
+      return null;
+    }
+
+    @Override
+    public String generateAssetUploadUrl(String filename) {
+      return filename;
+    }
+
+    @Override
+    public String writeToOutputFile(String filename, byte[] inputBytes, String contentType) {
+      return filename;
+    }
+
+    @Override
+    public void verifyAssetFilename(String filename) throws FileNotFoundException {
+      throw new FileNotFoundException(filename);
+    }
+  }
+
+  /** Drops every metric, so samples are not counted as student sessions. */
+  private static class PrimerMetricClient extends JavabuilderSharedObject implements MetricClient {
+    @Override
+    public void publishSevereError() {}
+
+    @Override
+    public void publishColdBootTime(long coldBootTime) {}
+
+    @Override
+    public void publishInitializationTime(long initializationTime) {}
+
+    @Override
+    public void publishTransitionTime(long transitionTime) {}
+
+    @Override
+    public void publishCleanupTime(long cleanupTime) {}
+
+    @Override
+    public void publishUserVisibleCleanupTime(long userVisibleCleanupTime) {}
+
+    @Override
+    public void publishCompileCacheHit() {}
+
+    @Override
+    public void publishCompileCacheMiss() {}
+
+    @Override
+    public void publishCompilePhaseTime(String phase, long phaseTime) {}
+
+    @Override
+    public void publishCompileLimitExceeded() {}
+
+    @Override
+    public void publishApiGatewayRequests(
+        long requestCount, long reusedConnectionCount, long retryCount) {}
+
+    @Override
+    public void publishPhaseTime(String phase, String statistic, double phaseTime) {}
+  }
+}
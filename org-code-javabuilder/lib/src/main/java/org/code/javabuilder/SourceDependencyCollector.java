@@ -0,0 +1,107 @@
+package org.code.javabuilder;
+
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.TaskEvent;
+import com.sun.source.util.TaskListener;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.TreePathScanner;
+import com.sun.source.util.Trees;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+
+/**
+ * Records which top-level classes each source file refers to while javac compiles it. References
+ * are collected from the attributed syntax tree rather than from the compiled class files, so uses
+ * of constants that javac inlines (such as a static final int on another class) are still counted.
+ */
+public class SourceDependencyCollector implements TaskListener {
+  private final Trees trees;
+  private final Map<URI, Set<String>> referencedClasses;
+
+  /** Creates a collector and registers it with the given task. */
+  public SourceDependencyCollector(JavacTask task) {
+    this.trees = Trees.instance(task);
+    this.referencedClasses = new HashMap<>();
+    task.addTaskListener(this);
+  }
+
+  @Override
+  public void finished(TaskEvent event) {
+    // The analyze event fires once for each top-level class, after its names have been resolved.
+    if (event.getKind() != TaskEvent.Kind.ANALYZE || event.getTypeElement() == null) {
+      return;
+    }
+    final TreePath classPath = this.trees.getPath(event.getTypeElement());
+    if (classPath == null) {
+      return;
+    }
+    final Set<String> references =
+        this.referencedClasses.computeIfAbsent(
+            event.getSourceFile().toUri(), uri -> new HashSet<>());
+    new ReferenceScanner(references).scan(classPath, null);
+  }
+
+  /**
+   * @return the fully qualified names of the top-level classes referred to by each source file,
+   *     keyed by the URI of the file. The classes a file declares itself may be included.
+   */
+  public Map<URI, Set<String>> getReferencedClasses() {
+    return this.referencedClasses;
+  }
+
+  private class ReferenceScanner extends TreePathScanner<Void, Void> {
+    private final Set<String> references;
+
+    private ReferenceScanner(Set<String> references) {
+      this.references = references;
+    }
+
+    @Override
+    public Void visitIdentifier(IdentifierTree node, Void unused) {
+      this.addCurrentPath();
+      return super.visitIdentifier(node, unused);
+    }
+
+    @Override
+    public Void visitMemberSelect(MemberSelectTree node, Void unused) {
+      this.addCurrentPath();
+      return super.visitMemberSelect(node, unused);
+    }
+
+    /**
+     * Adds both the class that declares the referenced element and the class of its type. The
+     * latter catches classes that are used without ever being named, such as the return type of a
+     * chained method call.
+     */
+    private void addCurrentPath() {
+      this.addTopLevelClass(trees.getElement(this.getCurrentPath()));
+      final TypeMirror type = trees.getTypeMirror(this.getCurrentPath());
+      if (type instanceof DeclaredType) {
+        this.addTopLevelClass(((DeclaredType) type).asElement());
+      }
+    }
+
+    private void addTopLevelClass(Element element) {
+      Element topLevelClass = null;
+      while (element != null && element.getKind() != ElementKind.PACKAGE) {
+        if (element instanceof TypeElement) {
+          topLevelClass = element;
+        }
+        element = element.getEnclosingElement();
+      }
+      if (topLevelClass != null) {
+        this.references.add(((TypeElement) topLevelClass).getQualifiedName().toString());
+      }
+    }
+  }
+}
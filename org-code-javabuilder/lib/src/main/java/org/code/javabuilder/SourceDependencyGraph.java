@@ -0,0 +1,174 @@
+package org.code.javabuilder;
+
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.TreeScanner;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A graph of which source files in a project refer to each other, built from a parse of the files
+ * without resolving any names. A file is assumed to depend on another if it uses any name the
+ * other file declares as a top-level class. This overestimates dependencies (a local variable
+ * named like a class counts, for example), which only costs parallelism, never correctness.
+ */
+public class SourceDependencyGraph {
+  // dependencies.get(i) holds the indexes of the files that file i depends on
+  private final List<Set<Integer>> dependencies;
+
+  private SourceDependencyGraph(List<Set<Integer>> dependencies) {
+    this.dependencies = dependencies;
+  }
+
+  /**
+   * Parses the given sources and builds their dependency graph.
+   *
+   * @param task a task over the sources, in order, that has not been run yet
+   * @param sourceCount the number of sources in the task
+   * @return the graph, or null if the task did not produce one tree per source. Syntax errors are
+   *     reported to the task's diagnostic listener rather than here.
+   */
+  public static SourceDependencyGraph parse(JavacTask task, int sourceCount) throws IOException {
+    final List<Set<String>> declaredNames = new ArrayList<>();
+    final List<Set<String>> usedNames = new ArrayList<>();
+    for (CompilationUnitTree compilationUnit : task.parse()) {
+      final Set<String> declared = new HashSet<>();
+      for (Tree typeDeclaration : compilationUnit.getTypeDecls()) {
+        if (typeDeclaration instanceof ClassTree) {
+          declared.add(((ClassTree) typeDeclaration).getSimpleName().toString());
+        }
+      }
+      final Set<String> used = new HashSet<>();
+      new NameScanner(used).scan(compilationUnit, null);
+      declaredNames.add(declared);
+      usedNames.add(used);
+    }
+    if (declaredNames.size() != sourceCount) {
+      return null;
+    }
+
+    final Map<String, Set<Integer>> declaringFiles = new HashMap<>();
+    for (int i = 0; i < sourceCount; i++) {
+      for (String name : declaredNames.get(i)) {
+        declaringFiles.computeIfAbsent(name, declaredName -> new HashSet<>()).add(i);
+      }
+    }
+    final List<Set<Integer>> dependencies = new ArrayList<>();
+    for (int i = 0; i < sourceCount; i++) {
+      final Set<Integer> fileDependencies = new HashSet<>();
+      for (String name : usedNames.get(i)) {
+        fileDependencies.addAll(declaringFiles.getOrDefault(name, Set.of()));
+      }
+      fileDependencies.remove(i);
+      dependencies.add(fileDependencies);
+    }
+    return new SourceDependencyGraph(dependencies);
+  }
+
+  /** @return the indexes of the files that the given file depends on */
+  public Set<Integer> getDependencies(int file) {
+    return this.dependencies.get(file);
+  }
+
+  /**
+   * Groups files that depend on each other, directly or indirectly, into components. Files in a
+   * component must be compiled together; separate components can be compiled separately.
+   *
+   * @return the components as lists of file indexes. A component comes after every component it
+   *     depends on.
+   */
+  public List<List<Integer>> getStronglyConnectedComponents() {
+    return new TarjanSearch(this.dependencies).run();
+  }
+
+  /** Tarjan's algorithm, which finds a component only after every component it can reach. */
+  private static class TarjanSearch {
+    private final List<Set<Integer>> dependencies;
+    private final int[] index;
+    private final int[] lowLink;
+    private final boolean[] onStack;
+    private final Deque<Integer> stack;
+    private final List<List<Integer>> components;
+    private int nextIndex;
+
+    private TarjanSearch(List<Set<Integer>> dependencies) {
+      this.dependencies = dependencies;
+      this.index = new int[dependencies.size()];
+      this.lowLink = new int[dependencies.size()];
+      this.onStack = new boolean[dependencies.size()];
+      this.stack = new ArrayDeque<>();
+      this.components = new ArrayList<>();
+      this.nextIndex = 1;
+    }
+
+    private List<List<Integer>> run() {
+      for (int file = 0; file < this.dependencies.size(); file++) {
+        if (this.index[file] == 0) {
+          this.visit(file);
+        }
+      }
+      return this.components;
+    }
+
+    private void visit(int file) {
+      // Student projects are small, so recursion depth is not a concern here.
+      this.index[file] = this.nextIndex;
+      this.lowLink[file] = this.nextIndex;
+      this.nextIndex++;
+      this.stack.push(file);
+      this.onStack[file] = true;
+
+      for (int dependency : this.dependencies.get(file)) {
+        if (this.index[dependency] == 0) {
+          this.visit(dependency);
+          this.lowLink[file] = Math.min(this.lowLink[file], this.lowLink[dependency]);
+        } else if (this.onStack[dependency]) {
+          this.lowLink[file] = Math.min(this.lowLink[file], this.index[dependency]);
+        }
+      }
+
+      if (this.lowLink[file] == this.index[file]) {
+        final List<Integer> component = new ArrayList<>();
+        int member;
+        do {
+          member = this.stack.pop();
+          this.onStack[member] = false;
+          component.add(member);
+        } while (member != file);
+        component.sort(null);
+        this.components.add(component);
+      }
+    }
+  }
+
+  private static class NameScanner extends TreeScanner<Void, Void> {
+    private final Set<String> names;
+
+    private NameScanner(Set<String> names) {
+      this.names = names;
+    }
+
+    @Override
+    public Void visitIdentifier(IdentifierTree node, Void unused) {
+      this.names.add(node.getName().toString());
+      return super.visitIdentifier(node, unused);
+    }
+
+    @Override
+    public Void visitMemberSelect(MemberSelectTree node, Void unused) {
+      this.names.add(node.getIdentifier().toString());
+      return super.visitMemberSelect(node, unused);
+    }
+  }
+}
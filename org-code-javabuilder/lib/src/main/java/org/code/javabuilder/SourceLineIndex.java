@@ -0,0 +1,63 @@
+package org.code.javabuilder;
+
+/**
+ * The offset of the start of every line in a piece of source code, so that any line can be looked
+ * up without rescanning the source. Lines end at "\n", "\r\n" or "\r", the same line terminators
+ * javac uses when it numbers lines in diagnostics.
+ */
+public class SourceLineIndex {
+  private final CharSequence source;
+  private final int[] lineStarts;
+
+  public SourceLineIndex(CharSequence source) {
+    this.source = source;
+    int lineCount = 1;
+    for (int i = 0; i < source.length(); i++) {
+      if (isLineStart(source, i + 1)) {
+        lineCount++;
+      }
+    }
+    this.lineStarts = new int[lineCount];
+    int line = 1;
+    for (int i = 0; i < source.length(); i++) {
+      if (isLineStart(source, i + 1)) {
+        this.lineStarts[line++] = i + 1;
+      }
+    }
+  }
+
+  /** @return the number of lines in the source */
+  public int getLineCount() {
+    return this.lineStarts.length;
+  }
+
+  /**
+   * @param lineNumber the number of a line, starting from 1
+   * @return the text of the line without its line terminator, or null if there is no such line
+   */
+  public String getLine(long lineNumber) {
+    if (lineNumber < 1 || lineNumber > this.lineStarts.length) {
+      return null;
+    }
+    final int start = this.lineStarts[(int) lineNumber - 1];
+    int end =
+        lineNumber == this.lineStarts.length
+            ? this.source.length()
+            : this.lineStarts[(int) lineNumber];
+    while (end > start
+        && (this.source.charAt(end - 1) == '\n' || this.source.charAt(end - 1) == '\r')) {
+      end--;
+    }
+    return this.source.subSequence(start, end).toString();
+  }
+
+  /** @return whether a new line starts at the given offset */
+  private static boolean isLineStart(CharSequence source, int offset) {
+    final char previous = source.charAt(offset - 1);
+    if (previous == '\n') {
+      return true;
+    }
+    // A "\r" ends a line unless it is the first half of "\r\n"
+    return previous == '\r' && (offset == source.length() || source.charAt(offset) != '\n');
+  }
+}
@@ -4,6 +4,7 @@ import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 import java.util.Map;
 import org.code.protocol.LoggerUtils;
+import org.code.protocol.MetricClient;
 
 /**
  * Checks if the current container has been marked unhealthy, so that we can shut it down if needed.
@@ -38,7 +39,12 @@ public class UnhealthyContainerChecker {
     this.tableName = tableName;
   }
 
-  public boolean shouldForceShutdownContainer(String containerId, ShutdownTrigger trigger) {
+  /**
+   * @param metricClient the current session's metric client. This is passed in rather than looked
+   *     up, since the check runs alongside the session's own thread.
+   */
+  public boolean shouldForceShutdownContainer(
+      String containerId, ShutdownTrigger trigger, MetricClient metricClient) {
     // The container ID value is a concatenation of the ID and the shutdown trigger type
     final String containerIdCompositeValue = containerId + "#" + trigger.getName();
     final Map<String, AttributeValue> key =
@@ -49,7 +55,7 @@ public class UnhealthyContainerChecker {
     } catch (Exception e) {
       // Indicates an unexpected error (missing entries should return null); log error and return
       // false silently to be safe.
-      LoggerUtils.logSevereException(e);
+      LoggerUtils.logSevereException(e, metricClient);
       return false;
     }
 
@@ -1,34 +1,47 @@
 package org.code.javabuilder;
 
+import java.io.IOException;
 import java.lang.invoke.LambdaMetafactory;
 import java.lang.invoke.StringConcatFactory;
 import java.lang.reflect.InvocationTargetException;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.util.EnumMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import org.code.protocol.LoggerUtils;
 
 /**
  * Custom class loader for user-provided code. This class loader only allows certain classes to be
  * used within a user-provided class.
+ *
+ * <p>Approved api classes are loaded by the container-wide {@link ApiClassLoader}. The URLs given
+ * to this loader are only used for api classes that keep per-run state, which are loaded by a
+ * separate loader created for this run so that every run gets a fresh copy. This loader itself
+ * only defines user-provided classes.
  */
 public class UserClassLoader extends URLClassLoader {
   private final Set<String> userProvidedClasses;
   private final URLClassLoader approvedClassLoader;
+  private final URLClassLoader perRunApprovedClassLoader;
   private final RunPermissionLevel permissionLevel;
+  private final Set<String> loggedInvalidClasses;
 
   public UserClassLoader(
       URL[] urls,
       ClassLoader parent,
       List<String> userProvidedClasses,
       RunPermissionLevel permissionLevel) {
-    super(urls, parent);
+    super(new URL[] {}, parent);
     this.userProvidedClasses = new HashSet<>();
     this.userProvidedClasses.addAll(userProvidedClasses);
-    this.approvedClassLoader = new URLClassLoader(urls, JavaRunner.class.getClassLoader());
+    this.approvedClassLoader = ApiClassLoader.getInstance();
+    this.perRunApprovedClassLoader = new URLClassLoader(urls, this.approvedClassLoader);
     this.permissionLevel = permissionLevel;
+    this.loggedInvalidClasses = ConcurrentHashMap.newKeySet();
   }
 
   @Override
@@ -40,44 +53,58 @@ public class UserClassLoader extends URLClassLoader {
     }
     // If this is not a user provided class, we are loading something used by a user provided class.
     // If it is either an allowed class or package, we can load with our standard class loader.
-    if (this.allowedClasses.contains(name)) {
+    if (isAllowed(name, this.permissionLevel)) {
+      if (perRunPackageTrie.matchesPrefixOf(name)) {
+        return this.perRunApprovedClassLoader.loadClass(name);
+      }
       return this.approvedClassLoader.loadClass(name);
     }
 
-    // Validation code has a few additional allowed classes.
-    if (this.permissionLevel == RunPermissionLevel.VALIDATOR
-        && this.validatorAllowedClasses.contains(name)) {
-      return this.approvedClassLoader.loadClass(name);
+    // Log that we are going to throw an exception. Log as a warning
+    // as it is most likely user error, but we want to track it. Programs often
+    // retry the same class, so only log each name once per run.
+    if (this.loggedInvalidClasses.add(name)) {
+      LoggerUtils.logWarning("Invalid Class", name);
     }
+    throw new ClassNotFoundException(name);
+  }
 
-    // allow .<specific-class> usage from allowed packages. If this code
-    // has validation permissions, also check the
-    // validator permissions allowed package list.
-    if (this.isInAllowedPackage(this.allowedPackages, name)
-        || (this.permissionLevel == RunPermissionLevel.VALIDATOR
-            && this.isInAllowedPackage(this.validatorAllowedPackages, name))) {
-      return this.approvedClassLoader.loadClass(name);
+  @Override
+  public void close() throws IOException {
+    try {
+      this.perRunApprovedClassLoader.close();
+    } finally {
+      super.close();
     }
-
-    // Log that we are going to throw an exception. Log as a warning
-    // as it is most likely user error, but we want to track it.
-    LoggerUtils.logWarning("Invalid Class", name);
-    throw new ClassNotFoundException(name);
   }
 
   /**
-   * @param allowedPackageList
-   * @param name
-   * @return true if name is in a package a in the allowedPackageList, i.e. if name is prefixed with
-   *     any value in allowedPackageList
+   * Decides whether a class that is not user provided may be loaded at the given permission level.
+   * The same library classes are loaded by every run, so decisions are remembered for the lifetime
+   * of the container.
    */
-  private boolean isInAllowedPackage(String[] allowedPackageList, String name) {
-    for (int i = 0; i < allowedPackageList.length; i++) {
-      if (name.startsWith(allowedPackageList[i])) {
-        return true;
-      }
+  private static boolean isAllowed(String name, RunPermissionLevel permissionLevel) {
+    final Map<String, Boolean> decisions = admissionDecisions.get(permissionLevel);
+    final Boolean cachedDecision = decisions.get(name);
+    if (cachedDecision != null) {
+      return cachedDecision;
     }
-    return false;
+    final boolean decision = computeIsAllowed(name, permissionLevel);
+    // Names come from user code, so stop remembering new ones rather than grow without bound.
+    if (decisions.size() < MAX_CACHED_DECISIONS) {
+      decisions.put(name, decision);
+    }
+    return decision;
+  }
+
+  private static boolean computeIsAllowed(String name, RunPermissionLevel permissionLevel) {
+    if (allowedClasses.contains(name) || allowedPackageTrie.matchesPrefixOf(name)) {
+      return true;
+    }
+    // Validation code has a few additional allowed classes and packages.
+    return permissionLevel == RunPermissionLevel.VALIDATOR
+        && (validatorAllowedClasses.contains(name)
+            || validatorAllowedPackageTrie.matchesPrefixOf(name));
   }
 
   // Allowed individual classes.
@@ -139,4 +166,23 @@ public class UserClassLoader extends URLClassLoader {
           ThreadLocal.class.getName(), // EasyMock support
           CloneNotSupportedException.class.getName(), // EasyMock support
           InvocationTargetException.class.getName()); // EasyMock support
+
+  // Packages from the per-run api jars (see JarUtils#getPerRunJarURLs)
+  private static final PackagePrefixTrie perRunPackageTrie =
+      new PackagePrefixTrie("org.code.lang.");
+
+  private static final PackagePrefixTrie allowedPackageTrie =
+      new PackagePrefixTrie(allowedPackages);
+  private static final PackagePrefixTrie validatorAllowedPackageTrie =
+      new PackagePrefixTrie(validatorAllowedPackages);
+
+  private static final int MAX_CACHED_DECISIONS = 50_000;
+  private static final Map<RunPermissionLevel, Map<String, Boolean>> admissionDecisions =
+      new EnumMap<>(RunPermissionLevel.class);
+
+  static {
+    for (RunPermissionLevel permissionLevel : RunPermissionLevel.values()) {
+      admissionDecisions.put(permissionLevel, new ConcurrentHashMap<>());
+    }
+  }
 }
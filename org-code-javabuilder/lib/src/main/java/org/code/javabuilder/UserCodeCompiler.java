@@ -1,53 +1,602 @@
 package org.code.javabuilder;
 
-import java.io.File;
+import com.sun.source.util.JavacTask;
 import java.io.IOException;
-import java.io.Reader;
+import java.net.URI;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import javax.tools.*;
-import javax.tools.JavaCompiler.CompilationTask;
-import org.code.javabuilder.util.JarUtils;
 import org.code.protocol.*;
 
 /**
- * Compiles all user code managed by the ProjectFileManager. Any compiler output will be passed
- * directly to the user.
+ * Compiles all user code managed by the ProjectFileManager. Compiled classes are kept in memory
+ * rather than written to disk. Any compiler output will be passed directly to the user.
  */
 public class UserCodeCompiler {
   private final List<JavaProjectFile> javaFiles;
-  private final File tempFolder;
+  private final List<JavaProjectFile> validationFiles;
   private final OutputAdapter outputAdapter;
+  private final CompiledClassCache compiledClassCache;
+  private final boolean incremental;
+  private final CompilationMonitor compilationMonitor;
 
   private static final String SYSTEM_PACKAGE_OVERRIDE_NAME = "org.code.lang.System";
   private static final String DIAGNOSTIC_CODE_SINGLE_IMPORT_ERROR =
       "compiler.err.already.defined.single.import";
   private static final String DIAGNOSTIC_CODE_DEPRECATED_WARNING_PREFIX =
       "compiler.note.deprecated";
+  private static final String COMPILE_LIMIT_EXCEEDED_MESSAGE =
+      "Your code took too long or used too much memory to compile. Try making it shorter or"
+          + " simpler.";
+  // Smaller projects compile faster in one task than split across threads.
+  private static final int MIN_FILES_FOR_PARALLEL_COMPILE = 6;
 
   public UserCodeCompiler(
-      List<JavaProjectFile> javaFiles, File tempFolder, OutputAdapter outputAdapter) {
+      List<JavaProjectFile> javaFiles,
+      OutputAdapter outputAdapter,
+      CompiledClassCache compiledClassCache) {
+    this(javaFiles, List.of(), outputAdapter, compiledClassCache, false);
+  }
+
+  /**
+   * @param validationFiles the level's validation files, compiled along with the user's files.
+   *     When possible these are compiled on their own once per container, so only the user's files
+   *     need to be compiled for each student.
+   * @param incremental whether to compile only the files that changed since they were last
+   *     compiled on this container (and the files that depend on them). This suits repeated
+   *     compiles of the same project, where most edits touch a single file. Only used when there
+   *     are no validation files.
+   */
+  public UserCodeCompiler(
+      List<JavaProjectFile> javaFiles,
+      List<JavaProjectFile> validationFiles,
+      OutputAdapter outputAdapter,
+      CompiledClassCache compiledClassCache,
+      boolean incremental) {
+    this(
+        javaFiles,
+        validationFiles,
+        outputAdapter,
+        compiledClassCache,
+        incremental,
+        CompilationMonitor.fromEnvironment());
+  }
+
+  UserCodeCompiler(
+      List<JavaProjectFile> javaFiles,
+      List<JavaProjectFile> validationFiles,
+      OutputAdapter outputAdapter,
+      CompiledClassCache compiledClassCache,
+      boolean incremental,
+      CompilationMonitor compilationMonitor) {
     this.javaFiles = javaFiles;
-    this.tempFolder = tempFolder;
+    this.validationFiles = validationFiles;
     this.outputAdapter = outputAdapter;
+    this.compiledClassCache = compiledClassCache;
+    this.incremental = incremental;
+    this.compilationMonitor = compilationMonitor;
   }
 
   /**
+   * Compiles the user's code, or reuses the result of a previous compilation of identical code if
+   * one is cached. Either way, the user sees the same compiler output.
+   *
+   * @return the compiled class bytes, keyed by the binary name of each class
    * @throws InternalServerException If the user's code has a compiler error or if we hit an
    *     internal exception that interferes with compilation.
    */
-  public void compileProgram() throws InternalServerException, UserInitiatedException {
+  public Map<String, byte[]> compileProgram()
+      throws InternalServerException, UserInitiatedException {
     this.outputAdapter.sendMessage(new StatusMessage(StatusMessageKey.COMPILING));
-    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
 
     PerformanceTracker performanceTracker =
         (PerformanceTracker) JavabuilderContext.getInstance().get(PerformanceTracker.class);
+    MetricClient metricClient =
+        (MetricClient) JavabuilderContext.getInstance().get(MetricClient.class);
     performanceTracker.trackCompileStart();
-    CompilationTask task = getCompilationTask(diagnostics);
-
-    boolean success = task.call();
+    CompilationResult result;
+    try (PerformanceTracker.Phase compilePhase = performanceTracker.startPhase("compile")) {
+      final List<JavaProjectFile> allFiles = new ArrayList<>(this.validationFiles);
+      allFiles.addAll(this.javaFiles);
+      final String cacheKey = CompiledClassCache.getKey(allFiles);
+      result = this.compiledClassCache.get(cacheKey);
+      if (result != null) {
+        metricClient.publishCompileCacheHit();
+      } else {
+        metricClient.publishCompileCacheMiss();
+        this.compilationMonitor.start();
+        try {
+          result = this.compileWithoutCache();
+        } catch (UserInitiatedException e) {
+          if (this.compilationMonitor.isLimitExceeded()) {
+            metricClient.publishCompileLimitExceeded();
+          }
+          throw e;
+        } finally {
+          performanceTracker.trackCompilePhases(
+              this.compilationMonitor.getPhaseTimes(),
+              this.compilationMonitor.getGeneratedClassCount(),
+              this.compilationMonitor.getAllocatedBytes());
+          this.compilationMonitor.getPhaseNanos().forEach(compilePhase::trackSubPhase);
+        }
+        this.compiledClassCache.put(cacheKey, result);
+      }
+    }
     performanceTracker.trackCompileEnd();
 
+    if (!result.getCompilerMessages().isEmpty()) {
+      // Send every message at once, since projects with many errors can have hundreds.
+      this.outputAdapter.sendMessage(
+          new SystemOutMessage(joinCompilerMessages(result.getCompilerMessages())));
+    }
+    if (!result.isSuccess()) {
+      throw new UserInitiatedException(UserInitiatedExceptionKey.COMPILER_ERROR);
+    }
+    this.outputAdapter.sendMessage(new StatusMessage(StatusMessageKey.COMPILATION_SUCCESSFUL));
+    return result.getCompiledClasses();
+  }
+
+  private CompilationResult compileWithoutCache()
+      throws InternalServerException, UserInitiatedException {
+    if (!this.validationFiles.isEmpty()) {
+      return this.compileWithValidation();
+    }
+    if (this.incremental) {
+      return this.compileIncrementally(true);
+    }
+    if (this.shouldCompileInParallel()) {
+      final CompilationResult result = this.compileInParallel();
+      if (result != null) {
+        return result;
+      }
+      this.compilationMonitor.resetAllocatedBytes();
+    }
+    return this.compile(this.javaFiles, Map.of());
+  }
+
+  /**
+   * Compiles the given files.
+   *
+   * @param precompiledClasses classes to put on the classpath, which are also included in the
+   *     result
+   */
+  private CompilationResult compile(
+      List<JavaProjectFile> files, Map<String, byte[]> precompiledClasses)
+      throws InternalServerException, UserInitiatedException {
+    // Reuse the container's compiler and classpath index; only the sources and output are specific
+    // to this compilation.
+    return this.compile(files, precompiledClasses, CachedCompiler.getInstance().getFileManager());
+  }
+
+  private CompilationResult compile(
+      List<JavaProjectFile> files,
+      Map<String, byte[]> precompiledClasses,
+      StandardJavaFileManager standardFileManager)
+      throws InternalServerException, UserInitiatedException {
+    return withPrecompiledClasses(
+        this.compileAgainst(files, precompiledClasses, standardFileManager), precompiledClasses);
+  }
+
+  /**
+   * Compiles the given files with the given classes on the classpath.
+   *
+   * @return the result, which only includes the classes compiled from the given files
+   */
+  private CompilationResult compileAgainst(
+      List<JavaProjectFile> files,
+      Map<String, byte[]> precompiledClasses,
+      StandardJavaFileManager standardFileManager)
+      throws InternalServerException, UserInitiatedException {
+    return this.compileAgainst(
+        files, precompiledClasses, standardFileManager, new DiagnosticCollector<>());
+  }
+
+  private CompilationResult compileAgainst(
+      List<JavaProjectFile> files,
+      Map<String, byte[]> precompiledClasses,
+      StandardJavaFileManager standardFileManager,
+      DiagnosticCollector<JavaFileObject> diagnostics)
+      throws InternalServerException, UserInitiatedException {
+    InMemoryFileManager fileManager =
+        new InMemoryFileManager(standardFileManager, precompiledClasses);
+    JavacTask task =
+        this.getCompilationTask(this.createSourceFiles(files).keySet(), fileManager, diagnostics);
+
+    boolean success = this.callTask(task);
+
+    return new CompilationResult(
+        success, this.getCompilerMessages(diagnostics), fileManager.getCompiledClasses());
+  }
+
+  /**
+   * @return the given result with the precompiled classes added. The precompiled classes are added
+   *     last, so a compiled class can never replace one of them.
+   */
+  private static CompilationResult withPrecompiledClasses(
+      CompilationResult result, Map<String, byte[]> precompiledClasses) {
+    if (precompiledClasses.isEmpty()) {
+      return result;
+    }
+    final Map<String, byte[]> compiledClasses = new HashMap<>(result.getCompiledClasses());
+    compiledClasses.putAll(precompiledClasses);
+    return new CompilationResult(result.isSuccess(), result.getCompilerMessages(), compiledClasses);
+  }
+
+  private boolean shouldCompileInParallel() {
+    return this.javaFiles.size() >= MIN_FILES_FOR_PARALLEL_COMPILE
+        && Runtime.getRuntime().availableProcessors() > 1;
+  }
+
+  /**
+   * Splits the user's files into groups that don't depend on each other, and compiles each group as
+   * soon as the groups it depends on have compiled. Independent groups compile in parallel.
+   *
+   * @return the result, or null if the files should be compiled together instead. That is the case
+   *     when the files can't be split, or when a group could not be compiled because a group it
+   *     depends on failed: only a single compilation can report that group's errors. Compiler
+   *     messages from groups that were compiled are reported directly, in group order.
+   */
+  private CompilationResult compileInParallel()
+      throws InternalServerException, UserInitiatedException {
+    final CachedCompiler cachedCompiler = CachedCompiler.getInstance();
+    final DiagnosticCollector<JavaFileObject> parseDiagnostics = new DiagnosticCollector<>();
+    final JavacTask parseTask =
+        this.getCompilationTask(
+            this.createSourceFiles(this.javaFiles).keySet(),
+            new InMemoryFileManager(cachedCompiler.getFileManager()),
+            parseDiagnostics);
+    final SourceDependencyGraph graph;
+    try {
+      graph = SourceDependencyGraph.parse(parseTask, this.javaFiles.size());
+    } catch (IOException e) {
+      throw new InternalServerException(InternalExceptionKey.INTERNAL_COMPILER_EXCEPTION, e);
+    } catch (RuntimeException e) {
+      this.throwIfLimitExceeded();
+      throw e;
+    }
+    if (hasError(parseDiagnostics)) {
+      // javac reports nothing but syntax errors when there are any, so these are exactly what a
+      // single compilation would report.
+      return new CompilationResult(false, this.getCompilerMessages(parseDiagnostics), Map.of());
+    }
+    if (graph == null || !parseDiagnostics.getDiagnostics().isEmpty()) {
+      return null;
+    }
+    final List<List<Integer>> components = graph.getStronglyConnectedComponents();
+    if (components.size() < 2) {
+      return null;
+    }
+
+    // Components are ordered so that each one comes after the components it depends on.
+    final int[] fileComponents = new int[this.javaFiles.size()];
+    for (int component = 0; component < components.size(); component++) {
+      for (int file : components.get(component)) {
+        fileComponents[file] = component;
+      }
+    }
+    final List<CompletableFuture<CompilationResult>> componentResults = new ArrayList<>();
+    for (List<Integer> component : components) {
+      final Set<CompletableFuture<CompilationResult>> dependencyResults = new HashSet<>();
+      final List<JavaProjectFile> componentFiles = new ArrayList<>();
+      for (int file : component) {
+        componentFiles.add(this.javaFiles.get(file));
+        for (int dependency : graph.getDependencies(file)) {
+          if (fileComponents[dependency] != fileComponents[file]) {
+            dependencyResults.add(componentResults.get(fileComponents[dependency]));
+          }
+        }
+      }
+      componentResults.add(
+          CompletableFuture.allOf(dependencyResults.toArray(new CompletableFuture[0]))
+              .thenApplyAsync(
+                  unused -> this.compileComponent(componentFiles, dependencyResults),
+                  cachedCompiler.getCompilePool()));
+    }
+
+    boolean success = true;
+    final List<String> compilerMessages = new ArrayList<>();
+    final Map<String, byte[]> compiledClasses = new HashMap<>();
+    // Wait for every group before deciding, so that no group is still compiling if the files are
+    // compiled again.
+    CompletableFuture.allOf(componentResults.toArray(new CompletableFuture[0])).join();
+    for (CompletableFuture<CompilationResult> componentResult : componentResults) {
+      final CompilationResult result = componentResult.join();
+      if (result == null) {
+        return null;
+      }
+      success &= result.isSuccess();
+      compilerMessages.addAll(result.getCompilerMessages());
+      compiledClasses.putAll(result.getCompiledClasses());
+    }
+    return new CompilationResult(success, compilerMessages, compiledClasses);
+  }
+
+  private static boolean hasError(DiagnosticCollector<JavaFileObject> diagnostics) {
+    for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+      if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Compiles one group of files against the classes of the groups it depends on, with a file
+   * manager of its own so it can run alongside other groups.
+   *
+   * @return the result, which only includes compiler messages from this group's own files, or null
+   *     if a group it depends on failed, this group's compilation was stopped, or javac failed
+   *     without reporting an error
+   */
+  private CompilationResult compileComponent(
+      List<JavaProjectFile> files, Set<CompletableFuture<CompilationResult>> dependencyResults) {
+    final Map<String, byte[]> precompiledClasses = new HashMap<>();
+    for (CompletableFuture<CompilationResult> dependencyResult : dependencyResults) {
+      final CompilationResult result = dependencyResult.join();
+      if (result == null || !result.isSuccess()) {
+        return null;
+      }
+      precompiledClasses.putAll(result.getCompiledClasses());
+    }
+
+    try {
+      final CachedCompiler cachedCompiler = CachedCompiler.getInstance();
+      final StandardJavaFileManager fileManager = cachedCompiler.acquireFileManager();
+      final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+      final CompilationResult result;
+      try {
+        result = this.compileAgainst(files, precompiledClasses, fileManager, diagnostics);
+      } finally {
+        cachedCompiler.releaseFileManager(fileManager);
+      }
+      if (!result.isSuccess() && !hasError(diagnostics)) {
+        // javac itself failed, for example because it crashed. There is nothing to show the user,
+        // so compile all files together, which reports what went wrong.
+        return null;
+      }
+      return withPrecompiledClasses(result, precompiledClasses);
+    } catch (InternalServerException | UserInitiatedException e) {
+      // Compiling all files together will hit and report the same error.
+      return null;
+    }
+  }
+
+  /**
+   * Compiles the user's files against the level's precompiled validation. Falls back to compiling
+   * the validation and user files together if the validation can't be compiled on its own, or if a
+   * user class could change what the validation refers to.
+   */
+  private CompilationResult compileWithValidation()
+      throws InternalServerException, UserInitiatedException {
+    if (!this.javaFiles.isEmpty()) {
+      final CompiledValidation validation = this.getCompiledValidation();
+      if (validation.isSuccess()) {
+        this.compilationMonitor.resetAllocatedBytes();
+        final CompilationResult result =
+            this.compileAgainst(
+                this.javaFiles,
+                validation.getCompiledClasses(),
+                CachedCompiler.getInstance().getFileManager());
+        if (!this.hasConflictingClass(result, validation)) {
+          return withPrecompiledClasses(result, validation.getCompiledClasses());
+        }
+      }
+    }
+    final List<JavaProjectFile> allFiles = new ArrayList<>(this.validationFiles);
+    allFiles.addAll(this.javaFiles);
+    this.compilationMonitor.resetAllocatedBytes();
+    return this.compile(allFiles, Map.of());
+  }
+
+  /**
+   * @return the level's validation compiled on its own, from the cache if another student on this
+   *     container has already run it. Compiler messages are not kept, since the validation is only
+   *     shown to the user when it is compiled together with their code.
+   */
+  private CompiledValidation getCompiledValidation()
+      throws InternalServerException, UserInitiatedException {
+    final String validationKey = CompiledClassCache.getValidationKey(this.validationFiles);
+    final CompilationResult cachedValidation = this.compiledClassCache.get(validationKey);
+    if (cachedValidation instanceof CompiledValidation) {
+      return (CompiledValidation) cachedValidation;
+    }
+
+    final InMemoryFileManager fileManager =
+        new InMemoryFileManager(CachedCompiler.getInstance().getFileManager());
+    final JavacTask task =
+        this.getCompilationTask(
+            this.createSourceFiles(this.validationFiles).keySet(),
+            fileManager,
+            new DiagnosticCollector<>());
+    final SourceDependencyCollector dependencyCollector = new SourceDependencyCollector(task);
+
+    final boolean success = this.callTask(task);
+
+    final Set<String> referencedClassNames = new HashSet<>();
+    dependencyCollector.getReferencedClasses().values().forEach(referencedClassNames::addAll);
+    for (String className : fileManager.getCompiledClasses().keySet()) {
+      referencedClassNames.add(getTopLevelClassName(className));
+    }
+    final CompiledValidation validation =
+        new CompiledValidation(success, fileManager.getCompiledClasses(), referencedClassNames);
+    this.compiledClassCache.put(validationKey, validation);
+    return validation;
+  }
+
+  /**
+   * @param result the result of compiling only the user's code
+   * @return whether the user's code declares a class with the same binary name as a validation
+   *     class, or the same simple name as a class the validation declares or refers to. Compiled
+   *     together, the user's class could replace the one the validation was compiled against.
+   */
+  private boolean hasConflictingClass(CompilationResult result, CompiledValidation validation) {
+    final Set<String> validationSimpleNames = new HashSet<>();
+    for (String className : validation.getReferencedClassNames()) {
+      validationSimpleNames.add(getSimpleClassName(className));
+    }
+    for (String className : result.getCompiledClasses().keySet()) {
+      if (validation.getCompiledClasses().containsKey(className)
+          || validationSimpleNames.contains(
+              getSimpleClassName(getTopLevelClassName(className)))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Compiles only the files that have changed since they were last compiled on this container,
+   * along with every file that depends on them. The other files are given to javac as the classes
+   * they compiled to last time.
+   *
+   * @param reuseCompiledFiles whether previously compiled files may be reused. If false, every file
+   *     is compiled and the results are stored for next time.
+   */
+  private CompilationResult compileIncrementally(boolean reuseCompiledFiles)
+      throws InternalServerException, UserInitiatedException {
+    final Map<String, String> fileKeys = new HashMap<>();
+    final Map<String, CompiledSourceFile> reusedFiles = new HashMap<>();
+    for (JavaProjectFile javaFile : this.javaFiles) {
+      final String fileKey = CompiledClassCache.getFileKey(javaFile, this.javaFiles);
+      fileKeys.put(javaFile.getFileName(), fileKey);
+      final CompilationResult previousResult = this.compiledClassCache.get(fileKey);
+      if (reuseCompiledFiles && previousResult instanceof CompiledSourceFile) {
+        reusedFiles.put(javaFile.getFileName(), (CompiledSourceFile) previousResult);
+      }
+    }
+    // A file must be recompiled if anything it depends on is recompiled, or if it was compiled
+    // against a different version of a file it depends on. Keep dropping files until every
+    // remaining file only depends on the current versions of other remaining files.
+    boolean droppedFile = true;
+    while (droppedFile) {
+      droppedFile =
+          reusedFiles
+              .values()
+              .removeIf(reusedFile -> !canReuse(reusedFile, reusedFiles.keySet(), fileKeys));
+    }
+
+    final Map<String, byte[]> reusedClasses = new HashMap<>();
+    for (CompiledSourceFile reusedFile : reusedFiles.values()) {
+      reusedClasses.putAll(reusedFile.getCompiledClasses());
+    }
+    final List<JavaProjectFile> changedFiles = new ArrayList<>();
+    for (JavaProjectFile javaFile : this.javaFiles) {
+      if (!reusedFiles.containsKey(javaFile.getFileName())) {
+        changedFiles.add(javaFile);
+      }
+    }
+    if (changedFiles.isEmpty()) {
+      // Only files without compiler messages are stored, so there is nothing to show the user.
+      return new CompilationResult(true, List.of(), reusedClasses);
+    }
+
+    final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    final InMemoryFileManager fileManager =
+        new InMemoryFileManager(CachedCompiler.getInstance().getFileManager(), reusedClasses);
+    final Map<JavaFileObject, JavaProjectFile> sourceFiles = this.createSourceFiles(changedFiles);
+    final JavacTask task =
+        this.getCompilationTask(sourceFiles.keySet(), fileManager, diagnostics);
+    final SourceDependencyCollector dependencyCollector = new SourceDependencyCollector(task);
+
+    final boolean success = this.callTask(task);
+
+    final List<String> compilerMessages = this.getCompilerMessages(diagnostics);
+    final Map<String, byte[]> compiledClasses = new HashMap<>(reusedClasses);
+    compiledClasses.putAll(fileManager.getCompiledClasses());
+    final CompilationResult result =
+        new CompilationResult(success, compilerMessages, compiledClasses);
+    if (!success) {
+      return result;
+    }
+
+    // javac may wrap our source file objects, so match them up by URI.
+    final Map<URI, JavaProjectFile> filesByUri = new HashMap<>();
+    for (Map.Entry<JavaFileObject, JavaProjectFile> sourceFile : sourceFiles.entrySet()) {
+      filesByUri.put(sourceFile.getKey().toUri(), sourceFile.getValue());
+    }
+    // Work out which project file declares each top-level class.
+    final Map<String, String> classFileNames = new HashMap<>();
+    for (Map.Entry<String, CompiledSourceFile> reusedFile : reusedFiles.entrySet()) {
+      for (String className : reusedFile.getValue().getCompiledClasses().keySet()) {
+        classFileNames.put(getTopLevelClassName(className), reusedFile.getKey());
+      }
+    }
+    final Map<String, Map<String, byte[]>> classesByFileName = new HashMap<>();
+    for (Map.Entry<String, FileObject> compiledClass :
+        fileManager.getCompiledClassSources().entrySet()) {
+      final JavaProjectFile sourceFile = filesByUri.get(compiledClass.getValue().toUri());
+      if (sourceFile == null) {
+        return result;
+      }
+      final String className = compiledClass.getKey();
+      classFileNames.put(getTopLevelClassName(className), sourceFile.getFileName());
+      classesByFileName
+          .computeIfAbsent(sourceFile.getFileName(), fileName -> new HashMap<>())
+          .put(className, fileManager.getCompiledClasses().get(className));
+    }
+    final Set<String> projectClassNames = classFileNames.keySet();
+    for (CompiledSourceFile reusedFile : reusedFiles.values()) {
+      if (!reusedFile.getProjectClassNames().equals(projectClassNames)) {
+        // A class was added or removed, so a name in a reused file may now refer to a different
+        // class. Start over without reusing anything.
+        this.compilationMonitor.resetAllocatedBytes();
+        return this.compileIncrementally(false);
+      }
+    }
+
+    // Store each recompiled file that had no compiler messages so it can be reused next time.
+    final Set<URI> filesWithMessages = new HashSet<>();
+    for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+      if (diagnostic.getCode().startsWith(DIAGNOSTIC_CODE_DEPRECATED_WARNING_PREFIX)) {
+        continue;
+      }
+      if (diagnostic.getSource() == null) {
+        // We can't tell which file this message came from, so don't store any of them.
+        return result;
+      }
+      filesWithMessages.add(diagnostic.getSource().toUri());
+    }
+    for (Map.Entry<URI, JavaProjectFile> sourceFile : filesByUri.entrySet()) {
+      if (filesWithMessages.contains(sourceFile.getKey())) {
+        continue;
+      }
+      final String fileName = sourceFile.getValue().getFileName();
+      final Map<String, String> dependencies = new HashMap<>();
+      for (String className :
+          dependencyCollector.getReferencedClasses().getOrDefault(sourceFile.getKey(), Set.of())) {
+        final String dependency = classFileNames.get(className);
+        if (dependency != null && !dependency.equals(fileName)) {
+          dependencies.put(dependency, fileKeys.get(dependency));
+        }
+      }
+      this.compiledClassCache.put(
+          fileKeys.get(fileName),
+          new CompiledSourceFile(
+              classesByFileName.getOrDefault(fileName, Map.of()),
+              dependencies,
+              new HashSet<>(projectClassNames)));
+    }
+    return result;
+  }
+
+  /**
+   * @return whether every file the given file depends on is also being reused, and is the same
+   *     version it was compiled against
+   */
+  private static boolean canReuse(
+      CompiledSourceFile reusedFile, Set<String> reusedFileNames, Map<String, String> fileKeys) {
+    for (Map.Entry<String, String> dependency : reusedFile.getDependencies().entrySet()) {
+      if (!reusedFileNames.contains(dependency.getKey())
+          || !dependency.getValue().equals(fileKeys.get(dependency.getKey()))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private List<String> getCompilerMessages(DiagnosticCollector<JavaFileObject> diagnostics) {
     // diagnostics will include any compiler errors
+    List<String> compilerMessages = new ArrayList<>();
     for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
       // Students are sometimes taught deprecated methods (eg, integer constructor)
       // for the AP exam. Do not show deprecation warnings to avoid confusion.
@@ -59,37 +608,29 @@ public class UserCodeCompiler {
       if (customMessage != null) {
         // If we got a custom message, just send it and stop sending any more diagnostics to avoid
         // confusion.
-        outputAdapter.sendMessage(new SystemOutMessage(customMessage));
+        compilerMessages.add(customMessage);
         break;
       }
-      outputAdapter.sendMessage(new SystemOutMessage(this.getCompilerError(diagnostic)));
-    }
-    if (!success) {
-      throw new UserInitiatedException(UserInitiatedExceptionKey.COMPILER_ERROR);
+      compilerMessages.add(this.getCompilerError(diagnostic));
     }
-    this.outputAdapter.sendMessage(new StatusMessage(StatusMessageKey.COMPILATION_SUCCESSFUL));
+    return compilerMessages;
   }
 
-  private CompilationTask getCompilationTask(DiagnosticCollector<JavaFileObject> diagnostics)
-      throws InternalServerException, UserInitiatedException {
-    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
-
-    // set output of compilation to be a temporary folder
-    StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
-    try {
-      fileManager.setLocation(
-          StandardLocation.CLASS_OUTPUT, Collections.singletonList(this.tempFolder));
-    } catch (IOException e) {
-      e.printStackTrace();
-      // if we can't set the file location we won't be able to run the class properly.
-      throw new InternalServerException(InternalExceptionKey.INTERNAL_COMPILER_EXCEPTION, e);
-    }
+  /**
+   * Creates a source file object for each project file.
+   *
+   * @return the source file objects, in the order of the given files, mapped to the project file
+   *     each was created from
+   */
+  private Map<JavaFileObject, JavaProjectFile> createSourceFiles(List<JavaProjectFile> javaFiles)
+      throws UserInitiatedException {
     // create file for user-provided code
-    List<JavaFileObject> files = new ArrayList<>();
-    for (JavaProjectFile projectFile : this.javaFiles) {
+    Map<JavaFileObject, JavaProjectFile> files = new LinkedHashMap<>();
+    for (JavaProjectFile projectFile : javaFiles) {
       try {
-        files.add(
-            new JavaSourceFromString(projectFile.getClassName(), projectFile.getFileContents()));
+        files.put(
+            new JavaSourceFromString(projectFile.getClassName(), projectFile.getFileContents()),
+            projectFile);
       } catch (IllegalArgumentException e) {
         // Thrown if the project file name is invalid. Wrap the original filename in an exception so
         // it can be surfaced to the user
@@ -98,15 +639,70 @@ public class UserCodeCompiler {
             new Exception(projectFile.getFileName()));
       }
     }
+    return files;
+  }
 
-    // Include the user-facing api jars in the student code classpath so the student code can use
-    // them.
-    List<String> optionList = new ArrayList<String>();
-    optionList.add("-classpath");
-    optionList.add(JarUtils.getAllJarPaths());
+  private JavacTask getCompilationTask(
+      Iterable<JavaFileObject> files,
+      InMemoryFileManager fileManager,
+      DiagnosticCollector<JavaFileObject> diagnostics)
+      throws InternalServerException {
+    // create compilation task. The classpath is already set on the shared file manager, so no
+    // options are needed.
+    final JavacTask task =
+        (JavacTask)
+            CachedCompiler.getInstance()
+                .getCompiler()
+                .getTask(null, fileManager, diagnostics, null, null, files);
+    task.addTaskListener(this.compilationMonitor.createListener());
+    return task;
+  }
 
-    // create compilation task
-    return compiler.getTask(null, fileManager, diagnostics, optionList, null, files);
+  /**
+   * Runs the given task, which is stopped if this compilation goes over its time or allocation
+   * budget.
+   *
+   * @return whether compilation succeeded
+   * @throws UserInitiatedException if the compilation went over budget
+   */
+  private boolean callTask(JavacTask task) throws UserInitiatedException {
+    try {
+      return task.call();
+    } catch (RuntimeException e) {
+      this.throwIfLimitExceeded();
+      throw e;
+    }
+  }
+
+  private void throwIfLimitExceeded() throws UserInitiatedException {
+    if (this.compilationMonitor.isLimitExceeded()) {
+      throw new UserInitiatedException(
+          UserInitiatedExceptionKey.COMPILE_LIMIT_EXCEEDED, COMPILE_LIMIT_EXCEEDED_MESSAGE);
+    }
+  }
+
+  /**
+   * Joins compiler messages into a single block of output, starting each message on a new line.
+   */
+  private static String joinCompilerMessages(List<String> compilerMessages) {
+    final StringBuilder output = new StringBuilder();
+    for (String compilerMessage : compilerMessages) {
+      if (output.length() > 0 && output.charAt(output.length() - 1) != '\n') {
+        output.append('\n');
+      }
+      output.append(compilerMessage);
+    }
+    return output.toString();
+  }
+
+  private static String getSimpleClassName(String className) {
+    return className.substring(className.lastIndexOf('.') + 1);
+  }
+
+  /** @return the binary name of the top-level class that declares the given class */
+  private static String getTopLevelClassName(String className) {
+    final int nestedClassStart = className.indexOf('$', className.lastIndexOf('.') + 1);
+    return nestedClassStart < 0 ? className : className.substring(0, nestedClassStart);
   }
 
   /**
@@ -195,27 +791,27 @@ public class UserCodeCompiler {
    * @return code snippet as a String, or an empty String if a code snippet could not be created.
    */
   private String getCodeSnippet(Diagnostic<? extends JavaFileObject> diagnostic) {
-    String codeSnippet = "";
-    try {
-      Reader reader = diagnostic.getSource().openReader(false);
-      Scanner scanner = new Scanner(reader);
-      int linesRead = 0;
-      while (linesRead < diagnostic.getLineNumber() - 1) {
-        scanner.nextLine();
-        linesRead++;
-      }
-      codeSnippet = scanner.nextLine();
-    } catch (IOException e) {
-      // If we had an issue reading the code, log the error and return an empty String
-      // so we still can get a somewhat useful compiler error.
-      LoggerUtils.logSevereException(e);
-      return "";
+    final JavaFileObject source = diagnostic.getSource();
+    final SourceLineIndex lineIndex;
+    if (source instanceof JavaSourceFromString) {
+      // Shared by every diagnostic in the file, so the source is only scanned once.
+      lineIndex = ((JavaSourceFromString) source).getLineIndex();
+    } else {
+      try {
+        lineIndex = new SourceLineIndex(source.getCharContent(false));
+      } catch (IOException e) {
+        // If we had an issue reading the code, log the error and return an empty String
+        // so we still can get a somewhat useful compiler error.
+        LoggerUtils.logSevereException(e);
+        return "";
+      }
     }
-    String linePointer = "";
-    for (int i = 1; i < diagnostic.getColumnNumber(); i++) {
-      linePointer += " ";
+    final String codeSnippet = lineIndex.getLine(diagnostic.getLineNumber());
+    if (codeSnippet == null) {
+      return "";
     }
-    linePointer += "^";
+    final String linePointer =
+        " ".repeat((int) Math.max(0, diagnostic.getColumnNumber() - 1)) + "^";
     return String.format("%s\n%s", codeSnippet, linePointer);
   }
 }
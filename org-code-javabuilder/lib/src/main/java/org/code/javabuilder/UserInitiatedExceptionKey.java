@@ -14,6 +14,8 @@ public enum UserInitiatedExceptionKey {
   INVALID_MAIN_METHOD,
   // The user's code has a compiler error.
   COMPILER_ERROR,
+  // The user's code took too long or used too much memory to compile.
+  COMPILE_LIMIT_EXCEEDED,
   // The user tried to include a source file that did not end in .java
   JAVA_EXTENSION_MISSING,
   // The user is writing to a file in S3 too many times in a single session. The only file writing
@@ -23,6 +25,8 @@ public enum UserInitiatedExceptionKey {
   // The user is uploading a file to S3 too many times in a single session. The only file uploading
   // that may happen is during a Theater project using the Prompter feature.
   TOO_MANY_UPLOADS,
+  // The user's program printed more output than we send in a single session.
+  TOO_MUCH_OUTPUT,
   // The user tried to run a file without a class definition
   CLASS_NOT_FOUND,
   // The user's code threw a FileNotFoundException
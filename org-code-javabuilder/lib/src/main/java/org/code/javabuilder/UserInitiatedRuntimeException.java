@@ -0,0 +1,21 @@
+package org.code.javabuilder;
+
+import org.code.protocol.JavabuilderRuntimeException;
+
+/**
+ * An exception caused by a user action, thrown from a place that cannot throw checked exceptions
+ * (such as an OutputStream the user's program writes to).
+ */
+public class UserInitiatedRuntimeException extends JavabuilderRuntimeException {
+  public UserInitiatedRuntimeException(UserInitiatedExceptionKey key) {
+    super(key);
+  }
+
+  public UserInitiatedRuntimeException(UserInitiatedExceptionKey key, Throwable cause) {
+    super(key, cause);
+  }
+
+  public UserInitiatedRuntimeException(UserInitiatedExceptionKey key, String fallbackMessage) {
+    super(key, fallbackMessage);
+  }
+}
@@ -4,6 +4,8 @@ import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 import org.code.javabuilder.InternalServerException;
 import org.code.protocol.InternalExceptionKey;
 
@@ -20,20 +22,35 @@ public final class JarUtils {
     "lang-full.jar"
   };
 
+  // Jars whose classes keep per-run state in static fields, so each run must define its own copy.
+  // For example, org.code.lang.System captures System.out when it is initialized, and System.out
+  // is replaced for every session.
+  private static final Set<String> PER_RUN_JAR_NAMES = Set.of("lang-full.jar");
+
   /** @return a URL describing the location the given jar */
   private static URL getJarURL(String jarName) {
     return JarUtils.class.getClassLoader().getResource("jars/" + jarName);
   }
 
-  /** @return a list of URLs with the location of all user-facing api jars */
-  public static URL[] getAllJarURLs(URL executableLocation) {
-    final URL[] jarUrls = new URL[JAR_NAMES.length + 1];
-    jarUrls[0] = executableLocation;
-    for (int i = 0; i < JAR_NAMES.length; i++) {
-      jarUrls[i + 1] = JarUtils.getJarURL(JAR_NAMES[i]);
+  /** @return the locations of the user-facing api jars that can be loaded once per container */
+  public static URL[] getSharedJarURLs() {
+    return JarUtils.getJarURLs(false);
+  }
+
+  /** @return the locations of the user-facing api jars that must be loaded again for every run */
+  public static URL[] getPerRunJarURLs() {
+    return JarUtils.getJarURLs(true);
+  }
+
+  private static URL[] getJarURLs(boolean perRun) {
+    final List<URL> jarUrls = new ArrayList<>();
+    for (String jarName : JAR_NAMES) {
+      if (PER_RUN_JAR_NAMES.contains(jarName) == perRun) {
+        jarUrls.add(JarUtils.getJarURL(jarName));
+      }
     }
 
-    return jarUrls;
+    return jarUrls.toArray(new URL[0]);
   }
 
   /** @return a joined list of the paths of all user-facing api jars */
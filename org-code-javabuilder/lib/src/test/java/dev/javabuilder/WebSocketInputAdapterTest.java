@@ -0,0 +1,66 @@
+package dev.javabuilder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.code.protocol.InternalServerRuntimeException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class WebSocketInputAdapterTest {
+  private WebSocketInputAdapter unitUnderTest;
+
+  @BeforeEach
+  public void setUp() {
+    unitUnderTest = new WebSocketInputAdapter();
+  }
+
+  @Test
+  public void testReturnsMessagesInOrder() {
+    unitUnderTest.appendMessage("hello");
+    unitUnderTest.appendMessage("world");
+    assertEquals("hello", unitUnderTest.getNextMessage());
+    assertEquals("world", unitUnderTest.getNextMessage());
+  }
+
+  @Test
+  public void testWaitingReadReturnsAppendedMessage() throws Exception {
+    final CompletableFuture<String> read =
+        CompletableFuture.supplyAsync(() -> unitUnderTest.getNextMessage());
+    Thread.sleep(50);
+    assertFalse(read.isDone());
+
+    unitUnderTest.appendMessage("hello");
+    assertEquals("hello", read.get(1, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testCloseWakesWaitingRead() throws Exception {
+    final CompletableFuture<String> read =
+        CompletableFuture.supplyAsync(() -> unitUnderTest.getNextMessage());
+    Thread.sleep(50);
+
+    unitUnderTest.close();
+    final Exception e = assertThrows(Exception.class, () -> read.get(1, TimeUnit.SECONDS));
+    assertTrue(e.getCause() instanceof InternalServerRuntimeException);
+  }
+
+  @Test
+  public void testReturnsRemainingMessagesBeforeClose() {
+    unitUnderTest.appendMessage("hello");
+    unitUnderTest.close();
+    unitUnderTest.close();
+    assertEquals("hello", unitUnderTest.getNextMessage());
+    assertThrows(InternalServerRuntimeException.class, () -> unitUnderTest.getNextMessage());
+    // Later reads fail the same way rather than waiting forever
+    assertThrows(InternalServerRuntimeException.class, () -> unitUnderTest.getNextMessage());
+  }
+
+  @Test
+  public void testInterruptedReadThrows() {
+    Thread.currentThread().interrupt();
+    assertThrows(InternalServerRuntimeException.class, () -> unitUnderTest.getNextMessage());
+    assertTrue(Thread.interrupted());
+  }
+}
@@ -3,34 +3,63 @@ package org.code.javabuilder;
 import static org.code.javabuilder.InternalFacingExceptionTypes.CONNECTION_TERMINATED;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchResult;
 import com.amazonaws.services.sqs.model.Message;
 import com.amazonaws.services.sqs.model.QueueDoesNotExistException;
 import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
 import com.amazonaws.services.sqs.model.ReceiveMessageResult;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 public class AWSInputAdapterTest {
+  private static final int TIMEOUT_MS = 1000;
+
   private AWSInputAdapter inputAdapter;
   private AmazonSQS sqsMock;
 
   @BeforeEach
   public void setUp() {
     sqsMock = mock(AmazonSQS.class);
-    inputAdapter = new AWSInputAdapter(sqsMock, "url", "name");
+    final DeleteMessageBatchResult deleteResult = mock(DeleteMessageBatchResult.class);
+    when(deleteResult.getFailed()).thenReturn(new ArrayList<>());
+    when(sqsMock.deleteMessageBatch(anyString(), anyList())).thenReturn(deleteResult);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    if (inputAdapter != null) {
+      inputAdapter.close();
+    }
   }
 
   /**
-   * Adds messages to the SQS Queue Mock to be retrieved by the input Adapter
+   * Adds messages to the SQS Queue Mock to be retrieved by the input Adapter. Later receives wait
+   * briefly and return nothing, as a long poll on an empty queue would.
    *
    * @param messages an array of messages in the queue
    */
   private void messageSetUp(String[] messages) {
+    when(sqsMock.receiveMessage(any(ReceiveMessageRequest.class)))
+        .thenReturn(createResult(messages))
+        .thenAnswer(
+            invocation -> {
+              Thread.sleep(10);
+              return createResult(new String[0]);
+            });
+  }
+
+  private ReceiveMessageResult createResult(String[] messages) {
     List<Message> messageList = new ArrayList<>();
     for (String s : messages) {
       Message message = mock(Message.class);
@@ -40,7 +69,7 @@ public class AWSInputAdapterTest {
 
     ReceiveMessageResult result = mock(ReceiveMessageResult.class);
     when(result.getMessages()).thenReturn(messageList);
-    when(sqsMock.receiveMessage(any(ReceiveMessageRequest.class))).thenReturn(result);
+    return result;
   }
 
   private void mockLostConnection() {
@@ -51,46 +80,118 @@ public class AWSInputAdapterTest {
   @Test
   void getsNextMessage() {
     messageSetUp(new String[] {"hello"});
+    inputAdapter = new AWSInputAdapter(sqsMock, "url", "name");
     assertEquals(inputAdapter.getNextMessage(), "hello");
   }
 
   @Test
   void addsAllReceivedMessagesToQueue() {
     messageSetUp(new String[] {"", "world"});
+    inputAdapter = new AWSInputAdapter(sqsMock, "url", "name");
     inputAdapter.getNextMessage();
     assertEquals(inputAdapter.getNextMessage(), "world");
   }
 
+  /** Programs that never read input do not poll the queue. */
+  @Test
+  void doesNotReceiveUntilProgramReads() throws InterruptedException {
+    messageSetUp(new String[] {"hello"});
+    inputAdapter = new AWSInputAdapter(sqsMock, "url", "name");
+    Thread.sleep(50);
+    inputAdapter.close();
+    verify(sqsMock, never()).receiveMessage(any(ReceiveMessageRequest.class));
+  }
+
   /**
-   * When getNextMessage is called on an empty inputAdapter, it fetches and caches all available
-   * messages from the SQS Queue (up to the AWS maximum of 10). To ensure these messages are not
-   * retrieved again, we need to delete them from the SQS Queue. This test checks that we are
-   * cleaning up the queue after retrieving messages
+   * Once the program has read input, later input is received in the background, so it is ready as
+   * soon as the program reads again.
    */
   @Test
-  void deletesAllReadMessages() {
-    messageSetUp(new String[] {"", ""});
+  void receivesBeforeProgramReadsAgain() {
+    messageSetUp(new String[] {"hello"});
+    inputAdapter = new AWSInputAdapter(sqsMock, "url", "name");
     inputAdapter.getNextMessage();
-    verify(sqsMock, times(2)).deleteMessage("url", null);
+    verify(sqsMock, timeout(TIMEOUT_MS).atLeast(2))
+        .receiveMessage(any(ReceiveMessageRequest.class));
   }
 
   /**
-   * Retrieving messages from the SQS Queue is an expensive operation. When we have no more messages
-   * available in the inputAdapter, we retrieve multiple messages from the Queue at once. They are
-   * cached and subsequent calls to getNextMessage do not retrieve additional messages until the
-   * local queue is empty.
+   * Received messages must be deleted from the SQS Queue so they are not received again. They are
+   * deleted with a single batch request for each receive, rather than one request per message.
    */
   @Test
-  void cachesMessages() {
+  void deletesAllReceivedMessagesInOneBatch() {
     messageSetUp(new String[] {"", ""});
+    inputAdapter = new AWSInputAdapter(sqsMock, "url", "name");
     inputAdapter.getNextMessage();
+    verify(sqsMock, timeout(TIMEOUT_MS))
+        .deleteMessageBatch(eq("url"), argThat(entries -> entries.size() == 2));
+    verify(sqsMock, never()).deleteMessage(anyString(), any());
+  }
+
+  /**
+   * The receiver stops receiving once the buffer has no room for another full receive, and starts
+   * again once the program has read enough messages to make room.
+   */
+  @Test
+  void stopsReceivingWhenBufferIsFull() throws InterruptedException {
+    final String[] fullReceive = new String[10];
+    Arrays.fill(fullReceive, "input");
+    when(sqsMock.receiveMessage(any(ReceiveMessageRequest.class)))
+        .thenReturn(createResult(fullReceive));
+    final int receivesToFill = AWSInputAdapter.PREFETCH_CAPACITY / fullReceive.length;
+    inputAdapter = new AWSInputAdapter(sqsMock, "url", "name");
     inputAdapter.getNextMessage();
-    verify(sqsMock, times(1)).receiveMessage(any(ReceiveMessageRequest.class));
+
+    verify(sqsMock, timeout(TIMEOUT_MS).times(receivesToFill))
+        .receiveMessage(any(ReceiveMessageRequest.class));
+    Thread.sleep(50);
+    verify(sqsMock, times(receivesToFill)).receiveMessage(any(ReceiveMessageRequest.class));
+
+    for (int i = 1; i < fullReceive.length; i++) {
+      inputAdapter.getNextMessage();
+    }
+    verify(sqsMock, timeout(TIMEOUT_MS).times(receivesToFill + 1))
+        .receiveMessage(any(ReceiveMessageRequest.class));
+  }
+
+  @Test
+  void keepsReceivingWhenDeleteFails() {
+    messageSetUp(new String[] {"hello", "world"});
+    when(sqsMock.deleteMessageBatch(anyString(), anyList()))
+        .thenThrow(new RuntimeException("delete failed"));
+    inputAdapter = new AWSInputAdapter(sqsMock, "url", "name");
+    assertEquals("hello", inputAdapter.getNextMessage());
+    verify(sqsMock, timeout(TIMEOUT_MS)).deleteMessageBatch(anyString(), anyList());
+    assertEquals("world", inputAdapter.getNextMessage());
   }
 
   @Test
   void throwsOnLostConnection() {
     this.mockLostConnection();
+    inputAdapter = new AWSInputAdapter(sqsMock, "url", "name");
+    Exception actual =
+        assertThrows(InternalFacingRuntimeException.class, () -> inputAdapter.getNextMessage());
+    assertEquals(CONNECTION_TERMINATED, actual.getMessage());
+    // Later reads fail the same way rather than waiting forever
+    assertThrows(InternalFacingRuntimeException.class, () -> inputAdapter.getNextMessage());
+  }
+
+  @Test
+  void returnsReceivedMessagesBeforeThrowingOnLostConnection() {
+    when(sqsMock.receiveMessage(any(ReceiveMessageRequest.class)))
+        .thenReturn(createResult(new String[] {"hello"}))
+        .thenThrow(QueueDoesNotExistException.class);
+    inputAdapter = new AWSInputAdapter(sqsMock, "url", "name");
+    assertEquals("hello", inputAdapter.getNextMessage());
+    assertThrows(InternalFacingRuntimeException.class, () -> inputAdapter.getNextMessage());
+  }
+
+  @Test
+  void throwsAfterClose() {
+    messageSetUp(new String[] {});
+    inputAdapter = new AWSInputAdapter(sqsMock, "url", "name");
+    inputAdapter.close();
     Exception actual =
         assertThrows(InternalFacingRuntimeException.class, () -> inputAdapter.getNextMessage());
     assertEquals(CONNECTION_TERMINATED, actual.getMessage());
@@ -0,0 +1,65 @@
+package org.code.javabuilder;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.amazonaws.services.cloudwatch.AmazonCloudWatch;
+import com.amazonaws.services.cloudwatch.model.MetricDatum;
+import com.amazonaws.services.cloudwatch.model.PutMetricDataRequest;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+class AWSMetricClientTest {
+  private AmazonCloudWatch cloudWatchClient;
+  private ArgumentCaptor<PutMetricDataRequest> requestCaptor;
+  private AWSMetricClient unitUnderTest;
+
+  @BeforeEach
+  public void setUp() {
+    cloudWatchClient = mock(AmazonCloudWatch.class);
+    requestCaptor = ArgumentCaptor.forClass(PutMetricDataRequest.class);
+    unitUnderTest = new AWSMetricClient("functionName", cloudWatchClient);
+  }
+
+  @Test
+  public void testSendsNothingUntilFlushed() {
+    unitUnderTest.publishSevereError();
+    unitUnderTest.publishCleanupTime(10);
+    verifyNoInteractions(cloudWatchClient);
+  }
+
+  @Test
+  public void testSendsAllMetricsInOneRequest() {
+    unitUnderTest.publishSevereError();
+    unitUnderTest.publishCleanupTime(10);
+    unitUnderTest.publishCleanupTime(30);
+    unitUnderTest.flush();
+
+    verify(cloudWatchClient, times(1)).putMetricData(requestCaptor.capture());
+    final PutMetricDataRequest request = requestCaptor.getValue();
+    assertEquals("Javabuilder", request.getNamespace());
+    final List<MetricDatum> metricData = request.getMetricData();
+    assertEquals(2, metricData.size());
+
+    final MetricDatum severeError = metricData.get(0);
+    assertEquals("SevereError", severeError.getMetricName());
+    assertEquals(1.0, severeError.getValue().doubleValue());
+    assertNull(severeError.getStatisticValues());
+
+    final MetricDatum cleanupTime = metricData.get(1);
+    assertEquals("CleanupTime", cleanupTime.getMetricName());
+    assertNull(cleanupTime.getValue());
+    assertEquals(2.0, cleanupTime.getStatisticValues().getSampleCount().doubleValue());
+    assertEquals(40.0, cleanupTime.getStatisticValues().getSum().doubleValue());
+    assertEquals(10.0, cleanupTime.getStatisticValues().getMinimum().doubleValue());
+    assertEquals(30.0, cleanupTime.getStatisticValues().getMaximum().doubleValue());
+  }
+
+  @Test
+  public void testDoesNotSendEmptyRequest() {
+    unitUnderTest.flush();
+    verifyNoInteractions(cloudWatchClient);
+  }
+}
@@ -0,0 +1,61 @@
+package org.code.javabuilder;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.amazonaws.services.apigatewaymanagementapi.AmazonApiGatewayManagementApi;
+import com.amazonaws.services.apigatewaymanagementapi.model.PostToConnectionRequest;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.json.JSONObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class AWSOutputAdapterTest {
+  private static final int MAX_FRAME_BYTES = 32 * 1024;
+
+  private AmazonApiGatewayManagementApi api;
+  private List<String> posts;
+
+  @BeforeEach
+  public void setUp() {
+    api = mock(AmazonApiGatewayManagementApi.class);
+    posts = new ArrayList<>();
+    when(api.postToConnection(any(PostToConnectionRequest.class)))
+        .thenAnswer(
+            invocation -> {
+              // Copy the data now, since the adapter reuses its buffer for the next message.
+              final PostToConnectionRequest post = invocation.getArgument(0);
+              final ByteBuffer data = post.getData();
+              final byte[] bytes = new byte[data.remaining()];
+              data.duplicate().get(bytes);
+              posts.add(new String(bytes, StandardCharsets.UTF_8));
+              return null;
+            });
+  }
+
+  @Test
+  public void testSendsSmallMessageInOneFrame() {
+    new AWSOutputAdapter("connection", api).sendMessage(new SystemOutMessage("hello\n"));
+    assertEquals(1, posts.size());
+    assertEquals("hello\n", new JSONObject(posts.get(0)).getString("value"));
+  }
+
+  @Test
+  public void testSplitsLargeConsoleOutputIntoFrames() {
+    final String value = "0123456789\u00e9\n".repeat(10_000);
+    new AWSOutputAdapter("connection", api).sendMessage(new SystemOutMessage(value));
+
+    assertTrue(posts.size() > 1);
+    final StringBuilder reassembled = new StringBuilder();
+    for (String post : posts) {
+      assertTrue(post.getBytes(StandardCharsets.UTF_8).length <= MAX_FRAME_BYTES);
+      final JSONObject json = new JSONObject(post);
+      assertEquals("SYSTEM_OUT", json.getString("type"));
+      reassembled.append(json.getString("value"));
+    }
+    assertEquals(value, reassembled.toString());
+  }
+}
@@ -0,0 +1,64 @@
+package org.code.javabuilder;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.apigatewaymanagementapi.model.GoneException;
+import com.amazonaws.services.apigatewaymanagementapi.model.PostToConnectionRequest;
+import org.code.protocol.MetricClient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ApiGatewayClientFactoryTest {
+  private ApiGatewayClientFactory unitUnderTest;
+  private PostToConnectionRequest request;
+
+  @BeforeEach
+  public void setUp() {
+    unitUnderTest = new ApiGatewayClientFactory("http://localhost");
+    request = new PostToConnectionRequest();
+  }
+
+  @Test
+  public void testRetriesServerErrors() {
+    assertTrue(unitUnderTest.shouldRetry(request, serverError(), 0));
+  }
+
+  @Test
+  public void testDoesNotRetryGoneConnection() {
+    final GoneException gone = new GoneException("gone");
+    gone.setStatusCode(410);
+    assertFalse(unitUnderTest.shouldRetry(request, gone, 0));
+  }
+
+  @Test
+  public void testStopsRetryingOnceSessionBudgetIsSpent() {
+    for (int i = 0; i < ApiGatewayClientFactory.MAX_RETRIES_PER_SESSION; i++) {
+      assertTrue(unitUnderTest.shouldRetry(request, serverError(), 0));
+    }
+    assertFalse(unitUnderTest.shouldRetry(request, serverError(), 0));
+
+    unitUnderTest.startSession();
+    assertTrue(unitUnderTest.shouldRetry(request, serverError(), 0));
+  }
+
+  @Test
+  public void testPublishesRetryCount() {
+    unitUnderTest.shouldRetry(request, serverError(), 0);
+    unitUnderTest.shouldRetry(request, serverError(), 1);
+    final MetricClient metricClient = mock(MetricClient.class);
+
+    unitUnderTest.publishSessionStats(metricClient);
+
+    verify(metricClient).publishApiGatewayRequests(0, 0, 2);
+  }
+
+  private static AmazonServiceException serverError() {
+    final AmazonServiceException exception = new AmazonServiceException("Internal Server Error");
+    exception.setStatusCode(500);
+    return exception;
+  }
+}
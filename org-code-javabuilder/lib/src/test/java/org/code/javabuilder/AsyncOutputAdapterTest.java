@@ -0,0 +1,224 @@
+package org.code.javabuilder;
+
+import static org.code.javabuilder.InternalFacingExceptionTypes.CONNECTION_TERMINATED;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.code.protocol.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class AsyncOutputAdapterTest {
+  private AsyncOutputAdapter unitUnderTest;
+
+  @AfterEach
+  public void tearDown() {
+    if (unitUnderTest != null) {
+      unitUnderTest.close();
+    }
+  }
+
+  @Test
+  public void testFlushWaitsForMessagesInOrder() {
+    final RecordingOutputAdapter delegate = new RecordingOutputAdapter();
+    unitUnderTest = new AsyncOutputAdapter(delegate, 4, 0);
+
+    final StringBuilder expected = new StringBuilder();
+    for (int i = 0; i < 50; i++) {
+      unitUnderTest.sendMessage(new SystemOutMessage(i + "\n"));
+      expected.append(i).append("\n");
+    }
+    unitUnderTest.flush();
+
+    assertEquals(expected.toString(), String.join("", delegate.values));
+  }
+
+  @Test
+  public void testCoalescesConsoleOutputQueuedWhileSending() throws InterruptedException {
+    final CountDownLatch releaseDelegate = new CountDownLatch(1);
+    final RecordingOutputAdapter delegate = new RecordingOutputAdapter(releaseDelegate);
+    unitUnderTest = new AsyncOutputAdapter(delegate, 10, 0);
+
+    unitUnderTest.sendMessage(new SystemOutMessage("a"));
+    // Wait for the sender to take the first message before queueing the rest.
+    Thread.sleep(100);
+    unitUnderTest.sendMessage(new SystemOutMessage("b"));
+    unitUnderTest.sendMessage(new SystemOutMessage("c"));
+    unitUnderTest.sendMessage(new StatusMessage(StatusMessageKey.EXITED));
+    unitUnderTest.sendMessage(new SystemOutMessage("d"));
+    releaseDelegate.countDown();
+    unitUnderTest.flush();
+
+    assertEquals(List.of("a", "bc", StatusMessageKey.EXITED.toString(), "d"), delegate.values);
+  }
+
+  @Test
+  public void testDoesNotCoalescePastFrameLimit() {
+    final RecordingOutputAdapter delegate = new RecordingOutputAdapter();
+    unitUnderTest = new AsyncOutputAdapter(delegate, 10, 1000);
+
+    final String line = "x".repeat(5000);
+    unitUnderTest.sendMessage(new SystemOutMessage(line));
+    unitUnderTest.sendMessage(new SystemOutMessage(line));
+    unitUnderTest.flush();
+
+    assertEquals(List.of(line, line), delegate.values);
+  }
+
+  @Test
+  public void testDoesNotCoalescePastFrameLimitForEscapedChars() {
+    final RecordingOutputAdapter delegate = new RecordingOutputAdapter();
+    unitUnderTest = new AsyncOutputAdapter(delegate, 10, 1000);
+
+    // Each control char is escaped to six bytes of JSON.
+    final String line = "\u0001".repeat(3000);
+    unitUnderTest.sendMessage(new SystemOutMessage(line));
+    unitUnderTest.sendMessage(new SystemOutMessage(line));
+    unitUnderTest.flush();
+
+    assertEquals(List.of(line, line), delegate.values);
+  }
+
+  @Test
+  public void testFlushDoesNotWaitForCoalescingWindow() {
+    final RecordingOutputAdapter delegate = new RecordingOutputAdapter();
+    unitUnderTest = new AsyncOutputAdapter(delegate, 10, 60_000);
+
+    final long start = System.currentTimeMillis();
+    unitUnderTest.sendMessage(new SystemOutMessage("Enter your name: "));
+    unitUnderTest.flush();
+
+    assertEquals(List.of("Enter your name: "), delegate.values);
+    assertTrue(System.currentTimeMillis() - start < 10_000);
+  }
+
+  @Test
+  public void testSendFailureIsThrownOnce() {
+    final InternalFacingRuntimeException gone =
+        new InternalFacingRuntimeException(CONNECTION_TERMINATED, new Exception());
+    unitUnderTest =
+        new AsyncOutputAdapter(
+            message -> {
+              throw gone;
+            });
+
+    unitUnderTest.sendMessage(new SystemOutMessage("lost"));
+
+    final InternalFacingRuntimeException thrown =
+        assertThrows(InternalFacingRuntimeException.class, () -> unitUnderTest.flush());
+    assertSame(gone, thrown);
+    assertDoesNotThrow(() -> unitUnderTest.sendMessage(new SystemOutMessage("next")));
+    assertDoesNotThrow(() -> unitUnderTest.flush());
+  }
+
+  @Test
+  public void testCloseThrowsFailureOnLastMessage() {
+    final FatalError poolShutDown =
+        new FatalError(FatalErrorKey.CONNECTION_POOL_SHUT_DOWN, new IllegalStateException());
+    unitUnderTest =
+        new AsyncOutputAdapter(
+            message -> {
+              throw poolShutDown;
+            });
+
+    unitUnderTest.sendMessage(new SystemOutMessage("last"));
+
+    final FatalError thrown = assertThrows(FatalError.class, () -> unitUnderTest.close());
+    assertSame(poolShutDown, thrown);
+  }
+
+  @Test
+  public void testDropsQueuedMessagesAfterSendFailure() throws InterruptedException {
+    final CountDownLatch releaseDelegate = new CountDownLatch(1);
+    final List<String> attempted = new CopyOnWriteArrayList<>();
+    unitUnderTest =
+        new AsyncOutputAdapter(
+            message -> {
+              attempted.add(message.getValue());
+              try {
+                releaseDelegate.await();
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+              throw new InternalFacingRuntimeException(CONNECTION_TERMINATED, new Exception());
+            },
+            10,
+            0);
+
+    unitUnderTest.sendMessage(new StatusMessage(StatusMessageKey.RUNNING));
+    // Wait for the sender to take the first message before queueing the rest.
+    Thread.sleep(100);
+    unitUnderTest.sendMessage(new StatusMessage(StatusMessageKey.EXITED));
+    unitUnderTest.sendMessage(new SystemOutMessage("dropped"));
+    releaseDelegate.countDown();
+
+    assertThrows(InternalFacingRuntimeException.class, () -> unitUnderTest.flush());
+    assertEquals(List.of(StatusMessageKey.RUNNING.toString()), attempted);
+  }
+
+  @Test
+  public void testSendBlocksWhileQueueIsFull() throws InterruptedException {
+    final CountDownLatch releaseDelegate = new CountDownLatch(1);
+    final RecordingOutputAdapter delegate = new RecordingOutputAdapter(releaseDelegate);
+    unitUnderTest = new AsyncOutputAdapter(delegate, 1, 0);
+
+    final CountDownLatch producerDone = new CountDownLatch(1);
+    final Thread producer =
+        new Thread(
+            () -> {
+              // The first message is taken by the sender, the second fills the queue, and the
+              // third must wait for the sender. Status messages are never coalesced.
+              for (int i = 0; i < 3; i++) {
+                unitUnderTest.sendMessage(new StatusMessage(StatusMessageKey.RUNNING));
+              }
+              producerDone.countDown();
+            });
+    producer.start();
+
+    assertFalse(producerDone.await(200, TimeUnit.MILLISECONDS));
+    releaseDelegate.countDown();
+    assertTrue(producerDone.await(5, TimeUnit.SECONDS));
+    unitUnderTest.flush();
+    assertEquals(3, delegate.values.size());
+  }
+
+  @Test
+  public void testCloseSendsQueuedMessagesThenSendsSynchronously() {
+    final RecordingOutputAdapter delegate = new RecordingOutputAdapter();
+    unitUnderTest = new AsyncOutputAdapter(delegate, 4, 0);
+
+    unitUnderTest.sendMessage(new SystemOutMessage("queued"));
+    unitUnderTest.close();
+    assertEquals(List.of("queued"), delegate.values);
+
+    unitUnderTest.sendMessage(new SystemOutMessage("after close"));
+    assertEquals(List.of("queued", "after close"), delegate.values);
+  }
+
+  private static class RecordingOutputAdapter implements OutputAdapter {
+    private final List<String> values;
+    private final CountDownLatch release;
+
+    private RecordingOutputAdapter() {
+      this(new CountDownLatch(0));
+    }
+
+    private RecordingOutputAdapter(CountDownLatch release) {
+      this.values = new CopyOnWriteArrayList<>();
+      this.release = release;
+    }
+
+    @Override
+    public void sendMessage(ClientMessage message) {
+      try {
+        this.release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      this.values.add(message.getValue());
+    }
+  }
+}
@@ -0,0 +1,96 @@
+package org.code.javabuilder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.amazonaws.services.cloudwatch.model.StandardUnit;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BufferedMetricClientTest {
+  private List<List<BufferedMetric>> sent;
+  private BufferedMetricClient unitUnderTest;
+
+  @BeforeEach
+  public void setUp() {
+    sent = new ArrayList<>();
+    unitUnderTest =
+        new BufferedMetricClient("functionName") {
+          @Override
+          protected void send(List<BufferedMetric> metrics) {
+            sent.add(metrics);
+          }
+        };
+  }
+
+  @Test
+  public void testDoesNotSendUntilFlushed() {
+    unitUnderTest.publishSevereError();
+    unitUnderTest.publishCleanupTime(10);
+    assertTrue(sent.isEmpty());
+
+    unitUnderTest.flush();
+    assertEquals(1, sent.size());
+    assertEquals(2, sent.get(0).size());
+  }
+
+  @Test
+  public void testGroupsValuesByMetric() {
+    unitUnderTest.publishCleanupTime(30);
+    unitUnderTest.publishSevereError();
+    unitUnderTest.publishCleanupTime(10);
+    unitUnderTest.publishCleanupTime(20);
+    unitUnderTest.flush();
+
+    final BufferedMetric cleanupTime = sent.get(0).get(0);
+    assertEquals("CleanupTime", cleanupTime.getName());
+    assertEquals(StandardUnit.Milliseconds, cleanupTime.getUnit());
+    assertEquals(3, cleanupTime.getSampleCount());
+    assertEquals(60.0, cleanupTime.getSum());
+    assertEquals(10.0, cleanupTime.getMinimum());
+    assertEquals(30.0, cleanupTime.getMaximum());
+    assertEquals(30.0, cleanupTime.getValue(0));
+    assertEquals(20.0, cleanupTime.getValue(2));
+
+    final BufferedMetric severeError = sent.get(0).get(1);
+    assertEquals("SevereError", severeError.getName());
+    assertEquals(StandardUnit.Count, severeError.getUnit());
+    assertEquals(1, severeError.getSampleCount());
+  }
+
+  @Test
+  public void testFlushClearsMetrics() {
+    unitUnderTest.publishCompileCacheHit();
+    unitUnderTest.flush();
+    unitUnderTest.flush();
+    assertEquals(1, sent.size());
+
+    unitUnderTest.publishCompileCacheMiss();
+    unitUnderTest.flush();
+    assertEquals(2, sent.size());
+    assertEquals(1, sent.get(1).size());
+    assertEquals("CompileCacheMiss", sent.get(1).get(0).getName());
+  }
+
+  @Test
+  public void testDestroyFlushes() {
+    unitUnderTest.publishCompilePhaseTime("analyze", 5);
+    unitUnderTest.destroy();
+    assertEquals(1, sent.size());
+    assertEquals("CompileAnalyzeTime", sent.get(0).get(0).getName());
+  }
+
+  @Test
+  public void testSendFailureIsNotThrown() {
+    final BufferedMetricClient failingClient =
+        new BufferedMetricClient("functionName") {
+          @Override
+          protected void send(List<BufferedMetric> metrics) {
+            throw new IllegalStateException("unavailable");
+          }
+        };
+    failingClient.publishSevereError();
+    assertDoesNotThrow(failingClient::flush);
+  }
+}
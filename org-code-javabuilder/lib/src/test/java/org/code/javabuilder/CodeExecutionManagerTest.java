@@ -1,11 +1,9 @@
 package org.code.javabuilder;
 
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
-import java.io.File;
 import java.io.InputStream;
 import java.io.PrintStream;
 import java.util.List;
@@ -40,7 +38,7 @@ class CodeExecutionManagerTest {
     contentManager = mock(ContentManager.class);
 
     when(codeBuilderRunnableFactory.createCodeBuilderRunnable(
-            eq(fileLoader), any(File.class), eq(executionType), eq(compileList)))
+            eq(fileLoader), eq(executionType), eq(compileList)))
         .thenReturn(codeBuilderRunnable);
 
     unitUnderTest =
@@ -105,6 +103,26 @@ class CodeExecutionManagerTest {
     assertSame(sysIn, System.in);
   }
 
+  @Test
+  public void testClosesInputAdapterAfterExecution()
+      throws JavabuilderException, InternalFacingException {
+    unitUnderTest.execute();
+    verify(inputAdapter, never()).close();
+
+    unitUnderTest.shutDown();
+    verify(inputAdapter, times(1)).close();
+  }
+
+  @Test
+  public void testClearsTempDirectoryOnlyWhenAsked() throws Exception {
+    unitUnderTest.execute();
+    unitUnderTest.shutDown();
+    verify(tempDirectoryManager, never()).cleanUpTempDirectory(any());
+
+    unitUnderTest.cleanUpTempDirectory();
+    verify(tempDirectoryManager, times(1)).cleanUpTempDirectory(null);
+  }
+
   private void verifyExitedMessageSentOnce() {
     ArgumentCaptor<StatusMessage> message = ArgumentCaptor.forClass(StatusMessage.class);
     verify(outputAdapter, times(1)).sendMessage(message.capture());
@@ -0,0 +1,103 @@
+package org.code.javabuilder;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import com.sun.source.util.JavacTask;
+import dev.javabuilder.LocalMetricClient;
+import java.util.ArrayList;
+import java.util.List;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import org.code.protocol.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CompilationMonitorTest {
+  private static final long NO_LIMIT = Long.MAX_VALUE / 1_000_000;
+  private static final String SOURCE =
+      "class Main { public static void main(String[] args) { System.out.println(\"hi\"); } }";
+
+  private JavaCompiler compiler;
+
+  @BeforeEach
+  public void setUp() {
+    compiler = ToolProvider.getSystemJavaCompiler();
+    JavabuilderContext.getInstance().register(PerformanceTracker.class, new PerformanceTracker());
+    JavabuilderContext.getInstance().register(MetricClient.class, new LocalMetricClient());
+  }
+
+  @Test
+  public void testStopsTaskOverTimeLimit() {
+    final CompilationMonitor monitor = new CompilationMonitor(0, Long.MAX_VALUE);
+
+    assertThrows(RuntimeException.class, () -> compile(monitor));
+    assertTrue(monitor.isLimitExceeded());
+    assertEquals(0, monitor.getGeneratedClassCount());
+  }
+
+  @Test
+  public void testStopsTaskOverAllocationLimit() {
+    final CompilationMonitor monitor = new CompilationMonitor(NO_LIMIT, 1);
+
+    assertThrows(RuntimeException.class, () -> compile(monitor));
+    assertTrue(monitor.isLimitExceeded());
+  }
+
+  @Test
+  public void testCompileOverLimitIsReportedToUser() throws Exception {
+    final List<ClientMessage> sent = new ArrayList<>();
+    final UserCodeCompiler userCodeCompiler =
+        new UserCodeCompiler(
+            List.of(new JavaProjectFile("Main.java", SOURCE)),
+            List.of(),
+            sent::add,
+            new CompiledClassCache(1024 * 1024),
+            false,
+            new CompilationMonitor(0, Long.MAX_VALUE));
+
+    // javac wraps the exception that stops it, which the compiler unwraps for the user.
+    final UserInitiatedException e =
+        assertThrows(UserInitiatedException.class, userCodeCompiler::compileProgram);
+    assertEquals(UserInitiatedExceptionKey.COMPILE_LIMIT_EXCEEDED.toString(), e.getMessage());
+  }
+
+  @Test
+  public void testFallbackIsNotChargedForAbandonedCompile() throws Exception {
+    // Warm up javac so later compiles allocate about the same amount.
+    for (int i = 0; i < 3; i++) {
+      compile(new CompilationMonitor(NO_LIMIT, Long.MAX_VALUE));
+    }
+    final CompilationMonitor measured = new CompilationMonitor(NO_LIMIT, Long.MAX_VALUE);
+    compile(measured);
+    assumeTrue(measured.getAllocatedBytes() > 0, "The JVM does not measure allocation");
+    // Enough for one compile, but not two.
+    final long allocationLimit = measured.getAllocatedBytes() * 3 / 2;
+
+    final CompilationMonitor monitor = new CompilationMonitor(NO_LIMIT, allocationLimit);
+    assertTrue(compile(monitor));
+    monitor.resetAllocatedBytes();
+    assertTrue(compile(monitor));
+    assertFalse(monitor.isLimitExceeded());
+
+    final CompilationMonitor withoutReset = new CompilationMonitor(NO_LIMIT, allocationLimit);
+    assertTrue(compile(withoutReset));
+    assertThrows(RuntimeException.class, () -> compile(withoutReset));
+    assertTrue(withoutReset.isLimitExceeded());
+  }
+
+  /** Compiles SOURCE in a real javac task that reports to the monitor. */
+  private boolean compile(CompilationMonitor monitor) {
+    final JavacTask task =
+        (JavacTask)
+            compiler.getTask(
+                null,
+                new InMemoryFileManager(compiler.getStandardFileManager(null, null, null)),
+                null,
+                null,
+                null,
+                List.of(new JavaSourceFromString("Main", SOURCE)));
+    task.addTaskListener(monitor.createListener());
+    return task.call();
+  }
+}
@@ -0,0 +1,112 @@
+package org.code.javabuilder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class CompiledClassCacheTest {
+  private static final String FINGERPRINT = "classpath";
+
+  @Test
+  public void identicalFilesProduceTheSameKey() throws Exception {
+    final String key =
+        CompiledClassCache.computeKey(files("Main.java", "class Main {}"), FINGERPRINT);
+    final String sameKey =
+        CompiledClassCache.computeKey(files("Main.java", "class Main {}"), FINGERPRINT);
+    assertEquals(key, sameKey);
+  }
+
+  @Test
+  public void keyChangesWithContentsNamesAndClasspath() throws Exception {
+    final String key =
+        CompiledClassCache.computeKey(files("Main.java", "class Main {}"), FINGERPRINT);
+    assertNotEquals(
+        key, CompiledClassCache.computeKey(files("Main.java", "class Main { }"), FINGERPRINT));
+    assertNotEquals(
+        key, CompiledClassCache.computeKey(files("Other.java", "class Main {}"), FINGERPRINT));
+    assertNotEquals(
+        key, CompiledClassCache.computeKey(files("Main.java", "class Main {}"), "newClasspath"));
+  }
+
+  @Test
+  public void keyDependsOnHowContentIsSplitBetweenFiles() throws Exception {
+    final List<JavaProjectFile> first =
+        List.of(new JavaProjectFile("A.java", "ab"), new JavaProjectFile("B.java", "c"));
+    final List<JavaProjectFile> second =
+        List.of(new JavaProjectFile("A.java", "a"), new JavaProjectFile("B.java", "bc"));
+    assertNotEquals(
+        CompiledClassCache.computeKey(first, FINGERPRINT),
+        CompiledClassCache.computeKey(second, FINGERPRINT));
+  }
+
+  @Test
+  public void fileKeyDependsOnOtherFileNamesButNotTheirContents() throws Exception {
+    final JavaProjectFile main = new JavaProjectFile("Main.java", "class Main {}");
+    final String key =
+        CompiledClassCache.computeFileKey(
+            main, List.of(main, new JavaProjectFile("A.java", "class A {}")), FINGERPRINT);
+    assertEquals(
+        key,
+        CompiledClassCache.computeFileKey(
+            main, List.of(main, new JavaProjectFile("A.java", "class A { }")), FINGERPRINT));
+    assertNotEquals(
+        key,
+        CompiledClassCache.computeFileKey(
+            main, List.of(main, new JavaProjectFile("B.java", "class A {}")), FINGERPRINT));
+  }
+
+  @Test
+  public void validationKeyDiffersFromKeyForTheSameFiles() throws Exception {
+    final List<JavaProjectFile> validation = files("Check.java", "class Check {}");
+    assertEquals(
+        CompiledClassCache.computeValidationKey(validation, FINGERPRINT),
+        CompiledClassCache.computeValidationKey(
+            files("Check.java", "class Check {}"), FINGERPRINT));
+    assertNotEquals(
+        CompiledClassCache.computeKey(validation, FINGERPRINT),
+        CompiledClassCache.computeValidationKey(validation, FINGERPRINT));
+  }
+
+  @Test
+  public void evictsLeastRecentlyUsedEntriesWhenOverSizeLimit() {
+    final CompiledClassCache cache = new CompiledClassCache(250);
+    cache.put("a", resultOfSize(100));
+    cache.put("b", resultOfSize(100));
+    // Touch "a" so that "b" becomes the least recently used entry
+    cache.get("a");
+    cache.put("c", resultOfSize(100));
+
+    assertNotNull(cache.get("a"));
+    assertNull(cache.get("b"));
+    assertNotNull(cache.get("c"));
+    assertTrue(cache.getSizeBytes() <= 250);
+  }
+
+  @Test
+  public void doesNotStoreResultsLargerThanTheCache() {
+    final CompiledClassCache cache = new CompiledClassCache(50);
+    cache.put("a", resultOfSize(100));
+    assertNull(cache.get("a"));
+    assertEquals(0, cache.getSizeBytes());
+  }
+
+  @Test
+  public void replacingAnEntryDoesNotDoubleCountItsSize() {
+    final CompiledClassCache cache = new CompiledClassCache(1000);
+    final CompilationResult result = resultOfSize(100);
+    cache.put("a", result);
+    cache.put("a", result);
+    assertEquals(result.getSizeInBytes(), cache.getSizeBytes());
+  }
+
+  private List<JavaProjectFile> files(String fileName, String contents) throws Exception {
+    return List.of(new JavaProjectFile(fileName, contents));
+  }
+
+  private CompilationResult resultOfSize(int classBytes) {
+    // A one-character class name adds two bytes to the result size
+    return new CompilationResult(true, List.of(), Map.of("A", new byte[classBytes - 2]));
+  }
+}
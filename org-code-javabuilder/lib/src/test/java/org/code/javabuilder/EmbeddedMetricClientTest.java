@@ -0,0 +1,64 @@
+package org.code.javabuilder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.amazonaws.services.cloudwatch.model.StandardUnit;
+import java.util.List;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+class EmbeddedMetricClientTest {
+  private final EmbeddedMetricClient unitUnderTest = new EmbeddedMetricClient("functionName");
+
+  @Test
+  public void testCreatesEmbeddedMetricFormatLine() {
+    final BufferedMetric severeError = new BufferedMetric("SevereError", StandardUnit.Count);
+    severeError.add(1.0);
+    final BufferedMetric cleanupTime =
+        new BufferedMetric("CleanupTime", StandardUnit.Milliseconds);
+    cleanupTime.add(10.0);
+    cleanupTime.add(30.0);
+
+    final JSONObject line =
+        unitUnderTest.createLogLine(List.of(severeError, cleanupTime), 0, 1234L);
+
+    assertEquals("functionName", line.getString("functionName"));
+    assertEquals(1.0, line.getDouble("SevereError"));
+    final JSONArray cleanupTimes = line.getJSONArray("CleanupTime");
+    assertEquals(2, cleanupTimes.length());
+    assertEquals(10.0, cleanupTimes.getDouble(0));
+    assertEquals(30.0, cleanupTimes.getDouble(1));
+
+    final JSONObject metadata = line.getJSONObject("_aws");
+    assertEquals(1234L, metadata.getLong("Timestamp"));
+    final JSONObject directive = metadata.getJSONArray("CloudWatchMetrics").getJSONObject(0);
+    assertEquals("Javabuilder", directive.getString("Namespace"));
+    assertEquals(
+        "functionName", directive.getJSONArray("Dimensions").getJSONArray(0).getString(0));
+    final JSONArray metrics = directive.getJSONArray("Metrics");
+    assertEquals(2, metrics.length());
+    assertEquals("CleanupTime", metrics.getJSONObject(1).getString("Name"));
+    assertEquals("Milliseconds", metrics.getJSONObject(1).getString("Unit"));
+  }
+
+  @Test
+  public void testLineHoldsValuesFromOffset() {
+    final BufferedMetric cleanupTime =
+        new BufferedMetric("CleanupTime", StandardUnit.Milliseconds);
+    for (int i = 0; i < EmbeddedMetricClient.MAX_VALUES_PER_METRIC + 1; i++) {
+      cleanupTime.add(i);
+    }
+
+    final JSONObject firstLine = unitUnderTest.createLogLine(List.of(cleanupTime), 0, 0L);
+    assertEquals(
+        EmbeddedMetricClient.MAX_VALUES_PER_METRIC,
+        firstLine.getJSONArray("CleanupTime").length());
+
+    final JSONObject secondLine =
+        unitUnderTest.createLogLine(
+            List.of(cleanupTime), EmbeddedMetricClient.MAX_VALUES_PER_METRIC, 0L);
+    assertEquals(
+        EmbeddedMetricClient.MAX_VALUES_PER_METRIC, secondLine.getDouble("CleanupTime"));
+  }
+}
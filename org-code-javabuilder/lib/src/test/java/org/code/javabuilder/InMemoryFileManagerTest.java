@@ -0,0 +1,83 @@
+package org.code.javabuilder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.util.List;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class InMemoryFileManagerTest {
+  private JavaCompiler compiler;
+  private InMemoryFileManager fileManager;
+
+  @BeforeEach
+  public void setUp() {
+    compiler = ToolProvider.getSystemJavaCompiler();
+    fileManager = new InMemoryFileManager(compiler.getStandardFileManager(null, null, null));
+  }
+
+  @Test
+  public void compilerOutputIsKeptInMemory() {
+    final String source =
+        "public class Greeter { public static String greet() { return \"hi\"; } class Inner {} }";
+    assertTrue(compile("Greeter", source));
+
+    assertEquals(2, fileManager.getCompiledClasses().size());
+    assertTrue(fileManager.getCompiledClasses().containsKey("Greeter"));
+    assertTrue(fileManager.getCompiledClasses().containsKey("Greeter$Inner"));
+  }
+
+  @Test
+  public void compiledClassesCanBeLoadedFromMemory() throws Exception {
+    final String source =
+        "public class Greeter { public static String greet() { return \"hi\"; } }";
+    assertTrue(compile("Greeter", source));
+
+    final InMemoryUserClassLoader classLoader =
+        new InMemoryUserClassLoader(
+            new URL[] {},
+            InMemoryFileManagerTest.class.getClassLoader(),
+            fileManager.getCompiledClasses(),
+            List.of("Greeter"),
+            RunPermissionLevel.USER);
+    final Class<?> greeter = classLoader.loadClass("Greeter");
+    final Method greet = greeter.getDeclaredMethod("greet");
+
+    assertSame(classLoader, greeter.getClassLoader());
+    assertEquals("hi", greet.invoke(null));
+  }
+
+  @Test
+  public void precompiledClassesAreOnTheClasspath() {
+    final String source =
+        "public class Greeter { public static String greet() { return \"hi\"; } }";
+    assertTrue(compile("Greeter", source));
+
+    fileManager =
+        new InMemoryFileManager(
+            compiler.getStandardFileManager(null, null, null), fileManager.getCompiledClasses());
+    assertTrue(compile("Main", "public class Main { String s = Greeter.greet(); }"));
+
+    // Only the newly compiled class is output
+    assertEquals(1, fileManager.getCompiledClasses().size());
+    assertTrue(fileManager.getCompiledClasses().containsKey("Main"));
+    assertEquals(
+        "/Main.java", fileManager.getCompiledClassSources().get("Main").toUri().getPath());
+  }
+
+  private boolean compile(String className, String source) {
+    return compiler
+        .getTask(
+            null,
+            fileManager,
+            null,
+            null,
+            null,
+            List.of(new JavaSourceFromString(className, source)))
+        .call();
+  }
+}
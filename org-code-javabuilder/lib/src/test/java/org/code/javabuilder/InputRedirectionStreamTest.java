@@ -108,8 +108,77 @@ public class InputRedirectionStreamTest {
   }
 
   @Test
-  public void markSupportedReturnsFalse() {
-    assertFalse(stream.markSupported());
+  public void readsNonAsciiBytesAsUnsigned() {
+    when(inputHandler.getNextMessageForType(InputMessageType.SYSTEM_IN)).thenReturn("\u00e9");
+    assertEquals(0xc3, stream.read());
+    assertEquals(0xa9, stream.read());
+  }
+
+  @Test
+  public void readsReturnEndOfInputWhenConnectionIsLost() {
+    when(inputHandler.getNextMessageForType(InputMessageType.SYSTEM_IN)).thenReturn(null);
+    assertEquals(-1, stream.read());
+    assertEquals(-1, stream.read(new byte[5]));
+  }
+
+  @Test
+  public void arrayReadOfNoBytesDoesNotWaitForInput() {
+    assertEquals(0, stream.read(new byte[5], 0, 0));
+    verify(inputHandler, never()).getNextMessageForType(InputMessageType.SYSTEM_IN);
+  }
+
+  @Test
+  public void arrayReadHandlesMessagesLargerThanTheBuffer() {
+    final String input = "x".repeat(5000);
+    when(inputHandler.getNextMessageForType(InputMessageType.SYSTEM_IN)).thenReturn(input);
+    byte[] expected = (input + System.lineSeparator()).getBytes(StandardCharsets.UTF_8);
+    byte[] actual = new byte[expected.length];
+
+    assertEquals(expected.length, stream.read(actual));
+    assertArrayEquals(expected, actual);
+  }
+
+  @Test
+  public void markSupportedReturnsTrue() {
+    assertTrue(stream.markSupported());
+  }
+
+  @Test
+  public void resetReturnsToMarkAcrossMessages() throws IOException {
+    when(inputHandler.getNextMessageForType(InputMessageType.SYSTEM_IN))
+        .thenReturn("ab")
+        .thenReturn("cd");
+    final int separatorLength = System.lineSeparator().length();
+    stream.read();
+    stream.mark(100);
+    // Read the rest of the first message and the start of the second
+    for (int i = 0; i < 1 + separatorLength + 1; i++) {
+      stream.read();
+    }
+    stream.reset();
+
+    assertEquals('b', stream.read());
+    for (int i = 0; i < separatorLength; i++) {
+      stream.read();
+    }
+    assertEquals('c', stream.read());
+    verify(inputHandler, times(2)).getNextMessageForType(InputMessageType.SYSTEM_IN);
+  }
+
+  @Test
+  public void resetThrowsWithoutMark() {
+    assertThrows(IOException.class, () -> stream.reset());
+  }
+
+  @Test
+  public void resetThrowsOnceReadLimitIsPassed() {
+    when(inputHandler.getNextMessageForType(InputMessageType.SYSTEM_IN))
+        .thenReturn("abc")
+        .thenReturn("def");
+    stream.mark(1);
+    stream.read(new byte[10]);
+    stream.read();
+    assertThrows(IOException.class, () -> stream.reset());
   }
 
   @Test
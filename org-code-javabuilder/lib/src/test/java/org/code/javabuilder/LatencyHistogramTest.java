@@ -0,0 +1,60 @@
+package org.code.javabuilder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+  @Test
+  public void testEmptyHistogramReturnsZero() {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    assertEquals(0, histogram.getTotalCount());
+    assertEquals(0, histogram.getValueAtPercentile(50));
+  }
+
+  @Test
+  public void testSmallValuesAreExact() {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 50; i++) {
+      histogram.record(i);
+    }
+    assertEquals(50, histogram.getTotalCount());
+    assertEquals(25, histogram.getValueAtPercentile(50));
+    assertEquals(48, histogram.getValueAtPercentile(95));
+    assertEquals(50, histogram.getValueAtPercentile(100));
+    assertEquals(50, histogram.getMaxValue());
+  }
+
+  @Test
+  public void testLargeValuesAreWithinBucketPrecision() {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    for (long i = 1; i <= 100_000; i++) {
+      histogram.record(i * 1_000);
+    }
+    assertWithinPrecision(50_000_000, histogram.getValueAtPercentile(50));
+    assertWithinPrecision(95_000_000, histogram.getValueAtPercentile(95));
+    assertWithinPrecision(99_000_000, histogram.getValueAtPercentile(99));
+    assertEquals(100_000_000, histogram.getValueAtPercentile(100));
+  }
+
+  @Test
+  public void testPercentileNeverExceedsMaxValue() {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(1_000_001);
+    assertEquals(1_000_001, histogram.getValueAtPercentile(99));
+  }
+
+  @Test
+  public void testRecordsExtremeValues() {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(-5);
+    histogram.record(Long.MAX_VALUE);
+    assertEquals(0, histogram.getValueAtPercentile(50));
+    assertEquals(Long.MAX_VALUE, histogram.getValueAtPercentile(100));
+  }
+
+  private void assertWithinPrecision(long expected, long actual) {
+    assertTrue(actual >= expected, actual + " < " + expected);
+    assertTrue(actual <= expected * 1.04, actual + " is not within 4% of " + expected);
+  }
+}
@@ -0,0 +1,76 @@
+package org.code.javabuilder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.code.protocol.*;
+import org.junit.jupiter.api.Test;
+
+class OutputBudgetTest {
+  @Test
+  public void testSpendThrowsOnceBudgetIsSpent() {
+    final OutputBudget budget = new OutputBudget(10);
+    budget.spend(6);
+
+    final UserInitiatedRuntimeException e =
+        assertThrows(UserInitiatedRuntimeException.class, () -> budget.spend(6));
+    assertEquals(UserInitiatedExceptionKey.TOO_MUCH_OUTPUT.toString(), e.getMessage());
+
+    // Output that did not fit was not counted.
+    budget.spend(4);
+  }
+
+  @Test
+  public void testLimitsTheaterMessagesButNotStatusMessages() {
+    final List<ClientMessage> sent = new ArrayList<>();
+    final OutputBudget budget = new OutputBudget(100);
+    final OutputAdapter outputAdapter = budget.limit(sent::add);
+
+    final ClientMessage theaterMessage = new TestMessage(ClientMessageType.THEATER, "x".repeat(60));
+    outputAdapter.sendMessage(theaterMessage);
+    assertThrows(
+        UserInitiatedRuntimeException.class, () -> outputAdapter.sendMessage(theaterMessage));
+
+    // Status messages are still sent so the user can be told why their program ended.
+    final ClientMessage exited = new StatusMessage(StatusMessageKey.EXITED);
+    outputAdapter.sendMessage(exited);
+    assertEquals(List.of(theaterMessage, exited), sent);
+  }
+
+  @Test
+  public void testChargesMessagesByEncodedBytes() {
+    final OutputBudget budget = new OutputBudget(100);
+    final OutputAdapter outputAdapter = budget.limit(message -> {});
+
+    // "THEATER" is 7 bytes and each "\u00e9" is 2 bytes of UTF-8, so the message takes 87 bytes.
+    final ClientMessage theaterMessage =
+        new TestMessage(ClientMessageType.THEATER, "\u00e9".repeat(40));
+    assertEquals(87, OutputBudget.estimateSize(theaterMessage));
+    outputAdapter.sendMessage(theaterMessage);
+    assertThrows(
+        UserInitiatedRuntimeException.class, () -> outputAdapter.sendMessage(theaterMessage));
+  }
+
+  @Test
+  public void testConsoleAndNeighborhoodOutputShareBudget() {
+    final List<ClientMessage> sent = new ArrayList<>();
+    final OutputBudget budget = new OutputBudget(100);
+    final OutputRedirectionStream stream = new OutputRedirectionStream(sent::add, budget);
+    stream.write("x".repeat(90).getBytes(StandardCharsets.UTF_8));
+
+    assertThrows(
+        UserInitiatedRuntimeException.class,
+        () ->
+            budget
+                .limit(sent::add)
+                .sendMessage(new TestMessage(ClientMessageType.NEIGHBORHOOD, "MOVE")));
+  }
+
+  private static class TestMessage extends ClientMessage {
+    private TestMessage(ClientMessageType type, String value) {
+      super(type, value);
+    }
+  }
+}
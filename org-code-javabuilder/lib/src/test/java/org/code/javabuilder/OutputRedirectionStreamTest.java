@@ -1,6 +1,7 @@
 package org.code.javabuilder;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.*;
 
 import java.nio.charset.StandardCharsets;
@@ -55,4 +56,42 @@ public class OutputRedirectionStreamTest {
     verify(outputAdapter, times(1)).sendMessage(message.capture());
     assertEquals(message.getValue().getValue(), "ello");
   }
+
+  @Test
+  public void flushDecodesMultiByteCharacters() {
+    byte[] arr = "h\u00e9llo \ud83d\ude00".getBytes(StandardCharsets.UTF_8);
+    stream.write(arr, 0, arr.length);
+    stream.flush();
+    ArgumentCaptor<SystemOutMessage> message = ArgumentCaptor.forClass(SystemOutMessage.class);
+    verify(outputAdapter, times(1)).sendMessage(message.capture());
+    assertEquals("h\u00e9llo \ud83d\ude00", message.getValue().getValue());
+  }
+
+  @Test
+  public void flushHoldsBackCharacterSplitAcrossWrites() {
+    byte[] arr = "a\u00e9".getBytes(StandardCharsets.UTF_8);
+    stream.write(arr, 0, 2);
+    stream.flush();
+    stream.write(arr, 2, 1);
+    stream.flush();
+    ArgumentCaptor<SystemOutMessage> message = ArgumentCaptor.forClass(SystemOutMessage.class);
+    verify(outputAdapter, times(2)).sendMessage(message.capture());
+    assertEquals("a", message.getAllValues().get(0).getValue());
+    assertEquals("\u00e9", message.getAllValues().get(1).getValue());
+  }
+
+  @Test
+  public void writeThrowsOnceOutputCapIsReached() {
+    stream = new OutputRedirectionStream(outputAdapter, new OutputBudget(5));
+    stream.write("abc".getBytes(StandardCharsets.UTF_8));
+    UserInitiatedRuntimeException e =
+        assertThrows(
+            UserInitiatedRuntimeException.class,
+            () -> stream.write("def".getBytes(StandardCharsets.UTF_8)));
+    assertEquals(UserInitiatedExceptionKey.TOO_MUCH_OUTPUT.toString(), e.getMessage());
+    // Output written before the cap is still sent
+    ArgumentCaptor<SystemOutMessage> message = ArgumentCaptor.forClass(SystemOutMessage.class);
+    verify(outputAdapter, times(1)).sendMessage(message.capture());
+    assertEquals("abc", message.getValue().getValue());
+  }
 }
@@ -0,0 +1,33 @@
+package org.code.javabuilder;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class PackagePrefixTrieTest {
+  @Test
+  public void matchesNamesStartingWithAnyPrefix() {
+    final PackagePrefixTrie trie = new PackagePrefixTrie("java.util.", "org.code.lang");
+    assertTrue(trie.matchesPrefixOf("java.util.ArrayList"));
+    assertTrue(trie.matchesPrefixOf("java.util.concurrent.ConcurrentHashMap"));
+    assertTrue(trie.matchesPrefixOf("org.code.lang.System"));
+    // Prefixes are matched as plain strings, the same as String.startsWith
+    assertTrue(trie.matchesPrefixOf("org.code.language"));
+    assertTrue(trie.matchesPrefixOf("org.code.lang"));
+  }
+
+  @Test
+  public void doesNotMatchOtherNames() {
+    final PackagePrefixTrie trie = new PackagePrefixTrie("java.util.", "java.io.");
+    assertFalse(trie.matchesPrefixOf("java.lang.Runtime"));
+    assertFalse(trie.matchesPrefixOf("java.util"));
+    assertFalse(trie.matchesPrefixOf("java.nio.file.Files"));
+    assertFalse(trie.matchesPrefixOf(""));
+  }
+
+  @Test
+  public void emptyTrieMatchesNothing() {
+    assertFalse(new PackagePrefixTrie().matchesPrefixOf("java.util.List"));
+  }
+}
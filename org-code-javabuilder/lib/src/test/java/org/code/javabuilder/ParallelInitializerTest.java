@@ -0,0 +1,113 @@
+package org.code.javabuilder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.code.protocol.InternalExceptionKey;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ParallelInitializerTest {
+  private ExecutorService executor;
+  private ParallelInitializer unitUnderTest;
+
+  @BeforeEach
+  public void setUp() {
+    executor = ParallelInitializer.createExecutor(3);
+    unitUnderTest = new ParallelInitializer(executor);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testRunsStepsAtTheSameTime() throws Exception {
+    // Each step waits for all three to have started, so this only finishes if they overlap.
+    final CountDownLatch started = new CountDownLatch(3);
+    for (int i = 0; i < 3; i++) {
+      unitUnderTest.submit(
+          () -> {
+            started.countDown();
+            return started.await(1, TimeUnit.SECONDS);
+          });
+    }
+    unitUnderTest.await();
+    assertEquals(0, started.getCount());
+  }
+
+  @Test
+  public void testReturnsStepResults() throws Exception {
+    final Future<String> result = unitUnderTest.submit(() -> "hello");
+    unitUnderTest.await();
+    assertEquals("hello", unitUnderTest.get(result));
+  }
+
+  @Test
+  public void testThrowsFirstFailureWithoutWaitingForOtherSteps() {
+    final CountDownLatch release = new CountDownLatch(1);
+    final AtomicBoolean slowStepFinished = new AtomicBoolean(false);
+    unitUnderTest.submit(
+        () -> {
+          release.await();
+          slowStepFinished.set(true);
+          return null;
+        });
+    final FatalError error = new FatalError(FatalErrorKey.TEMP_DIRECTORY_CLEANUP_ERROR);
+    unitUnderTest.submit(
+        (Runnable)
+            () -> {
+              throw error;
+            });
+
+    final FatalError actual = assertThrows(FatalError.class, () -> unitUnderTest.await());
+    assertSame(error, actual);
+    assertFalse(slowStepFinished.get());
+    release.countDown();
+  }
+
+  @Test
+  public void testCancelDropsStepsThatHaveNotStarted() throws Exception {
+    // Keep every thread busy, so the step waits in the queue.
+    final CountDownLatch release = new CountDownLatch(1);
+    for (int i = 0; i < 3; i++) {
+      executor.execute(
+          () -> {
+            try {
+              release.await();
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+          });
+    }
+    final AtomicBoolean ran = new AtomicBoolean(false);
+    final Future<?> queuedStep = unitUnderTest.submit(() -> ran.set(true));
+
+    unitUnderTest.cancel();
+    release.countDown();
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+    assertTrue(queuedStep.isCancelled());
+    assertFalse(ran.get());
+  }
+
+  @Test
+  public void testWrapsOtherCheckedExceptions() {
+    final IOException cause = new IOException();
+    unitUnderTest.submit(
+        () -> {
+          throw cause;
+        });
+
+    final InternalServerException actual =
+        assertThrows(InternalServerException.class, () -> unitUnderTest.await());
+    assertSame(cause, actual.getCause());
+  }
+}
@@ -0,0 +1,58 @@
+package org.code.javabuilder;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import org.code.protocol.JavabuilderContext;
+import org.code.protocol.MetricClient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class PerformanceTrackerTest {
+  private PhaseTimeHistograms phaseTimeHistograms;
+  private PerformanceTracker unitUnderTest;
+
+  @BeforeEach
+  public void setUp() {
+    JavabuilderContext.getInstance().register(MetricClient.class, mock(AWSMetricClient.class));
+    phaseTimeHistograms = mock(PhaseTimeHistograms.class);
+    unitUnderTest = new PerformanceTracker(phaseTimeHistograms);
+  }
+
+  @Test
+  public void testNamesNestedPhasesAfterTheirParents() {
+    try (PerformanceTracker.Phase execute = unitUnderTest.startPhase("execute")) {
+      try (PerformanceTracker.Phase classLoad = unitUnderTest.startPhase("classload")) {}
+    }
+    try (PerformanceTracker.Phase flush = unitUnderTest.startPhase("flush")) {}
+    unitUnderTest.logPerformance();
+
+    verify(phaseTimeHistograms).record(eq("execute"), anyLong());
+    verify(phaseTimeHistograms).record(eq("execute.classload"), anyLong());
+    verify(phaseTimeHistograms).record(eq("flush"), anyLong());
+  }
+
+  @Test
+  public void testRecordsPhasesTimedElsewhere() {
+    unitUnderTest.trackPhase("load", 1_000, 5_000);
+    try (PerformanceTracker.Phase compile = unitUnderTest.startPhase("compile")) {
+      compile.trackSubPhase("parse", 3_000);
+    }
+    unitUnderTest.logPerformance();
+
+    verify(phaseTimeHistograms).record("load", 4_000);
+    verify(phaseTimeHistograms).record("compile.parse", 3_000);
+    verify(phaseTimeHistograms).record(eq("compile"), anyLong());
+  }
+
+  @Test
+  public void testRecordsEachPhaseOnce() {
+    try (PerformanceTracker.Phase execute = unitUnderTest.startPhase("execute")) {}
+    unitUnderTest.logPerformance();
+    unitUnderTest.logPerformance();
+
+    verify(phaseTimeHistograms, times(1)).record(eq("execute"), anyLong());
+    verify(phaseTimeHistograms, times(2)).publishIfDue(any());
+  }
+}
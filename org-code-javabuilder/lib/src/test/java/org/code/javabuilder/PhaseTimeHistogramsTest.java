@@ -0,0 +1,65 @@
+package org.code.javabuilder;
+
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import org.code.protocol.MetricClient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.AdditionalMatchers;
+
+class PhaseTimeHistogramsTest {
+  private static final long INTERVAL_NANOS = Duration.ofMinutes(1).toNanos();
+
+  private MetricClient metricClient;
+  private PhaseTimeHistograms unitUnderTest;
+
+  @BeforeEach
+  public void setUp() {
+    metricClient = mock(MetricClient.class);
+    unitUnderTest = new PhaseTimeHistograms(Duration.ofMinutes(1));
+  }
+
+  @Test
+  public void testPublishesPercentilesInMilliseconds() {
+    for (int i = 1; i <= 100; i++) {
+      unitUnderTest.record("compile", i * 1_000_000L);
+    }
+    unitUnderTest.publishIfDue(metricClient, System.nanoTime());
+
+    // Percentiles are accurate to the width of a histogram bucket, about 3%
+    verify(metricClient)
+        .publishPhaseTime(
+            eq("compile"), eq(PhaseTimeHistograms.P50), AdditionalMatchers.eq(50.0, 2.0));
+    verify(metricClient)
+        .publishPhaseTime(
+            eq("compile"), eq(PhaseTimeHistograms.P95), AdditionalMatchers.eq(95.0, 3.0));
+    verify(metricClient)
+        .publishPhaseTime(
+            eq("compile"), eq(PhaseTimeHistograms.P99), AdditionalMatchers.eq(99.0, 3.0));
+    verify(metricClient).publishPhaseTime("compile", PhaseTimeHistograms.MAX, 100.0);
+  }
+
+  @Test
+  public void testPublishesAtMostOncePerInterval() {
+    final long firstPublish = System.nanoTime();
+    unitUnderTest.record("execute", 1_000_000);
+    unitUnderTest.publishIfDue(metricClient, firstPublish);
+    verify(metricClient, times(4)).publishPhaseTime(eq("execute"), anyString(), anyDouble());
+
+    unitUnderTest.record("execute", 2_000_000);
+    unitUnderTest.publishIfDue(metricClient, firstPublish + INTERVAL_NANOS - 1);
+    verify(metricClient, times(4)).publishPhaseTime(eq("execute"), anyString(), anyDouble());
+
+    unitUnderTest.publishIfDue(metricClient, firstPublish + INTERVAL_NANOS);
+    verify(metricClient).publishPhaseTime("execute", PhaseTimeHistograms.MAX, 2.0);
+  }
+
+  @Test
+  public void testDoesNotPublishWithoutPhases() {
+    unitUnderTest.publishIfDue(metricClient, System.nanoTime());
+    verifyNoInteractions(metricClient);
+  }
+}
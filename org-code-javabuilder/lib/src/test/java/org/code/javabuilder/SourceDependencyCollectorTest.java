@@ -0,0 +1,58 @@
+package org.code.javabuilder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.sun.source.util.JavacTask;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.ToolProvider;
+import org.junit.jupiter.api.Test;
+
+public class SourceDependencyCollectorTest {
+  @Test
+  public void recordsClassesReferredToByEachFile() {
+    final Map<URI, Set<String>> references =
+        collect(
+            new JavaSourceFromString(
+                "Main", "public class Main { int size() { return new Box().getItem().size; } }"),
+            new JavaSourceFromString("Box", "public class Box { Item getItem() { return null; } }"),
+            new JavaSourceFromString("Item", "public class Item { int size; }"));
+
+    final Set<String> mainReferences = references.get(URI.create("string:///Main.java"));
+    assertTrue(mainReferences.contains("Box"));
+    // Item is never named in Main, but Main still depends on it
+    assertTrue(mainReferences.contains("Item"));
+    assertFalse(references.get(URI.create("string:///Item.java")).contains("Box"));
+  }
+
+  @Test
+  public void recordsInlinedConstants() {
+    final Map<URI, Set<String>> references =
+        collect(
+            new JavaSourceFromString("Main", "public class Main { int limit = Limits.MAX; }"),
+            new JavaSourceFromString(
+                "Limits", "public class Limits { static final int MAX = 3; }"));
+
+    assertTrue(references.get(URI.create("string:///Main.java")).contains("Limits"));
+  }
+
+  private Map<URI, Set<String>> collect(JavaFileObject... sources) {
+    final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    final JavacTask task =
+        (JavacTask)
+            compiler.getTask(
+                null,
+                new InMemoryFileManager(compiler.getStandardFileManager(null, null, null)),
+                null,
+                null,
+                null,
+                List.of(sources));
+    final SourceDependencyCollector collector = new SourceDependencyCollector(task);
+    assertTrue(task.call());
+    return collector.getReferencedClasses();
+  }
+}
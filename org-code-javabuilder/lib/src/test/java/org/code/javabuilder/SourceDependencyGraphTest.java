@@ -0,0 +1,60 @@
+package org.code.javabuilder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.sun.source.util.JavacTask;
+import java.util.List;
+import java.util.Set;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.ToolProvider;
+import org.junit.jupiter.api.Test;
+
+public class SourceDependencyGraphTest {
+  @Test
+  public void groupsFilesThatDependOnEachOther() throws Exception {
+    final SourceDependencyGraph graph =
+        parse(
+            new JavaSourceFromString("A", "public class A { B b; }"),
+            new JavaSourceFromString("B", "public class B { A a; }"),
+            new JavaSourceFromString("C", "public class C { int x = new A().hashCode(); }"),
+            new JavaSourceFromString("D", "public class D {}"));
+
+    assertEquals(Set.of(1), graph.getDependencies(0));
+    assertEquals(Set.of(0), graph.getDependencies(2));
+    assertEquals(Set.of(), graph.getDependencies(3));
+
+    final List<List<Integer>> components = graph.getStronglyConnectedComponents();
+    assertEquals(3, components.size());
+    assertTrue(components.contains(List.of(0, 1)));
+    assertTrue(components.contains(List.of(3)));
+    // C must come after the component it depends on
+    assertTrue(components.indexOf(List.of(2)) > components.indexOf(List.of(0, 1)));
+  }
+
+  @Test
+  public void countsQualifiedAndNestedNames() throws Exception {
+    final SourceDependencyGraph graph =
+        parse(
+            new JavaSourceFromString("Shapes", "public class Shapes { static class Circle {} }"),
+            new JavaSourceFromString("Main", "public class Main { Shapes.Circle c; }"),
+            new JavaSourceFromString("Other", "public class Other { Object o = Main.class; }"));
+
+    assertEquals(Set.of(0), graph.getDependencies(1));
+    assertEquals(Set.of(1), graph.getDependencies(2));
+  }
+
+  private SourceDependencyGraph parse(JavaFileObject... sources) throws Exception {
+    final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    final JavacTask task =
+        (JavacTask)
+            compiler.getTask(
+                null,
+                compiler.getStandardFileManager(null, null, null),
+                null,
+                null,
+                null,
+                List.of(sources));
+    return SourceDependencyGraph.parse(task, sources.length);
+  }
+}
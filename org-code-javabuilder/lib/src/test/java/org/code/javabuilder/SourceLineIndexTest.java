@@ -0,0 +1,33 @@
+package org.code.javabuilder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+public class SourceLineIndexTest {
+  @Test
+  public void returnsLinesWithoutTerminators() {
+    final SourceLineIndex index = new SourceLineIndex("first\nsecond\r\nthird\rfourth");
+    assertEquals(4, index.getLineCount());
+    assertEquals("first", index.getLine(1));
+    assertEquals("second", index.getLine(2));
+    assertEquals("third", index.getLine(3));
+    assertEquals("fourth", index.getLine(4));
+  }
+
+  @Test
+  public void countsEmptyLines() {
+    final SourceLineIndex index = new SourceLineIndex("\n\nlast\n");
+    assertEquals(4, index.getLineCount());
+    assertEquals("", index.getLine(1));
+    assertEquals("last", index.getLine(3));
+    assertEquals("", index.getLine(4));
+  }
+
+  @Test
+  public void returnsNullForMissingLines() {
+    final SourceLineIndex index = new SourceLineIndex("only");
+    assertNull(index.getLine(0));
+    assertNull(index.getLine(2));
+  }
+}
@@ -4,6 +4,7 @@ import static org.code.javabuilder.UnhealthyContainerChecker.CONTAINER_ID_KEY_NA
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
@@ -11,7 +12,6 @@ import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 import com.amazonaws.services.dynamodbv2.model.GetItemResult;
 import java.util.Map;
 import org.code.javabuilder.UnhealthyContainerChecker.ShutdownTrigger;
-import org.code.protocol.JavabuilderContext;
 import org.code.protocol.MetricClient;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -22,11 +22,12 @@ class UnhealthyContainerCheckerTest {
 
   private GetItemResult getItemResult;
   private ArgumentCaptor<Map<String, AttributeValue>> keyCaptor;
+  private MetricClient metricClient;
   private UnhealthyContainerChecker unitUnderTest;
 
   @BeforeEach
   public void setUp() {
-    JavabuilderContext.getInstance().register(MetricClient.class, mock(AWSMetricClient.class));
+    metricClient = mock(MetricClient.class);
     final AmazonDynamoDB dynamoDBClient = mock(AmazonDynamoDB.class);
     getItemResult = mock(GetItemResult.class);
     keyCaptor = ArgumentCaptor.forClass(Map.class);
@@ -41,7 +42,7 @@ class UnhealthyContainerCheckerTest {
     final ShutdownTrigger trigger = ShutdownTrigger.END;
     when(getItemResult.getItem()).thenReturn(Map.of());
 
-    assertTrue(unitUnderTest.shouldForceShutdownContainer(containerId, trigger));
+    assertTrue(unitUnderTest.shouldForceShutdownContainer(containerId, trigger, metricClient));
 
     this.verifyKey(containerId, trigger);
   }
@@ -52,7 +53,7 @@ class UnhealthyContainerCheckerTest {
     final ShutdownTrigger trigger = ShutdownTrigger.START;
     when(getItemResult.getItem()).thenReturn(null);
 
-    assertFalse(unitUnderTest.shouldForceShutdownContainer(containerId, trigger));
+    assertFalse(unitUnderTest.shouldForceShutdownContainer(containerId, trigger, metricClient));
 
     this.verifyKey(containerId, trigger);
   }
@@ -63,9 +64,11 @@ class UnhealthyContainerCheckerTest {
     final ShutdownTrigger trigger = ShutdownTrigger.END;
     when(getItemResult.getItem()).thenThrow(new RuntimeException("exception"));
 
-    assertFalse(unitUnderTest.shouldForceShutdownContainer(containerId, trigger));
+    assertFalse(unitUnderTest.shouldForceShutdownContainer(containerId, trigger, metricClient));
 
     this.verifyKey(containerId, trigger);
+    // The failure is counted with the metric client passed in, not one looked up from the session.
+    verify(metricClient).publishSevereError();
   }
 
   private void verifyKey(String containerId, ShutdownTrigger trigger) {
@@ -0,0 +1,66 @@
+package org.code.javabuilder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import org.code.javabuilder.util.JarUtils;
+import org.junit.jupiter.api.Test;
+
+public class UserClassLoaderTest {
+  @Test
+  public void loadsClassesFromAllowedPackages() throws ClassNotFoundException {
+    final UserClassLoader classLoader = userClassLoader(RunPermissionLevel.USER);
+    assertEquals(ArrayList.class, classLoader.loadClass("java.util.ArrayList"));
+    assertEquals(String.class, classLoader.loadClass("java.lang.String"));
+  }
+
+  @Test
+  public void rejectsClassesOutsideAllowedPackagesEveryTime() {
+    final UserClassLoader classLoader = userClassLoader(RunPermissionLevel.USER);
+    assertThrows(ClassNotFoundException.class, () -> classLoader.loadClass("java.lang.Runtime"));
+    // The second check is answered from the remembered decision
+    assertThrows(ClassNotFoundException.class, () -> classLoader.loadClass("java.lang.Runtime"));
+  }
+
+  @Test
+  public void decisionsAreSeparatePerPermissionLevel() throws ClassNotFoundException {
+    final String name = "java.lang.reflect.Method";
+    assertThrows(
+        ClassNotFoundException.class,
+        () -> userClassLoader(RunPermissionLevel.USER).loadClass(name));
+    assertEquals(Method.class, userClassLoader(RunPermissionLevel.VALIDATOR).loadClass(name));
+    assertThrows(
+        ClassNotFoundException.class,
+        () -> userClassLoader(RunPermissionLevel.USER).loadClass(name));
+  }
+
+  @Test
+  public void sharesApiClassesButNotPerRunClassesAcrossRuns() throws ClassNotFoundException {
+    final UserClassLoader firstRun = perRunClassLoader();
+    final UserClassLoader secondRun = perRunClassLoader();
+    assertSame(
+        firstRun.loadClass("org.code.theater.Theater"),
+        secondRun.loadClass("org.code.theater.Theater"));
+    assertNotSame(
+        firstRun.loadClass("org.code.lang.System"), secondRun.loadClass("org.code.lang.System"));
+  }
+
+  private UserClassLoader perRunClassLoader() {
+    return new UserClassLoader(
+        JarUtils.getPerRunJarURLs(),
+        UserClassLoaderTest.class.getClassLoader(),
+        List.of(),
+        RunPermissionLevel.USER);
+  }
+
+  private UserClassLoader userClassLoader(RunPermissionLevel level) {
+    return new UserClassLoader(
+        new URL[] {}, UserClassLoaderTest.class.getClassLoader(), List.of(), level);
+  }
+}
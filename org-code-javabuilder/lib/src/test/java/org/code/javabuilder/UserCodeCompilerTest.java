@@ -0,0 +1,80 @@
+package org.code.javabuilder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import dev.javabuilder.LocalMetricClient;
+import java.io.File;
+import java.security.Permission;
+import java.security.Policy;
+import java.security.ProtectionDomain;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.code.protocol.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class UserCodeCompilerTest {
+  private List<ClientMessage> sent;
+  private Policy policy;
+
+  @BeforeEach
+  public void setUp() {
+    sent = new ArrayList<>();
+    JavabuilderContext.getInstance().register(PerformanceTracker.class, new PerformanceTracker());
+    JavabuilderContext.getInstance().register(MetricClient.class, new LocalMetricClient());
+    // Lambda runs with a security manager installed (see LambdaRequestHandler), so compile under
+    // one too. The policy grants the test's own code everything, as Lambda's policy does.
+    policy = Policy.getPolicy();
+    Policy.setPolicy(new AllowAllPolicy());
+    System.setSecurityManager(new SecurityManager());
+  }
+
+  @AfterEach
+  public void tearDown() {
+    System.setSecurityManager(null);
+    Policy.setPolicy(policy);
+  }
+
+  @Test
+  public void testCompilePoolThreadsCanReadFiles() throws Exception {
+    final String javaHome = System.getProperty("java.home");
+    assertTrue(
+        CachedCompiler.getInstance()
+            .getCompilePool()
+            .submit(() -> new File(javaHome).exists())
+            .get());
+  }
+
+  @Test
+  public void testCompilesInParallelUnderSecurityManager() throws Exception {
+    // Five independent classes and a Main that uses them: enough files to compile in parallel,
+    // split into more than one group.
+    final List<JavaProjectFile> files = new ArrayList<>();
+    for (String name : List.of("A", "B", "C", "D", "E")) {
+      files.add(new JavaProjectFile(name + ".java", "class " + name + " { int value = 1; }"));
+    }
+    files.add(
+        new JavaProjectFile(
+            "Main.java",
+            "class Main { int sum() { return new A().value + new B().value + new C().value"
+                + " + new D().value + new E().value; } }"));
+
+    final Map<String, byte[]> classes =
+        new UserCodeCompiler(files, sent::add, new CompiledClassCache(1024 * 1024))
+            .compileProgram();
+
+    assertEquals(Set.of("A", "B", "C", "D", "E", "Main"), classes.keySet());
+    assertEquals(
+        StatusMessageKey.COMPILATION_SUCCESSFUL.toString(), sent.get(sent.size() - 1).getValue());
+  }
+
+  private static class AllowAllPolicy extends Policy {
+    @Override
+    public boolean implies(ProtectionDomain domain, Permission permission) {
+      return true;
+    }
+  }
+}
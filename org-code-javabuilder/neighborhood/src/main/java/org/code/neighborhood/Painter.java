@@ -9,7 +9,6 @@ import org.code.protocol.OutputAdapter;
 
 public class Painter {
   private static final int LARGE_GRID_SIZE = 20;
-  private static int lastId = 0;
   private int xLocation;
   private int yLocation;
   private Direction direction;
@@ -53,7 +52,7 @@ public class Painter {
     if (x < 0 || y < 0 || x >= gridSize || y >= gridSize) {
       throw new NeighborhoodRuntimeException(ExceptionKeys.INVALID_LOCATION);
     }
-    this.id = "painter-" + lastId++;
+    this.id = "painter-" + currentWorld.getNextPainterId();
     this.sendInitializationMessage();
   }
 
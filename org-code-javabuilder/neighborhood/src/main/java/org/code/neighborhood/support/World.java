@@ -5,6 +5,8 @@ import org.code.protocol.*;
 
 public class World extends JavabuilderSharedObject {
   private final Grid grid;
+  // Painter ids start over for each session, since the api classes are shared between sessions.
+  private int nextPainterId;
 
   public World(int size) {
     GridFactory gridFactory = new GridFactory();
@@ -32,4 +34,9 @@ public class World extends JavabuilderSharedObject {
   public Grid getGrid() {
     return this.grid;
   }
+
+  /** @return the number to identify the next painter created in this world by */
+  public int getNextPainterId() {
+    return this.nextPainterId++;
+  }
 }
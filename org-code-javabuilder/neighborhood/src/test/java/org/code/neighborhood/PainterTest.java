@@ -99,6 +99,23 @@ public class PainterTest {
     assertEquals(exception.getMessage(), expectedMessage);
   }
 
+  @Test
+  void painterIdsStartOverForEachSession() {
+    new Painter();
+    new Painter();
+    JavabuilderContext.getInstance().destroyAndReset();
+
+    final OutputAdapter nextSessionOutputAdapter = mock(OutputAdapter.class);
+    GlobalProtocolTestFactory.builder().withOutputAdapter(nextSessionOutputAdapter).create();
+    JavabuilderContext.getInstance().register(World.class, new World(singleSquareGrid));
+    new Painter();
+
+    ArgumentCaptor<NeighborhoodSignalMessage> message =
+        ArgumentCaptor.forClass(NeighborhoodSignalMessage.class);
+    verify(nextSessionOutputAdapter).sendMessage(message.capture());
+    assertTrue(message.getValue().getDetail().toString().contains("\"id\":\"painter-0\""));
+  }
+
   @Test
   void moveSignalsNewLocationIfValidMovement() {
     World w = new World(multiSquareGrid);
@@ -0,0 +1,293 @@
+package org.code.protocol;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.json.JSONString;
+
+/**
+ * Writes a {@link ClientMessage} as UTF-8 JSON, producing the same JSON object as {@link
+ * ClientMessage#getFormattedMessage()} without building an intermediate JSONObject or String for
+ * each message. Neighborhood and theater programs send tens of thousands of small messages, so the
+ * bytes are written straight into a buffer that is reused from one message to the next.
+ *
+ * <p>This is not thread-safe, and the buffer returned by {@link #serialize} is only valid until the
+ * next call.
+ */
+public class ClientMessageSerializer {
+  private static final int INITIAL_BUFFER_SIZE = 1024;
+  // {"type":"<TYPE>" for each type, encoded once.
+  private static final Map<ClientMessageType, byte[]> TYPE_PREFIXES = createTypePrefixes();
+  private static final byte[] VALUE_KEY = ",\"value\":".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] DETAIL_KEY = ",\"detail\":".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] NULL = "null".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.UTF_8);
+
+  private byte[] buffer;
+  private int count;
+
+  public ClientMessageSerializer() {
+    this.buffer = new byte[INITIAL_BUFFER_SIZE];
+  }
+
+  /** @return the message as UTF-8 JSON, in a buffer that is reused by the next call */
+  public ByteBuffer serialize(ClientMessage message) {
+    this.count = 0;
+    this.writeBytes(TYPE_PREFIXES.get(message.getType()));
+    // JSONObject leaves out keys with null values, so do the same.
+    if (message.getValue() != null) {
+      this.writeBytes(VALUE_KEY);
+      this.writeString(message.getValue());
+    }
+    final JSONObject detail = message.getDetail();
+    if (detail != null && detail.length() > 0) {
+      this.writeBytes(DETAIL_KEY);
+      this.writeObject(detail);
+    }
+    this.writeByte('}');
+    return ByteBuffer.wrap(this.buffer, 0, this.count);
+  }
+
+  /** @return the message as JSON, for transports that send text rather than bytes */
+  public String serializeToString(ClientMessage message) {
+    this.serialize(message);
+    return new String(this.buffer, 0, this.count, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Finds where to end a chunk of a long string value so that the chunk, once escaped and encoded,
+   * takes at most maxBytes. A chunk never ends inside a surrogate pair, and always includes at
+   * least one character so that callers make progress.
+   *
+   * @return the end index (exclusive) of the chunk that starts at start
+   */
+  public static int findChunkEnd(String value, int start, int maxBytes) {
+    final int length = value.length();
+    int bytes = 0;
+    int end = start;
+    while (end < length) {
+      final char c = value.charAt(end);
+      final boolean isPair =
+          Character.isHighSurrogate(c)
+              && end + 1 < length
+              && Character.isLowSurrogate(value.charAt(end + 1));
+      final int charBytes = isPair ? 4 : getEncodedLength(c);
+      if (bytes + charBytes > maxBytes && end > start) {
+        break;
+      }
+      bytes += charBytes;
+      end += isPair ? 2 : 1;
+    }
+    return end;
+  }
+
+  /** @return the number of bytes the string takes once escaped and encoded, without its quotes */
+  public static int getEncodedLength(String value) {
+    final int length = value.length();
+    int bytes = 0;
+    for (int i = 0; i < length; i++) {
+      final char c = value.charAt(i);
+      if (Character.isHighSurrogate(c)
+          && i + 1 < length
+          && Character.isLowSurrogate(value.charAt(i + 1))) {
+        bytes += 4;
+        i++;
+      } else {
+        bytes += getEncodedLength(c);
+      }
+    }
+    return bytes;
+  }
+
+  /** @return the number of bytes writeString uses for a char that is not part of a pair */
+  private static int getEncodedLength(char c) {
+    if (c < 0x80) {
+      if (c == '"' || c == '\\') {
+        return 2;
+      }
+      if (c < 0x20) {
+        return c == '\b' || c == '\t' || c == '\n' || c == '\f' || c == '\r' ? 2 : 6;
+      }
+      return 1;
+    }
+    if (c < 0x800) {
+      return 2;
+    }
+    if (Character.isSurrogate(c)) {
+      return 1;
+    }
+    if (c == '\u2028' || c == '\u2029') {
+      return 6;
+    }
+    return 3;
+  }
+
+  private void writeObject(JSONObject object) {
+    this.writeByte('{');
+    boolean first = true;
+    for (String key : object.keySet()) {
+      if (!first) {
+        this.writeByte(',');
+      }
+      first = false;
+      this.writeString(key);
+      this.writeByte(':');
+      this.writeValue(object.opt(key));
+    }
+    this.writeByte('}');
+  }
+
+  private void writeArray(JSONArray array) {
+    this.writeByte('[');
+    for (int i = 0; i < array.length(); i++) {
+      if (i > 0) {
+        this.writeByte(',');
+      }
+      this.writeValue(array.opt(i));
+    }
+    this.writeByte(']');
+  }
+
+  /** Writes a value the way JSONObject.toString() does. */
+  private void writeValue(Object value) {
+    if (value == null || JSONObject.NULL.equals(value)) {
+      this.writeBytes(NULL);
+    } else if (value instanceof String) {
+      this.writeString((String) value);
+    } else if (value instanceof Number) {
+      this.writeAscii(JSONObject.numberToString((Number) value));
+    } else if (value instanceof Boolean) {
+      this.writeAscii(value.toString());
+    } else if (value instanceof JSONObject) {
+      this.writeObject((JSONObject) value);
+    } else if (value instanceof JSONArray) {
+      this.writeArray((JSONArray) value);
+    } else if (value instanceof Enum) {
+      this.writeString(((Enum<?>) value).name());
+    } else if (value instanceof JSONString) {
+      this.writeAscii(((JSONString) value).toJSONString());
+    } else {
+      this.writeString(value.toString());
+    }
+  }
+
+  /** Writes a quoted, escaped JSON string encoded as UTF-8. */
+  private void writeString(String value) {
+    final int length = value.length();
+    // Room for the quotes and up to 3 bytes per char. A unicode escape takes 6 bytes, so it makes
+    // more room for itself and the rest of the string.
+    this.ensureCapacity(length * 3 + 2);
+    this.buffer[this.count++] = '"';
+    for (int i = 0; i < length; i++) {
+      final char c = value.charAt(i);
+      if (c < 0x80) {
+        if (c == '"' || c == '\\') {
+          this.writeEscape(c);
+        } else if (c < 0x20) {
+          this.ensureCapacity(6 + (length - i) * 3);
+          this.writeControlCharacter(c);
+        } else {
+          this.buffer[this.count++] = (byte) c;
+        }
+      } else if (c < 0x800) {
+        this.buffer[this.count++] = (byte) (0xc0 | (c >> 6));
+        this.buffer[this.count++] = (byte) (0x80 | (c & 0x3f));
+      } else if (Character.isHighSurrogate(c)
+          && i + 1 < length
+          && Character.isLowSurrogate(value.charAt(i + 1))) {
+        // A surrogate pair takes 4 bytes for 2 chars, which fits in the room already made.
+        final int codePoint = Character.toCodePoint(c, value.charAt(++i));
+        this.buffer[this.count++] = (byte) (0xf0 | (codePoint >> 18));
+        this.buffer[this.count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+        this.buffer[this.count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+        this.buffer[this.count++] = (byte) (0x80 | (codePoint & 0x3f));
+      } else if (Character.isSurrogate(c)) {
+        // An unpaired surrogate cannot be encoded; String.getBytes uses '?' too.
+        this.buffer[this.count++] = '?';
+      } else if (c == '\u2028' || c == '\u2029') {
+        // Valid in JSON, but not in JavaScript source, so escape them as JSONObject does.
+        this.ensureCapacity(6 + (length - i) * 3);
+        this.writeUnicodeEscape(c);
+      } else {
+        this.buffer[this.count++] = (byte) (0xe0 | (c >> 12));
+        this.buffer[this.count++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+        this.buffer[this.count++] = (byte) (0x80 | (c & 0x3f));
+      }
+    }
+    this.writeByte('"');
+  }
+
+  private void writeControlCharacter(char c) {
+    switch (c) {
+      case '\b':
+        this.writeEscape('b');
+        break;
+      case '\t':
+        this.writeEscape('t');
+        break;
+      case '\n':
+        this.writeEscape('n');
+        break;
+      case '\f':
+        this.writeEscape('f');
+        break;
+      case '\r':
+        this.writeEscape('r');
+        break;
+      default:
+        this.writeUnicodeEscape(c);
+    }
+  }
+
+  private void writeEscape(char escaped) {
+    this.buffer[this.count++] = '\\';
+    this.buffer[this.count++] = (byte) escaped;
+  }
+
+  private void writeUnicodeEscape(char c) {
+    this.buffer[this.count++] = '\\';
+    this.buffer[this.count++] = 'u';
+    this.buffer[this.count++] = HEX_DIGITS[(c >> 12) & 0xf];
+    this.buffer[this.count++] = HEX_DIGITS[(c >> 8) & 0xf];
+    this.buffer[this.count++] = HEX_DIGITS[(c >> 4) & 0xf];
+    this.buffer[this.count++] = HEX_DIGITS[c & 0xf];
+  }
+
+  /** Writes a string known to need no escaping or encoding, such as a number. */
+  private void writeAscii(String value) {
+    this.ensureCapacity(value.length());
+    for (int i = 0; i < value.length(); i++) {
+      this.buffer[this.count++] = (byte) value.charAt(i);
+    }
+  }
+
+  private void writeBytes(byte[] bytes) {
+    this.ensureCapacity(bytes.length);
+    System.arraycopy(bytes, 0, this.buffer, this.count, bytes.length);
+    this.count += bytes.length;
+  }
+
+  private void writeByte(char c) {
+    this.ensureCapacity(1);
+    this.buffer[this.count++] = (byte) c;
+  }
+
+  private void ensureCapacity(int additional) {
+    if (this.count + additional > this.buffer.length) {
+      this.buffer =
+          Arrays.copyOf(this.buffer, Math.max(this.buffer.length * 2, this.count + additional));
+    }
+  }
+
+  private static Map<ClientMessageType, byte[]> createTypePrefixes() {
+    final Map<ClientMessageType, byte[]> prefixes = new EnumMap<>(ClientMessageType.class);
+    for (ClientMessageType type : ClientMessageType.values()) {
+      prefixes.put(type, ("{\"type\":\"" + type.name() + "\"").getBytes(StandardCharsets.UTF_8));
+    }
+    return prefixes;
+  }
+}
@@ -3,4 +3,7 @@ package org.code.protocol;
 public interface InputAdapter {
   /** @return The next user input to the currently running program */
   String getNextMessage();
+
+  /** Stops waiting for user input and releases any resources held for it. */
+  default void close() {}
 }
@@ -18,14 +18,27 @@ public class InputHandler {
 
   private final Map<InputMessageType, Queue<String>> inputQueues;
   private final InputAdapter inputAdapter;
+  private final OutputAdapter outputAdapter;
 
   public InputHandler(InputAdapter inputAdapter) {
+    this(inputAdapter, null);
+  }
+
+  /**
+   * @param outputAdapter flushed before waiting on the client for input, so that output the user
+   *     needs to see first (such as a prompt) is not held back for batching. May be null.
+   */
+  public InputHandler(InputAdapter inputAdapter, OutputAdapter outputAdapter) {
     this.inputAdapter = inputAdapter;
+    this.outputAdapter = outputAdapter;
     this.inputQueues = new HashMap<>();
   }
 
   public String getNextMessageForType(InputMessageType type) {
     if (!inputQueues.containsKey(type) || inputQueues.get(type).peek() == null) {
+      if (this.outputAdapter != null) {
+        this.outputAdapter.flush();
+      }
       InputMessageType nextMessageType = null;
       while (nextMessageType != type) {
         final String nextMessageData = this.inputAdapter.getNextMessage();
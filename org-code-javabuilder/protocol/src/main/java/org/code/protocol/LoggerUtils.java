@@ -86,13 +86,21 @@ public class LoggerUtils {
 
   /** Exceptions logged in this way will trigger alarms that should be dealt with urgently. */
   public static void logSevereException(Throwable e) {
+    LoggerUtils.logSevereException(
+        e, (MetricClient) JavabuilderContext.getInstance().get(MetricClient.class));
+  }
+
+  /**
+   * Logs a severe exception like {@link #logSevereException(Throwable)}, counting it with the given
+   * metric client. For use off the session's thread, where the session's shared objects must not be
+   * looked up.
+   */
+  public static void logSevereException(Throwable e, MetricClient metricClient) {
     JSONObject eventData = new JSONObject();
     eventData.put(LoggerConstants.EXCEPTION_MESSAGE, e.getMessage());
     if (e.getCause() != null) {
       eventData.put(LoggerConstants.CAUSE, e.getCause());
     }
-    MetricClient metricClient =
-        (MetricClient) JavabuilderContext.getInstance().get(MetricClient.class);
     metricClient.publishSevereError();
     Logger.getLogger(MAIN_LOGGER).severe(eventData.toString());
   }
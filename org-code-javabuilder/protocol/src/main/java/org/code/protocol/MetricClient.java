@@ -11,4 +11,26 @@ public interface MetricClient {
   void publishTransitionTime(long transitionTime);
 
   void publishCleanupTime(long cleanupTime);
+
+  void publishUserVisibleCleanupTime(long userVisibleCleanupTime);
+
+  void publishCompileCacheHit();
+
+  void publishCompileCacheMiss();
+
+  void publishCompilePhaseTime(String phase, long phaseTime);
+
+  void publishCompileLimitExceeded();
+
+  void publishApiGatewayRequests(long requestCount, long reusedConnectionCount, long retryCount);
+
+  /**
+   * @param phase a session phase, such as "compile" or "execute.classload"
+   * @param statistic the statistic of the phase's times, such as "p95" or "max"
+   * @param phaseTime the statistic's value, in milliseconds
+   */
+  void publishPhaseTime(String phase, String statistic, double phaseTime);
+
+  /** Sends any metrics that are being held to be sent together. */
+  default void flush() {}
 }
@@ -3,4 +3,16 @@ package org.code.protocol;
 public interface OutputAdapter {
   /** @param message An output from the user program */
   void sendMessage(ClientMessage message);
+
+  /**
+   * Blocks until every message already passed to {@link #sendMessage} has been sent. Adapters that
+   * send each message before returning from sendMessage have nothing to wait for.
+   */
+  default void flush() {}
+
+  /**
+   * Flushes any pending messages and releases anything the adapter holds for the session. Called
+   * once the session is over, before the connection to the user is closed.
+   */
+  default void close() {}
 }
@@ -0,0 +1,105 @@
+package org.code.protocol;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ClientMessageSerializerTest {
+  private ClientMessageSerializer unitUnderTest;
+
+  @BeforeEach
+  public void setUp() {
+    unitUnderTest = new ClientMessageSerializer();
+  }
+
+  @Test
+  public void testSerializesTypeAndValue() {
+    assertEquals(
+        "{\"type\":\"STATUS\",\"value\":\"RUNNING\"}",
+        unitUnderTest.serializeToString(new StatusMessage(StatusMessageKey.RUNNING)));
+  }
+
+  @Test
+  public void testSerializesDetail() {
+    final HashMap<String, String> detail = new HashMap<>();
+    detail.put("fileName", "Main.java");
+    assertEquals(
+        "{\"type\":\"STATUS\",\"value\":\"COMPILING\",\"detail\":{\"fileName\":\"Main.java\"}}",
+        unitUnderTest.serializeToString(new StatusMessage(StatusMessageKey.COMPILING, detail)));
+  }
+
+  @Test
+  public void testEscapesAndEncodesStrings() {
+    final String value = "quote \" backslash \\ newline \n tab \t bell \u0007 \u00e9 \ud83d\ude00";
+    final ByteBuffer bytes = unitUnderTest.serialize(new TestMessage(value, new JSONObject()));
+    final String json =
+        new String(bytes.array(), bytes.arrayOffset(), bytes.remaining(), StandardCharsets.UTF_8);
+
+    assertEquals(
+        "{\"type\":\"SYSTEM_OUT\",\"value\":\"quote \\\" backslash \\\\ newline \\n tab \\t bell"
+            + " \\u0007 \u00e9 \ud83d\ude00\"}",
+        json);
+    assertEquals(value, new JSONObject(json).getString("value"));
+  }
+
+  @Test
+  public void testMatchesFormattedMessageForNestedDetail() {
+    final JSONObject detail = new JSONObject();
+    detail.put("x", 3);
+    detail.put("ratio", 0.5);
+    detail.put("visible", true);
+    detail.put("missing", JSONObject.NULL);
+    detail.put("points", new JSONArray().put(1).put("two").put(new JSONObject().put("z", 3)));
+    final TestMessage message = new TestMessage("value", detail);
+
+    final JSONObject serialized = new JSONObject(unitUnderTest.serializeToString(message));
+
+    assertTrue(serialized.similar(new JSONObject(message.getFormattedMessage())));
+  }
+
+  @Test
+  public void testReusesBufferAcrossMessages() {
+    unitUnderTest.serializeToString(new TestMessage("x".repeat(5000), new JSONObject()));
+    assertEquals(
+        "{\"type\":\"SYSTEM_OUT\",\"value\":\"y\"}",
+        unitUnderTest.serializeToString(new TestMessage("y", new JSONObject())));
+  }
+
+  @Test
+  public void testFindChunkEndCountsEncodedBytes() {
+    // "a" is 1 byte, a newline is escaped to 2 bytes and "\u00e9" is 2 bytes of UTF-8.
+    assertEquals(2, ClientMessageSerializer.findChunkEnd("a\n\u00e9b", 0, 4));
+    assertEquals(4, ClientMessageSerializer.findChunkEnd("a\n\u00e9b", 2, 4));
+  }
+
+  @Test
+  public void testFindChunkEndDoesNotSplitSurrogatePairs() {
+    final String value = "ab\ud83d\ude00";
+    assertEquals(2, ClientMessageSerializer.findChunkEnd(value, 0, 5));
+    assertEquals(4, ClientMessageSerializer.findChunkEnd(value, 0, 6));
+  }
+
+  @Test
+  public void testGetEncodedLengthCountsEncodedBytes() {
+    // "a" is 1 byte, an escaped newline 2, "\u00e9" 2 and the surrogate pair 4.
+    assertEquals(9, ClientMessageSerializer.getEncodedLength("a\n\u00e9\ud83d\ude00"));
+  }
+
+  @Test
+  public void testFindChunkEndAlwaysMakesProgress() {
+    assertEquals(1, ClientMessageSerializer.findChunkEnd("\u0001b", 0, 2));
+  }
+
+  private static class TestMessage extends ClientMessage {
+    private TestMessage(String value, JSONObject detail) {
+      super(ClientMessageType.SYSTEM_OUT, value, detail);
+    }
+  }
+}
@@ -8,6 +8,7 @@ import java.util.Map;
 import org.json.JSONObject;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 
 class InputHandlerTest {
 
@@ -52,6 +53,20 @@ class InputHandlerTest {
     verify(inputAdapter, never()).getNextMessage();
   }
 
+  @Test
+  public void testFlushesOutputBeforeWaitingForInput() {
+    final OutputAdapter outputAdapter = mock(OutputAdapter.class);
+    unitUnderTest = new InputHandler(inputAdapter, outputAdapter);
+    when(inputAdapter.getNextMessage())
+        .thenReturn(createJsonMessage(InputMessageType.SYSTEM_IN.name(), "input"));
+
+    unitUnderTest.getNextMessageForType(InputMessageType.SYSTEM_IN);
+
+    final InOrder inOrder = inOrder(outputAdapter, inputAdapter);
+    inOrder.verify(outputAdapter).flush();
+    inOrder.verify(inputAdapter).getNextMessage();
+  }
+
   @Test
   public void testThrowsExceptionIfMessageIsNotJson() {
     final String testMessage = "not json";
@@ -28,13 +28,10 @@ public class Prompter {
   private final ImageCreator imageCreator;
 
   // Used in Theater to create Prompter "singleton"
-  // accessed by students.
+  // accessed by students. Theater is loaded once per container, so this singleton outlives a
+  // session and looks up the current session's protocol objects each time it is used.
   protected Prompter() {
-    this(
-        JavabuilderContext.getInstance().getGlobalProtocol().getOutputAdapter(),
-        JavabuilderContext.getInstance().getGlobalProtocol().getContentManager(),
-        JavabuilderContext.getInstance().getGlobalProtocol().getInputHandler(),
-        new ImageCreator());
+    this(null, null, null, new ImageCreator());
   }
 
   // Used to directly instantiate Prompter in tests.
@@ -53,7 +50,7 @@ public class Prompter {
     final String prompterFileName = PROMPTER_FILE_NAME_PREFIX + FILE_INDEX.incrementAndGet();
     final String uploadUrl;
     try {
-      uploadUrl = this.contentManager.generateAssetUploadUrl(prompterFileName);
+      uploadUrl = this.getContentManager().generateAssetUploadUrl(prompterFileName);
     } catch (JavabuilderException e) {
       throw new InternalServerRuntimeException(InternalExceptionKey.INTERNAL_RUNTIME_EXCEPTION, e);
     }
@@ -61,10 +58,12 @@ public class Prompter {
     HashMap<String, String> getImageDetails = new HashMap<>();
     getImageDetails.put(ClientMessageDetailKeys.PROMPT, prompt);
     getImageDetails.put(ClientMessageDetailKeys.UPLOAD_URL, uploadUrl);
-    this.outputAdapter.sendMessage(new TheaterMessage(TheaterSignalKey.GET_IMAGE, getImageDetails));
+    this.getOutputAdapter()
+        .sendMessage(new TheaterMessage(TheaterSignalKey.GET_IMAGE, getImageDetails));
 
     // Wait for an upload status message from Javalab
-    final String statusMessage = this.inputHandler.getNextMessageForType(InputMessageType.THEATER);
+    final String statusMessage =
+        this.getInputHandler().getNextMessageForType(InputMessageType.THEATER);
     if (statusMessage.equals(UPLOAD_SUCCESS)) {
       try {
         return this.imageCreator.createImage(prompterFileName);
@@ -80,4 +79,22 @@ public class Prompter {
       throw new InternalServerRuntimeException(InternalExceptionKey.UNKNOWN_ERROR);
     }
   }
+
+  private OutputAdapter getOutputAdapter() {
+    return this.outputAdapter != null
+        ? this.outputAdapter
+        : JavabuilderContext.getInstance().getGlobalProtocol().getOutputAdapter();
+  }
+
+  private ContentManager getContentManager() {
+    return this.contentManager != null
+        ? this.contentManager
+        : JavabuilderContext.getInstance().getGlobalProtocol().getContentManager();
+  }
+
+  private InputHandler getInputHandler() {
+    return this.inputHandler != null
+        ? this.inputHandler
+        : JavabuilderContext.getInstance().getGlobalProtocol().getInputHandler();
+  }
 }